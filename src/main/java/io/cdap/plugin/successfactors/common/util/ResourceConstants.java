@@ -24,6 +24,9 @@ public enum ResourceConstants {
 
   ERR_MISSING_PARAM_PREFIX(null, "err.missing.param.prefix"),
   ERR_MISSING_PARAM_OR_MACRO_ACTION(null, "err.missing.param.or.macro.action"),
+  ERR_NEGATIVE_PARAM_PREFIX(null, "err.negative.param.prefix"),
+  ERR_POSITIVE_PARAM_ACTION(null, "err.positive.param.action"),
+  ERR_NON_NEGATIVE_PARAM_ACTION(null, "err.non.negative.param.action"),
   ERR_INVALID_BASE_URL(null, "err.invalid.base.url"),
   ERR_FEATURE_NOT_SUPPORTED("CDF_SAP_ODATA_01500", "err.feature.not.supported"),
   ERR_INVALID_ENTITY_CALL(null, "err.invalid.entityCall"),
@@ -51,7 +54,11 @@ public enum ResourceConstants {
   ERR_METADATA_ENCODED_STRING("CDF_SAP_SUCCESSFACTORS_01504", "err.metadata.encoded.string"),
   ERR_METADATA_DECODE("CDF_SAP_SUCCESSFACTORS_01533", "err.metadata.decode"),
   ERR_RECORD_PULL("CDF_SAP_SUCCESSFACTORS_01536", "err.record.pull"),
-  ERR_RECORD_PROCESSING("CDF_SAP_SUCCESSFACTORS_01537", "err.record.processing");
+  ERR_RECORD_PROCESSING("CDF_SAP_SUCCESSFACTORS_01537", "err.record.processing"),
+  ERR_KEYSET_MISSING_KEY(null, "err.keyset.missing.key"),
+  ERR_TIME_WINDOW_PROPERTY(null, "err.time.window.property"),
+  ERR_CONFLICTING_PARAMS(null, "err.conflicting.params"),
+  ERR_CONFLICTING_PARAMS_ACTION(null, "err.conflicting.params.action");
 
   private final String code;
   private final String key;
@@ -70,6 +77,13 @@ public enum ResourceConstants {
     return key;
   }
 
+  /**
+   * @return numeric part of the code, for example 1537 for 'CDF_SAP_SUCCESSFACTORS_01537', or 0 if there is no code.
+   */
+  public int getNumericCode() {
+    return code == null || code.isEmpty() ? 0 : Integer.parseInt(code.substring(code.lastIndexOf('_') + 1));
+  }
+
   public String getMsgForKeyWithCode() {
     return getMsgForKey(code);
   }
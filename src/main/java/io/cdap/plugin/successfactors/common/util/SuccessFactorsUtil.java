@@ -97,7 +97,8 @@ public class SuccessFactorsUtil {
    * @return SuccessFactorsService instance
    */
   public static SuccessFactorsService getSuccessFactorsService(SuccessFactorsPluginConfig pluginConfig) {
-    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(pluginConfig.getConnection(),
+                                                                     pluginConfig.getMaxRequestsPerSecond());
     SuccessFactorsService successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
     return successFactorsService;
   }
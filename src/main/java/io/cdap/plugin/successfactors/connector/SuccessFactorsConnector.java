@@ -46,13 +46,13 @@ import io.cdap.plugin.successfactors.common.util.ExceptionParser;
 import io.cdap.plugin.successfactors.source.SuccessFactorsSource;
 import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataCache;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
 import io.cdap.plugin.successfactors.source.transform.SuccessFactorsTransformer;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
 import okhttp3.HttpUrl;
 
-import org.apache.olingo.odata2.api.edm.Edm;
 import org.apache.olingo.odata2.api.edm.EdmEntitySet;
 import org.apache.olingo.odata2.api.edm.EdmException;
 import org.apache.olingo.odata2.api.ep.EntityProvider;
@@ -167,12 +167,9 @@ public class SuccessFactorsConnector implements DirectConnector {
 
   Schema getSchema(String entityName) throws TransportException, EntityProviderException,
     SuccessFactorsServiceException, IOException {
-    try (InputStream inputStream = getMetaDataStream(entityName)) {
-      Edm metadata = EntityProvider.readMetadata(inputStream, false);
-      SuccessFactorsEntityProvider edmData = new SuccessFactorsEntityProvider(metadata);
-      SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
-      return successFactorsSchemaGenerator.buildDefaultOutputSchema(entityName);
-    }
+    SuccessFactorsEntityProvider edmData = fetchServiceMetadata(entityName);
+    SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
+    return successFactorsSchemaGenerator.buildDefaultOutputSchema(entityName);
   }
 
   @Override
@@ -194,23 +191,20 @@ public class SuccessFactorsConnector implements DirectConnector {
    */
   List<StructuredRecord> listEntityData(String entity, long top)
     throws EdmException, TransportException, EntityProviderException, SuccessFactorsServiceException, IOException {
-    try (InputStream inputStream = getMetaDataStream(entity)) {
-      Edm edm = EntityProvider.readMetadata(inputStream, false);
-      SuccessFactorsEntityProvider serviceHelper = new SuccessFactorsEntityProvider(edm);
-      EdmEntitySet edmEntitySet = serviceHelper.getEntitySet(entity);
-      try (InputStream dataStream = callEntityData(top, entity)) {
-        ODataFeed dataFeed = EntityProvider.readFeed(MediaType.APPLICATION_JSON, edmEntitySet,
-          dataStream, EntityProviderReadProperties.init().build());
-        SuccessFactorsTransformer valueConverter = new SuccessFactorsTransformer(getSchema(entity));
-        List<ODataEntry> oDataEntryList;
-        oDataEntryList = dataFeed != null ? dataFeed.getEntries() : Collections.emptyList();
-        List<StructuredRecord> data = new ArrayList<>();
-        for (int i = 0; i < oDataEntryList.size(); i++) {
-          StructuredRecord dataRecord = valueConverter.buildCurrentRecord(oDataEntryList.get(i));
-          data.add(dataRecord);
-        }
-        return data;
+    SuccessFactorsEntityProvider serviceHelper = fetchServiceMetadata(entity);
+    EdmEntitySet edmEntitySet = serviceHelper.getEntitySet(entity);
+    try (InputStream dataStream = callEntityData(top, entity)) {
+      ODataFeed dataFeed = EntityProvider.readFeed(MediaType.APPLICATION_JSON, edmEntitySet,
+        dataStream, EntityProviderReadProperties.init().build());
+      SuccessFactorsTransformer valueConverter = new SuccessFactorsTransformer(getSchema(entity));
+      List<ODataEntry> oDataEntryList;
+      oDataEntryList = dataFeed != null ? dataFeed.getEntries() : Collections.emptyList();
+      List<StructuredRecord> data = new ArrayList<>();
+      for (int i = 0; i < oDataEntryList.size(); i++) {
+        StructuredRecord dataRecord = valueConverter.buildCurrentRecord(oDataEntryList.get(i));
+        data.add(dataRecord);
       }
+      return data;
     }
   }
 
@@ -242,21 +236,11 @@ public class SuccessFactorsConnector implements DirectConnector {
 
   SuccessFactorsEntityProvider fetchServiceMetadata(String entity) throws TransportException,
     EntityProviderException, IOException {
-    try (InputStream metadataStream = getMetaDataStream(entity)) {
-      Edm metadata = EntityProvider.readMetadata(metadataStream, false);
-      return new SuccessFactorsEntityProvider(metadata);
-    }
-  }
-  /**
-   * @return returns the responseStream for metadata call.
-   */
-  private InputStream getMetaDataStream(String entity) throws TransportException, IOException {
     URL metadataURL = HttpUrl.parse(config.getBaseURL()).newBuilder().addPathSegments(entity)
       .addPathSegment(METADATACALL).build().url();
-    SuccessFactorsTransporter successFactorsHttpClient = new SuccessFactorsTransporter(config);
-    SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
-      .callSuccessFactorsEntity(metadataURL, MediaType.APPLICATION_XML, METADATA);
-    return responseContainer.getResponseStream();
-    }
+    SuccessFactorsMetadataCache metadataCache =
+      new SuccessFactorsMetadataCache(config, new SuccessFactorsTransporter(config));
+    return new SuccessFactorsEntityProvider(metadataCache.getMetadataIndex(metadataURL));
   }
+}
 
@@ -48,11 +48,14 @@ public class SuccessFactorsConnectorConfig extends PluginConfig {
   public static final String PROPERTY_PROXY_URL = "proxyUrl";
   public static final String PROPERTY_PROXY_USERNAME = "proxyUsername";
   public static final String PROPERTY_PROXY_PASSWORD = "proxyPassword";
+  public static final String METADATA_CACHE_TTL = "metadataCacheTtl";
+  public static final String METADATA_CACHE_DIRECTORY = "metadataCacheDirectory";
   public static final String TEST = "TEST";
   private static final String COMMON_ACTION = ResourceConstants.ERR_MISSING_PARAM_OR_MACRO_ACTION.getMsgForKey();
   private static final String SAP_SUCCESSFACTORS_USERNAME = "SAP SuccessFactors Username";
   private static final String SAP_SUCCESSFACTORS_PASSWORD = "SAP SuccessFactors Password";
   private static final String SAP_SUCCESSFACTORS_BASE_URL = "SAP SuccessFactors Base URL";
+  private static final String SAP_SUCCESSFACTORS_METADATA_CACHE_TTL = "Metadata Cache TTL";
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsConnectorConfig.class);
 
   @Name(UNAME)
@@ -88,14 +91,37 @@ public class SuccessFactorsConnectorConfig extends PluginConfig {
   @Macro
   private String proxyPassword;
 
+  @Nullable
+  @Name(METADATA_CACHE_TTL)
+  @Description("Time in minutes for which the downloaded service metadata is reused from the local metadata cache. " +
+    "Expired metadata is revalidated with its ETag or Last-Modified date and only downloaded again if it has " +
+    "changed. Leave empty or 0 to disable the metadata cache.")
+  @Macro
+  private Long metadataCacheTtl;
+
+  @Nullable
+  @Name(METADATA_CACHE_DIRECTORY)
+  @Description("Local directory of the metadata cache, shared by all the pipelines running on the same host. " +
+    "Defaults to the 'successfactors-metadata-cache' directory in the system temporary directory.")
+  @Macro
+  private String metadataCacheDirectory;
+
   public SuccessFactorsConnectorConfig(String username, String password, String baseURL, String proxyUrl,
                                        String proxyUsername, String proxyPassword) {
+    this(username, password, baseURL, proxyUrl, proxyUsername, proxyPassword, null, null);
+  }
+
+  public SuccessFactorsConnectorConfig(String username, String password, String baseURL, String proxyUrl,
+                                       String proxyUsername, String proxyPassword, @Nullable Long metadataCacheTtl,
+                                       @Nullable String metadataCacheDirectory) {
     this.username = username;
     this.password = password;
     this.baseURL = baseURL;
     this.proxyUrl = proxyUrl;
     this.proxyUsername = proxyUsername;
     this.proxyPassword = proxyPassword;
+    this.metadataCacheTtl = metadataCacheTtl;
+    this.metadataCacheDirectory = metadataCacheDirectory;
   }
 
   public String getProxyUrl() {
@@ -122,6 +148,18 @@ public class SuccessFactorsConnectorConfig extends PluginConfig {
     return baseURL;
   }
 
+  /**
+   * @return metadata cache TTL in minutes, 0 if the metadata cache is disabled
+   */
+  public long getMetadataCacheTtl() {
+    return metadataCacheTtl == null || metadataCacheTtl < 0 ? 0 : metadataCacheTtl;
+  }
+
+  @Nullable
+  public String getMetadataCacheDirectory() {
+    return SuccessFactorsUtil.trim(metadataCacheDirectory);
+  }
+
   public void validateBasicCredentials(FailureCollector failureCollector) {
 
     if (SuccessFactorsUtil.isNullOrEmpty(getUsername()) && !containsMacro(UNAME)) {
@@ -142,6 +180,11 @@ public class SuccessFactorsConnectorConfig extends PluginConfig {
         failureCollector.addFailure(errMsg, COMMON_ACTION).withConfigProperty(BASE_URL);
       }
     }
+    if (metadataCacheTtl != null && !containsMacro(METADATA_CACHE_TTL) && metadataCacheTtl < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey(SAP_SUCCESSFACTORS_METADATA_CACHE_TTL);
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NON_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(METADATA_CACHE_TTL);
+    }
   }
 
   /**
@@ -24,9 +24,13 @@ import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.batch.Input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
 import io.cdap.cdap.etl.api.StageConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.api.batch.BatchSourceContext;
 import io.cdap.cdap.etl.api.connector.Connector;
@@ -44,18 +48,29 @@ import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsInputFormat;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsInputSplit;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsPartitionBuilder;
+import io.cdap.plugin.successfactors.source.input.SuccessFactorsReadPlan;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsPageCache;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsRunPlanner;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsTimeWindowPlanner;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsInvalidRecord;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsReadProgress;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsReaderMetrics;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.olingo.odata2.api.edm.Edm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -69,10 +84,20 @@ import javax.annotation.Nullable;
 @Metadata(properties = {@MetadataProperty(key = Connector.PLUGIN_TYPE, value = SuccessFactorsConnector.NAME)})
 public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRecord, StructuredRecord> {
   public static final String NAME = "SuccessFactors";
-  public static final String OUTPUT_SCHEMA = "outputSchema";
   private static final String SERVER_SIDE = "serverSide";
+  private static final long METRICS_EMIT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  // runtime argument passing the identifier of the planned run of a stage to its transforms
+  private static final String RUN_ID_ARGUMENT = "successfactors.run.id.";
+  // records of the probe page estimating the size of the records, when a split size is targeted
+  private static final long PROBE_RECORDS = 100L;
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsSource.class);
   private final SuccessFactorsPluginConfig config;
+  private StageMetrics metrics;
+  private SuccessFactorsReaderMetrics readerMetrics;
+  private long nextMetricsEmitTime;
+  // identifier of the planned run, whose cached pages are deleted once it finishes
+  @Nullable
+  private String runId;
 
   public SuccessFactorsSource(SuccessFactorsPluginConfig config) {
     this.config = config;
@@ -97,19 +122,55 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
   }
 
   @Override
-  public void prepareRun(BatchSourceContext context) throws Exception {
-    Schema outputSchema = context.getOutputSchema();
-    if (outputSchema == null) {
-      outputSchema = getOutputSchema(context.getFailureCollector());
-    }
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    metrics = context.getMetrics();
+    // the metrics of the readers of this run, apart from the other runs of the stage in the JVM
+    readerMetrics = SuccessFactorsReaderMetrics.acquire(context.getArguments().get(RUN_ID_ARGUMENT +
+                                                                                     context.getStageName()),
+                                                        context.getStageName());
+  }
 
-    if (outputSchema == null) {
-      throw new IllegalArgumentException(ResourceConstants.ERR_MACRO_INPUT.getMsgForKeyWithCode());
+  @Override
+  public void transform(KeyValue<LongWritable, StructuredRecord> input, Emitter<StructuredRecord> emitter) {
+    // the metrics of the record readers of the stage are emitted periodically rather than for every record
+    long currentTime = System.currentTimeMillis();
+    if (currentTime >= nextMetricsEmitTime) {
+      readerMetrics.emit(metrics);
+      nextMetricsEmitTime = currentTime + METRICS_EMIT_INTERVAL_MILLIS;
     }
+    StructuredRecord record = input.getValue();
+    if (SuccessFactorsInvalidRecord.isInvalid(record)) {
+      emitter.emitError(SuccessFactorsInvalidRecord.toInvalidEntry(record));
+      return;
+    }
+    emitter.emit(record);
+  }
 
+  @Override
+  public void prepareRun(BatchSourceContext context) throws Exception {
+    Schema outputSchema = context.getOutputSchema();
     FailureCollector collector = context.getFailureCollector();
+    // the partitioning given by macros is only known now
+    config.validatePartitioning(collector);
+    collector.getOrThrowException();
+
+    // the schema, record count and metadata calls are independent of each other and are made concurrently
+    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(config);
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService,
+                                                                             outputSchema == null)) {
+      if (outputSchema == null) {
+        outputSchema = getOutputSchema(planner, collector);
+      }
+
+      if (outputSchema == null) {
+        throw new IllegalArgumentException(ResourceConstants.ERR_MACRO_INPUT.getMsgForKeyWithCode());
+      }
 
-    configureJob(context, outputSchema);
+      configureJob(context, outputSchema, planner, successFactorsService);
+      context.getMetrics().gauge(SuccessFactorsRunPlanner.PLANNING_TIME_METRIC, planner.getElapsedMillis());
+      LOG.debug("Planned the extraction of '{}' in {} ms.", config.getEntityName(), planner.getElapsedMillis());
+    }
 
     emitLineage(context, outputSchema, config.getEntityName());
 
@@ -129,10 +190,29 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
     if (config.getConnection() != null) {
       SuccessFactorsTransporter transporter = new SuccessFactorsTransporter(config.getConnection());
       SuccessFactorsService successFactorsServices = new SuccessFactorsService(config, transporter);
+      try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planSchema(successFactorsServices)) {
+        return getOutputSchema(planner, failureCollector);
+      }
+    }
+    failureCollector.getOrThrowException();
+    return null;
+  }
+
+  /**
+   * Gets the Schema from the calls started by the given planner and sets the appropriate error messages in case any
+   * error is identified while preparing the Schema.
+   *
+   * @param planner          {@code SuccessFactorsRunPlanner} running the schema calls
+   * @param failureCollector {@code FailureCollector}
+   * @return {@code Schema}
+   */
+  @Nullable
+  private Schema getOutputSchema(SuccessFactorsRunPlanner planner, FailureCollector failureCollector) {
+    if (config.getConnection() != null) {
       try {
         //validate if the given parameters form a valid SuccessFactors URL.
-        successFactorsServices.checkSuccessFactorsURL();
-        return successFactorsServices.buildOutputSchema();
+        planner.checkSuccessFactorsURL();
+        return planner.buildOutputSchema();
       } catch (TransportException te) {
         String errorMsg = ExceptionParser.buildTransportError(te);
         errorMsg = ResourceConstants.ERR_ODATA_SERVICE_CALL.getMsgForKeyWithCode(errorMsg);
@@ -189,31 +269,165 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
    *
    * @param context
    * @param outputSchema
+   * @param planner      {@code SuccessFactorsRunPlanner} running the record count and metadata calls
+   * @param successFactorsService {@code SuccessFactorsService} downloading the probe page of the split planning
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
    * @throws IOException                    any IO exception occurs during the Hadoop Job instance creation.
    */
-  private void configureJob(BatchSourceContext context, Schema outputSchema)
+  private void configureJob(BatchSourceContext context, Schema outputSchema, SuccessFactorsRunPlanner planner,
+                            SuccessFactorsService successFactorsService)
     throws TransportException, SuccessFactorsServiceException, IOException {
 
-    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(config);
-
-    long availableRowCount = successFactorsService.getTotalAvailableRowCount();
+    long availableRowCount = planner.getTotalAvailableRowCount();
 
     if (availableRowCount <= 0) {
       LOG.warn(ResourceConstants.ERR_NO_RECORD_FOUND.getMsgForKeyWithCode(config.getEntityName()));
     }
 
+    // only the capped number of records is planned, so a limited read never builds splits beyond the limit
+    Long recordLimit = getRecordLimit(context);
+    long recordsToExtract = recordLimit == null ? availableRowCount : Math.min(availableRowCount, recordLimit);
+
     SuccessFactorsPartitionBuilder partitionBuilder = new SuccessFactorsPartitionBuilder();
     List<SuccessFactorsInputSplit> partitions;
-    if (config.getPaginationType().equals(SERVER_SIDE)) {
-      partitions = new ArrayList<>();
-      partitions.add(new SuccessFactorsInputSplit());
+    boolean serverSide = config.getPaginationType().equals(SERVER_SIDE);
+    // at most one of the partition filters, the time windows and the key ranges is configured, see
+    // SuccessFactorsPluginConfig#validatePartitioning
+    if (!config.getPartitionFilters().isEmpty()) {
+      partitions = getPartitionFilterSplits(successFactorsService, planner, recordsToExtract, recordLimit);
+    } else if (config.getTimeWindowProperty() != null && recordsToExtract > 0) {
+      partitions = getTimeWindowSplits(successFactorsService, planner, availableRowCount, recordsToExtract,
+                                       recordLimit);
+    } else if (serverSide && !config.isKeyRangePartitioning()) {
+      partitions = getServerSideSplits(recordsToExtract);
     } else {
-      partitions = partitionBuilder.buildSplits(availableRowCount);
+      long recordsPerSplit = getRecordsPerSplit(successFactorsService, planner, recordsToExtract);
+      if (config.isKeyRangePartitioning() && recordsToExtract > recordsPerSplit) {
+        // the boundary keys of the splits are probed concurrently, every key range is then paged on its own, by
+        // '$skip' offsets or by a snapshot paging of its own
+        Edm edm = successFactorsService.getSuccessFactorsServiceEdm(planner.getEncodedServiceMetadata());
+        List<String> keyRanges = successFactorsService.probeKeyRanges(edm, recordsPerSplit, recordsToExtract,
+                                                                      planner);
+        partitions = partitionBuilder.buildKeyRangeSplits(keyRanges, recordsToExtract, recordsPerSplit);
+      } else if (serverSide) {
+        partitions = getServerSideSplits(recordsToExtract);
+      } else {
+        partitions = partitionBuilder.buildSplits(recordsToExtract, recordsPerSplit);
+      }
     }
+    context.getMetrics().gauge(SuccessFactorsReadProgress.EXPECTED_RECORDS_METRIC, recordsToExtract);
+
+    setJobForDataRead(context, outputSchema, partitions, planner, recordLimit);
+  }
 
-    setJobForDataRead(context, outputSchema, partitions, successFactorsService);
+  /**
+   * Plans the single split of server side pagination, paging through all the records.
+   *
+   * @param recordsToExtract number of records to extract
+   * @return list of {@code SuccessFactorsInputSplit}
+   */
+  private List<SuccessFactorsInputSplit> getServerSideSplits(long recordsToExtract) {
+    // the single split covers the planned records, for the record reader to report its progress against
+    List<SuccessFactorsInputSplit> partitions = new ArrayList<>();
+    partitions.add(new SuccessFactorsInputSplit(1, recordsToExtract, 0));
+    return partitions;
+  }
+
+  /**
+   * Plans the splits of the configured partition filters, with both client and server side pagination, holding the
+   * records counted for their partition.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param planner               {@code SuccessFactorsRunPlanner} running the metadata call
+   * @param recordsToExtract      number of records to extract
+   * @param recordLimit           maximum number of records to extract, null if there is no limit
+   * @return list of {@code SuccessFactorsInputSplit}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   * @throws IOException                    if a record count can not be read.
+   */
+  private List<SuccessFactorsInputSplit> getPartitionFilterSplits(SuccessFactorsService successFactorsService,
+                                                                  SuccessFactorsRunPlanner planner,
+                                                                  long recordsToExtract, @Nullable Long recordLimit)
+    throws TransportException, SuccessFactorsServiceException, IOException {
+    Map<String, Long> partitionFilters = new LinkedHashMap<>();
+    for (String partitionFilter : config.getPartitionFilters()) {
+      partitionFilters.put(partitionFilter, successFactorsService.getRecordCount(partitionFilter));
+    }
+    long recordsPerSplit = getRecordsPerSplit(successFactorsService, planner, recordsToExtract);
+    return new SuccessFactorsPartitionBuilder().buildFilterSplits(partitionFilters, recordLimit, recordsPerSplit,
+                                                                  !SERVER_SIDE.equals(config.getPaginationType()));
+  }
+
+  /**
+   * Plans the splits of the time windows of the configured time window property, with both client and server side
+   * pagination.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param planner               {@code SuccessFactorsRunPlanner} running the metadata and '$count' calls
+   * @param availableRowCount     number of available records
+   * @param recordsToExtract      number of records to extract
+   * @param recordLimit           maximum number of records to extract, null if there is no limit
+   * @return list of {@code SuccessFactorsInputSplit}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   * @throws IOException                    if a record count can not be read.
+   */
+  private List<SuccessFactorsInputSplit> getTimeWindowSplits(SuccessFactorsService successFactorsService,
+                                                             SuccessFactorsRunPlanner planner, long availableRowCount,
+                                                             long recordsToExtract, @Nullable Long recordLimit)
+    throws TransportException, SuccessFactorsServiceException, IOException {
+    long recordsPerSplit = getRecordsPerSplit(successFactorsService, planner, recordsToExtract);
+    Edm edm = successFactorsService.getSuccessFactorsServiceEdm(planner.getEncodedServiceMetadata());
+    SuccessFactorsTimeWindowPlanner windowPlanner =
+      new SuccessFactorsTimeWindowPlanner(successFactorsService, edm, config.getEntityName(),
+                                          config.getTimeWindowProperty());
+    Map<String, Long> windows = windowPlanner.plan(availableRowCount, recordsPerSplit, planner);
+    return new SuccessFactorsPartitionBuilder().buildFilterSplits(windows, recordLimit, recordsPerSplit,
+                                                                  !SERVER_SIDE.equals(config.getPaginationType()));
+  }
+
+  /**
+   * Returns the number of records in split meeting the target parallelism and split size, the size of the records
+   * being estimated from a probe page if a split size is targeted.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param planner               {@code SuccessFactorsRunPlanner} running the metadata call
+   * @param recordsToExtract      number of records to extract
+   * @return maximum number of records in split
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  private long getRecordsPerSplit(SuccessFactorsService successFactorsService, SuccessFactorsRunPlanner planner,
+                                  long recordsToExtract) throws TransportException, SuccessFactorsServiceException {
+    Long targetSplitBytes = config.getTargetSplitBytes();
+    long bytesPerRecord = 0;
+    if (targetSplitBytes != null && recordsToExtract > 0) {
+      Edm edm = successFactorsService.getSuccessFactorsServiceEdm(planner.getEncodedServiceMetadata());
+      bytesPerRecord = successFactorsService.probeBytesPerRecord(edm, Math.min(recordsToExtract, PROBE_RECORDS));
+    }
+    long recordsPerSplit = SuccessFactorsPartitionBuilder.getRecordsPerSplit(
+      recordsToExtract, config.getTargetParallelism(), targetSplitBytes, bytesPerRecord);
+    LOG.debug("Planned {} records per split, at {} bytes per record.", recordsPerSplit, bytesPerRecord);
+    return recordsPerSplit;
+  }
+
+  /**
+   * Returns the maximum number of records to be extracted in this run. In preview mode the configured
+   * 'Maximum Records' is further capped to the number of records the preview can show.
+   *
+   * @param context {@code BatchSourceContext}
+   * @return maximum number of records to extract or null if all the available records are to be extracted.
+   */
+  @Nullable
+  private Long getRecordLimit(BatchSourceContext context) {
+    Long recordLimit = config.getMaxRecords();
+    if (context.isPreviewEnabled() && context.getMaxPreviewRecords() > 0) {
+      long previewLimit = context.getMaxPreviewRecords();
+      recordLimit = recordLimit == null ? previewLimit : Math.min(recordLimit, previewLimit);
+    }
+    return recordLimit;
   }
 
   /**
@@ -222,14 +436,15 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
    * @param context
    * @param outputSchema
    * @param partitions
-   * @param successFactorsService
+   * @param planner               {@code SuccessFactorsRunPlanner} running the metadata call
+   * @param recordLimit           maximum number of records to extract, null if there is no limit
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
    * @throws IOException                    any IO exception occurs during the Hadoop Job instance creation.
    */
   private void setJobForDataRead(BatchSourceContext context, Schema outputSchema, List<SuccessFactorsInputSplit>
     partitions,
-                                 SuccessFactorsService successFactorsService)
+                                 SuccessFactorsRunPlanner planner, @Nullable Long recordLimit)
     throws TransportException, SuccessFactorsServiceException, IOException {
 
     Configuration jobConfiguration;
@@ -237,24 +452,42 @@ public class SuccessFactorsSource extends BatchSource<LongWritable, StructuredRe
     jobConfiguration = job.getConfiguration();
     Gson gson = new Gson();
 
-    // Set plugin properties in Hadoop Job's configuration
-    jobConfiguration.set(SuccessFactorsInputFormat.SUCCESSFACTORS_PLUGIN_PROPERTIES, gson.toJson(config));
-
     // Serialize the list of partitions to save in Hadoop Configuration
     jobConfiguration.set(SuccessFactorsInputFormat.PARTITIONS_PROPERTY, gson.toJson(partitions));
 
-    // Setting plugin output schema
-    jobConfiguration.set(OUTPUT_SCHEMA, outputSchema.toString());
-
-    // Serialize the SuccessFactors metadata to save in Hadoop Configuration
-    String metadataString = successFactorsService.getEncodedServiceMetadata();
-    jobConfiguration.set(SuccessFactorsInputFormat.ENCODED_ENTITY_METADATA_STRING, metadataString);
+    // Compile everything the record readers need into a single plan, which is hydrated once per executor.
+    // Server-side paging has no split plan to cap, so the reader stops paging once the limit is reached
+    SuccessFactorsReadPlan readPlan = new SuccessFactorsReadPlan(config, outputSchema,
+                                                                 planner.getEncodedServiceMetadata(), recordLimit,
+                                                                 context.getStageName());
+    jobConfiguration.set(SuccessFactorsInputFormat.READ_PLAN_PROPERTY, readPlan.serialize());
+    runId = readPlan.getRunId();
+    context.getArguments().set(RUN_ID_ARGUMENT + context.getStageName(), runId);
 
     SourceInputFormatProvider inputFormat = new SourceInputFormatProvider(SuccessFactorsInputFormat.class,
                                                                           jobConfiguration);
     context.setInput(Input.of(config.getReferenceName(), inputFormat));
   }
 
+  @Override
+  public void destroy() {
+    if (readerMetrics != null) {
+      // the metrics of the last pages read since the previous emission
+      readerMetrics.emit(metrics);
+      readerMetrics.release();
+    }
+    super.destroy();
+  }
+
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (runId != null && config.getPageCacheBytes() != null) {
+      // the pages cached by the readers running in this JVM, the executors delete theirs as they exit
+      SuccessFactorsPageCache.deleteRun(runId);
+    }
+  }
+
   private void emitLineage(BatchSourceContext context, Schema schema, String entity) {
 
     LineageRecorder lineageRecorder = new LineageRecorder(context, config.getReferenceName());
@@ -31,7 +31,11 @@ import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
 import io.cdap.plugin.successfactors.connector.SuccessFactorsConnectorConfig;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -51,9 +55,44 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
   private static final String PAGINATION_TYPE = "paginationType";
   public static final String EXPAND_OPTION = "expandOption";
   public static final String ADDITIONAL_QUERY_PARAMETERS = "additionalQueryParameters";
+  public static final String MAX_RECORDS = "maxRecords";
+  public static final String KEYSET_PAGINATION = "keyset";
+  public static final String ORDER_BY_KEY = "orderByKey";
+  public static final String DIRECT_DECODING = "directDecoding";
+  public static final String PIPELINED_READ = "pipelinedRead";
+  public static final String PREFETCH_DEPTH = "prefetchDepth";
+  public static final int DEFAULT_PREFETCH_DEPTH = 1;
+  public static final String PAGE_CONCURRENCY = "pageConcurrency";
+  public static final int DEFAULT_PAGE_CONCURRENCY = 1;
+  public static final String UNORDERED_READ = "unorderedRead";
+  public static final String MAX_REQUESTS_PER_SECOND = "maxRequestsPerSecond";
+  public static final String READER_MEMORY_BUDGET = "readerMemoryBudget";
+  public static final String PAGE_CACHE_SIZE = "pageCacheSize";
+  public static final String ADAPTIVE_PAGE_SIZE = "adaptivePageSize";
+  public static final String ERROR_TOLERANT_READ = "errorTolerantRead";
+  public static final String TARGET_PARALLELISM = "targetParallelism";
+  public static final String TARGET_SPLIT_SIZE = "targetSplitSize";
+  public static final String KEY_RANGE_PARTITIONING = "keyRangePartitioning";
+  public static final String TIME_WINDOW_PROPERTY = "timeWindowProperty";
+  public static final String PARTITION_FILTERS = "partitionFilters";
   private static final String COMMON_ACTION = ResourceConstants.ERR_MISSING_PARAM_OR_MACRO_ACTION.getMsgForKey();
   private static final Pattern PATTERN = Pattern.compile("\\(.*\\)");
   private static final String SAP_SUCCESSFACTORS_ENTITY_NAME = "Entity Name";
+  private static final String SAP_SUCCESSFACTORS_MAX_RECORDS = "Maximum Records";
+  private static final String SAP_SUCCESSFACTORS_PREFETCH_DEPTH = "Prefetch Depth";
+  private static final String SAP_SUCCESSFACTORS_PAGE_CONCURRENCY = "Page Concurrency";
+  private static final String SAP_SUCCESSFACTORS_MAX_REQUESTS_PER_SECOND = "Maximum Requests Per Second";
+  private static final String SAP_SUCCESSFACTORS_READER_MEMORY_BUDGET = "Reader Memory Budget";
+  private static final String SAP_SUCCESSFACTORS_PAGE_CACHE_SIZE = "Page Cache Size";
+  private static final String SAP_SUCCESSFACTORS_TARGET_PARALLELISM = "Target Parallelism";
+  private static final String SAP_SUCCESSFACTORS_TARGET_SPLIT_SIZE = "Target Split Size";
+  private static final String SAP_SUCCESSFACTORS_KEYSET_PAGINATION = "Client-side (Keyset) Pagination";
+  private static final String SAP_SUCCESSFACTORS_ORDER_BY_KEY = "Order By Key";
+  private static final String SAP_SUCCESSFACTORS_UNORDERED_READ = "Unordered Read";
+  private static final String SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING = "Key Range Partitioning";
+  private static final String SAP_SUCCESSFACTORS_TIME_WINDOW_PROPERTY = "Time Window Property";
+  private static final String SAP_SUCCESSFACTORS_PARTITION_FILTERS = "Partition Filters";
+  private static final long BYTES_PER_MB = 1024L * 1024L;
 
   @Macro
   @Name(ENTITY_NAME)
@@ -97,6 +136,137 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     "Multiple parameters can be added as separated by '&' sign. e.g. fromDate=2023-01-01&toDate=2023-01-31")
   private final String additionalQueryParameters;
 
+  @Name(MAX_RECORDS)
+  @Nullable
+  @Macro
+  @Description("Maximum number of records to be extracted. The split plan, the '$top' of the last batch and the " +
+    "server-side paging are all capped to this value. If left blank, all the available records are extracted.")
+  private Long maxRecords;
+
+  @Name(ORDER_BY_KEY)
+  @Nullable
+  @Macro
+  @Description("Whether to order the records by the entity key properties with client-side pagination. A stable " +
+    "'$orderby' keeps the '$skip' windows of the parallel splits from returning duplicated or missing records. " +
+    "Default is false.")
+  private Boolean orderByKey;
+
+  @Name(DIRECT_DECODING)
+  @Nullable
+  @Macro
+  @Description("Whether to decode the fetched JSON entries straight to the output records, without building the " +
+    "intermediate OData entries. Falls back to the OData entries if the output schema contains a field which can " +
+    "not be decoded directly. Default is false.")
+  private Boolean directDecoding;
+
+  @Name(PIPELINED_READ)
+  @Nullable
+  @Macro
+  @Description("Whether to fetch, parse and transform the pages of a split in separate stages running concurrently, " +
+    "instead of one after another. The records are emitted in the same order. Default is false.")
+  private Boolean pipelinedRead;
+
+  @Name(PREFETCH_DEPTH)
+  @Nullable
+  @Macro
+  @Description("Maximum number of pages of a split downloaded ahead of the page being read, 0 to download the next " +
+    "page once the current one is read. Default is 1.")
+  private Integer prefetchDepth;
+
+  @Name(PAGE_CONCURRENCY)
+  @Nullable
+  @Macro
+  @Description("Number of '$skip/$top' windows of a split downloaded in parallel with Client-side Pagination. " +
+    "Default is 1.")
+  private Integer pageConcurrency;
+
+  @Name(UNORDERED_READ)
+  @Nullable
+  @Macro
+  @Description("Whether to emit the windows of a split downloaded in parallel as they complete, instead of in the " +
+    "'$skip' order. Default is false.")
+  private Boolean unorderedRead;
+
+  @Name(MAX_REQUESTS_PER_SECOND)
+  @Nullable
+  @Macro
+  @Description("Maximum number of requests per second sent to the SuccessFactors service by all the readers running " +
+    "in the same executor with the same value. Readers configured with another value have a limit of their own. " +
+    "No limit if not provided.")
+  private Integer maxRequestsPerSecond;
+
+  @Name(READER_MEMORY_BUDGET)
+  @Nullable
+  @Macro
+  @Description("Maximum memory in megabytes held by the downloaded pages and parsed records of a split. Once " +
+    "reached, fewer pages are downloaded ahead and in parallel, and smaller pages are requested with Client-side " +
+    "Pagination. No limit if not provided.")
+  private Integer readerMemoryBudget;
+
+  @Name(PAGE_CACHE_SIZE)
+  @Nullable
+  @Macro
+  @Description("Maximum size in megabytes of the pages cached on the local disk of every executor, so that the " +
+    "speculative and retried attempts of a split read the pages already downloaded by another attempt. The least " +
+    "recently used pages are evicted once full, and the cache is deleted at the end of the run. No page is cached if " +
+    "not provided.")
+  private Integer pageCacheSize;
+
+  @Name(ADAPTIVE_PAGE_SIZE)
+  @Nullable
+  @Macro
+  @Description("Whether to halve the number of records of a client side page that times out or fails with a server " +
+    "error and request it again, growing the page size back up to the package size while the pages are fast to " +
+    "download. Default is false.")
+  private Boolean adaptivePageSize;
+
+  @Name(ERROR_TOLERANT_READ)
+  @Nullable
+  @Macro
+  @Description("Whether to bisect a client side page whose records fail to be parsed until the invalid records are " +
+    "requested alone, and send them to the error output with their raw JSON instead of failing the pipeline. " +
+    "Default is false.")
+  private Boolean errorTolerantRead;
+
+  @Name(TARGET_PARALLELISM)
+  @Nullable
+  @Macro
+  @Description("Minimum number of splits the records are spread over with Client-side Pagination, instead of 10000 " +
+    "records per split.")
+  private Integer targetParallelism;
+
+  @Name(TARGET_SPLIT_SIZE)
+  @Nullable
+  @Macro
+  @Description("Maximum size in megabytes of a split with Client-side Pagination, instead of 10000 records per " +
+    "split. The size of the records is estimated from a probe page downloaded while planning the splits.")
+  private Integer targetSplitSize;
+
+  @Name(KEY_RANGE_PARTITIONING)
+  @Nullable
+  @Macro
+  @Description("Whether to split the records by ranges of the key instead of '$skip' offsets, the boundary keys " +
+    "being probed one per split, in parallel, while planning the splits. Every split is then read with its own " +
+    "'$filter' on the key, with server side pagination by a snapshot paging of its own. Default is false.")
+  private Boolean keyRangePartitioning;
+
+  @Name(TIME_WINDOW_PROPERTY)
+  @Nullable
+  @Macro
+  @Description("Date time property of the entity, e.g. 'lastModifiedDateTime', to split the records into '$filter' " +
+    "time windows on, instead of '$skip' offsets. The windows are bisected with '$count' calls while planning the " +
+    "splits until they hold roughly the same number of records. Applies to both client and server side pagination.")
+  private String timeWindowProperty;
+
+  @Name(PARTITION_FILTERS)
+  @Nullable
+  @Macro
+  @Description("Disjoint filter conditions, one per line, e.g. \"country eq 'DE'\" and \"country ne 'DE'\", each " +
+    "read by its own split and combined with the filter options, instead of '$skip' offsets. Applies to both client " +
+    "and server side pagination, every split then running its own snapshot paging. Together, the conditions must " +
+    "select every record to extract, and no record twice.")
+  private String partitionFilters;
+
   /**
    * Basic parameters.
    */
@@ -114,7 +284,9 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
   @Macro
   @Description("The type of pagination to be used. Server-side Pagination uses snapshot-based pagination. " +
     "If snapshot-based pagination is attempted on an entity that doesn’t support the feature, the server " +
-    "automatically forces client offset pagination on the query.y. Default is Server-side Pagination.")
+    "automatically forces client offset pagination on the query.y. Client-side (Keyset) Pagination orders the " +
+    "records by the entity key and requests every subsequent page with a '$filter' on the last read key instead " +
+    "of a deep '$skip' offset. Default is Server-side Pagination.")
   private String paginationType;
 
   @Name(ConfigUtil.NAME_USE_CONNECTION)
@@ -205,11 +377,148 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     return this.paginationType;
   }
 
+  /**
+   * @return true if the client side pages are to be requested by the last read key instead of the '$skip' offset.
+   */
+  public boolean isKeysetPagination() {
+    return KEYSET_PAGINATION.equals(this.paginationType);
+  }
+
   @Nullable
   public String getAdditionalQueryParameters() {
     return this.additionalQueryParameters;
   }
 
+  @Nullable
+  public Long getMaxRecords() {
+    return this.maxRecords;
+  }
+
+  /**
+   * @return true if the data URLs are to be ordered by the entity key properties.
+   */
+  public boolean isOrderByKey() {
+    return Boolean.TRUE.equals(this.orderByKey);
+  }
+
+  /**
+   * @return true if the JSON entries are to be decoded straight to the output records.
+   */
+  public boolean isDirectDecoding() {
+    return Boolean.TRUE.equals(this.directDecoding);
+  }
+
+  /**
+   * @return true if the pages are to be fetched, parsed and transformed by concurrent stages.
+   */
+  public boolean isPipelinedRead() {
+    return Boolean.TRUE.equals(this.pipelinedRead);
+  }
+
+  /**
+   * @return maximum number of pages of a split downloaded ahead of the page being read.
+   */
+  public int getPrefetchDepth() {
+    return prefetchDepth == null ? DEFAULT_PREFETCH_DEPTH : prefetchDepth;
+  }
+
+  /**
+   * @return number of windows of a split downloaded in parallel.
+   */
+  public int getPageConcurrency() {
+    return pageConcurrency == null ? DEFAULT_PAGE_CONCURRENCY : pageConcurrency;
+  }
+
+  /**
+   * @return true if the windows of a split are emitted as they complete.
+   */
+  public boolean isUnorderedRead() {
+    return Boolean.TRUE.equals(this.unorderedRead);
+  }
+
+  /**
+   * @return maximum number of requests per second sent by the readers of the executor, or null if not limited.
+   */
+  @Nullable
+  public Integer getMaxRequestsPerSecond() {
+    return maxRequestsPerSecond;
+  }
+
+  /**
+   * @return maximum number of bytes held by the record reader of a split, or null if not limited.
+   */
+  @Nullable
+  public Long getReaderMemoryBudgetBytes() {
+    return readerMemoryBudget == null ? null : readerMemoryBudget * BYTES_PER_MB;
+  }
+
+  /**
+   * @return maximum number of bytes of the pages cached by an executor, or null if the pages are not cached.
+   */
+  @Nullable
+  public Long getPageCacheBytes() {
+    return pageCacheSize == null ? null : pageCacheSize * BYTES_PER_MB;
+  }
+
+  /**
+   * @return true if the number of records of the client side pages adapts to the response times of the service.
+   */
+  public boolean isAdaptivePageSize() {
+    return Boolean.TRUE.equals(this.adaptivePageSize);
+  }
+
+  /**
+   * @return true if the records failing to be parsed are sent to the error output.
+   */
+  public boolean isErrorTolerantRead() {
+    return Boolean.TRUE.equals(this.errorTolerantRead);
+  }
+
+  /**
+   * @return minimum number of splits, or null if the splits are not planned from a target parallelism.
+   */
+  @Nullable
+  public Integer getTargetParallelism() {
+    return targetParallelism;
+  }
+
+  /**
+   * @return maximum number of bytes of a split, or null if the splits are not planned from a target split size.
+   */
+  @Nullable
+  public Long getTargetSplitBytes() {
+    return targetSplitSize == null ? null : targetSplitSize * BYTES_PER_MB;
+  }
+
+  /**
+   * @return true if the splits are planned from ranges of the key, closed by the keys probed at their last record.
+   */
+  public boolean isKeyRangePartitioning() {
+    return Boolean.TRUE.equals(this.keyRangePartitioning);
+  }
+
+  /**
+   * @return date time property to plan the time windows on, or null if the splits are not planned from time windows.
+   */
+  @Nullable
+  public String getTimeWindowProperty() {
+    return SuccessFactorsUtil.isNullOrEmpty(timeWindowProperty) ? null : timeWindowProperty.trim();
+  }
+
+  /**
+   * @return filter conditions of the user defined partitions, one per line, or an empty list if the splits are not
+   * planned from them.
+   */
+  public List<String> getPartitionFilters() {
+    if (SuccessFactorsUtil.isNullOrEmpty(partitionFilters)) {
+      return Collections.emptyList();
+    }
+    return Arrays.stream(partitionFilters.split("[\n\r]+"))
+      .map(String::trim)
+      .filter(filter -> !filter.isEmpty())
+      .collect(Collectors.toList());
+  }
+
   /**
    * Checks if the call to SuccessFactors service is required for metadata creation.
    * condition parameters: ['host' | 'serviceName' | 'entityName' | 'username' | 'password']
@@ -243,9 +552,72 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     validateMandatoryParameters(failureCollector);
     validateBasicCredentials(failureCollector);
     validateEntityParameter(failureCollector);
+    validateMaxRecords(failureCollector);
+    validatePrefetchDepth(failureCollector);
+    validatePositiveParameter(pageConcurrency, PAGE_CONCURRENCY, SAP_SUCCESSFACTORS_PAGE_CONCURRENCY,
+                              failureCollector);
+    validatePositiveParameter(maxRequestsPerSecond, MAX_REQUESTS_PER_SECOND,
+                              SAP_SUCCESSFACTORS_MAX_REQUESTS_PER_SECOND, failureCollector);
+    validatePositiveParameter(readerMemoryBudget, READER_MEMORY_BUDGET, SAP_SUCCESSFACTORS_READER_MEMORY_BUDGET,
+                              failureCollector);
+    validatePositiveParameter(pageCacheSize, PAGE_CACHE_SIZE, SAP_SUCCESSFACTORS_PAGE_CACHE_SIZE, failureCollector);
+    validatePositiveParameter(targetParallelism, TARGET_PARALLELISM, SAP_SUCCESSFACTORS_TARGET_PARALLELISM,
+                              failureCollector);
+    validatePositiveParameter(targetSplitSize, TARGET_SPLIT_SIZE, SAP_SUCCESSFACTORS_TARGET_SPLIT_SIZE,
+                              failureCollector);
+    validatePartitioning(failureCollector);
     failureCollector.getOrThrowException();
   }
 
+  /**
+   * Checks that at most one of 'Partition Filters', 'Time Window Property' and 'Key Range Partitioning' is used, and
+   * that 'Key Range Partitioning' is used neither with keyset pagination, 'Order By Key' nor 'Unordered Read'.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  public void validatePartitioning(FailureCollector failureCollector) {
+    boolean partitionFilters = !containsMacro(PARTITION_FILTERS) && !getPartitionFilters().isEmpty();
+    boolean timeWindow = !containsMacro(TIME_WINDOW_PROPERTY) && getTimeWindowProperty() != null;
+    boolean keyRange = !containsMacro(KEY_RANGE_PARTITIONING) && isKeyRangePartitioning();
+    if (partitionFilters && timeWindow) {
+      addConflictFailure(PARTITION_FILTERS, SAP_SUCCESSFACTORS_PARTITION_FILTERS, TIME_WINDOW_PROPERTY,
+                         SAP_SUCCESSFACTORS_TIME_WINDOW_PROPERTY, failureCollector);
+    }
+    if (partitionFilters && keyRange) {
+      addConflictFailure(PARTITION_FILTERS, SAP_SUCCESSFACTORS_PARTITION_FILTERS, KEY_RANGE_PARTITIONING,
+                         SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING, failureCollector);
+    }
+    if (timeWindow && keyRange) {
+      addConflictFailure(TIME_WINDOW_PROPERTY, SAP_SUCCESSFACTORS_TIME_WINDOW_PROPERTY, KEY_RANGE_PARTITIONING,
+                         SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING, failureCollector);
+    }
+    if (!keyRange) {
+      return;
+    }
+    if (!containsMacro(PAGINATION_TYPE) && isKeysetPagination()) {
+      addConflictFailure(KEY_RANGE_PARTITIONING, SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING, PAGINATION_TYPE,
+                         SAP_SUCCESSFACTORS_KEYSET_PAGINATION, failureCollector);
+    }
+    if (!containsMacro(ORDER_BY_KEY) && isOrderByKey()) {
+      addConflictFailure(KEY_RANGE_PARTITIONING, SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING, ORDER_BY_KEY,
+                         SAP_SUCCESSFACTORS_ORDER_BY_KEY, failureCollector);
+    }
+    if (!containsMacro(UNORDERED_READ) && isUnorderedRead()) {
+      addConflictFailure(KEY_RANGE_PARTITIONING, SAP_SUCCESSFACTORS_KEY_RANGE_PARTITIONING, UNORDERED_READ,
+                         SAP_SUCCESSFACTORS_UNORDERED_READ, failureCollector);
+    }
+  }
+
+  /**
+   * Reports the given parameters, which can not be used together, on both parameters.
+   */
+  private static void addConflictFailure(String name, String label, String otherName, String otherLabel,
+                                         FailureCollector failureCollector) {
+    String errMsg = ResourceConstants.ERR_CONFLICTING_PARAMS.getMsgForKey(label, otherLabel);
+    failureCollector.addFailure(errMsg, ResourceConstants.ERR_CONFLICTING_PARAMS_ACTION.getMsgForKey())
+      .withConfigProperty(name).withConfigProperty(otherName);
+  }
+
   /**
    * Validates the mandatory parameters.
    *
@@ -292,6 +664,49 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     }
   }
 
+  /**
+   * Checks that the 'Maximum Records' value, if provided, is a positive number.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validateMaxRecords(FailureCollector failureCollector) {
+    if (maxRecords != null && !containsMacro(MAX_RECORDS) && maxRecords <= 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey(SAP_SUCCESSFACTORS_MAX_RECORDS);
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_POSITIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(MAX_RECORDS);
+    }
+  }
+
+  /**
+   * Checks that the 'Prefetch Depth' value, if provided, is not a negative number.
+   *
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validatePrefetchDepth(FailureCollector failureCollector) {
+    if (prefetchDepth != null && !containsMacro(PREFETCH_DEPTH) && prefetchDepth < 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey(SAP_SUCCESSFACTORS_PREFETCH_DEPTH);
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_NON_NEGATIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(PREFETCH_DEPTH);
+    }
+  }
+
+  /**
+   * Checks that the given parameter value, if provided, is a positive number.
+   *
+   * @param value            parameter value
+   * @param name             parameter name
+   * @param label            parameter label used in the error message
+   * @param failureCollector {@code FailureCollector}
+   */
+  private void validatePositiveParameter(@Nullable Integer value, String name, String label,
+                                         FailureCollector failureCollector) {
+    if (value != null && !containsMacro(name) && value <= 0) {
+      String errMsg = ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey(label);
+      failureCollector.addFailure(errMsg, ResourceConstants.ERR_POSITIVE_PARAM_ACTION.getMsgForKey())
+        .withConfigProperty(name);
+    }
+  }
+
   /**
    * Helper class to simplify {@link SuccessFactorsPluginConfig} class creation.
    */
@@ -310,6 +725,23 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
     private String proxyUrl;
     private String proxyUsername;
     private String proxyPassword;
+    private Long maxRecords;
+    private Boolean orderByKey;
+    private Boolean directDecoding;
+    private Boolean pipelinedRead;
+    private Integer prefetchDepth;
+    private Integer pageConcurrency;
+    private Boolean unorderedRead;
+    private Integer maxRequestsPerSecond;
+    private Integer readerMemoryBudget;
+    private Integer pageCacheSize;
+    private Boolean adaptivePageSize;
+    private Boolean errorTolerantRead;
+    private Integer targetParallelism;
+    private Integer targetSplitSize;
+    private Boolean keyRangePartitioning;
+    private String timeWindowProperty;
+    private String partitionFilters;
 
     public Builder referenceName(String referenceName) {
       this.referenceName = referenceName;
@@ -379,11 +811,115 @@ public class SuccessFactorsPluginConfig extends PluginConfig {
       return this;
     }
 
+    public Builder maxRecords(@Nullable Long maxRecords) {
+      this.maxRecords = maxRecords;
+      return this;
+    }
+
+    public Builder orderByKey(@Nullable Boolean orderByKey) {
+      this.orderByKey = orderByKey;
+      return this;
+    }
+
+    public Builder directDecoding(@Nullable Boolean directDecoding) {
+      this.directDecoding = directDecoding;
+      return this;
+    }
+
+    public Builder pipelinedRead(@Nullable Boolean pipelinedRead) {
+      this.pipelinedRead = pipelinedRead;
+      return this;
+    }
+
+    public Builder prefetchDepth(@Nullable Integer prefetchDepth) {
+      this.prefetchDepth = prefetchDepth;
+      return this;
+    }
+
+    public Builder pageConcurrency(@Nullable Integer pageConcurrency) {
+      this.pageConcurrency = pageConcurrency;
+      return this;
+    }
+
+    public Builder unorderedRead(@Nullable Boolean unorderedRead) {
+      this.unorderedRead = unorderedRead;
+      return this;
+    }
+
+    public Builder maxRequestsPerSecond(@Nullable Integer maxRequestsPerSecond) {
+      this.maxRequestsPerSecond = maxRequestsPerSecond;
+      return this;
+    }
+
+    public Builder readerMemoryBudget(@Nullable Integer readerMemoryBudget) {
+      this.readerMemoryBudget = readerMemoryBudget;
+      return this;
+    }
+
+    public Builder pageCacheSize(@Nullable Integer pageCacheSize) {
+      this.pageCacheSize = pageCacheSize;
+      return this;
+    }
+
+    public Builder adaptivePageSize(@Nullable Boolean adaptivePageSize) {
+      this.adaptivePageSize = adaptivePageSize;
+      return this;
+    }
+
+    public Builder errorTolerantRead(@Nullable Boolean errorTolerantRead) {
+      this.errorTolerantRead = errorTolerantRead;
+      return this;
+    }
+
+    public Builder targetParallelism(@Nullable Integer targetParallelism) {
+      this.targetParallelism = targetParallelism;
+      return this;
+    }
+
+    public Builder targetSplitSize(@Nullable Integer targetSplitSize) {
+      this.targetSplitSize = targetSplitSize;
+      return this;
+    }
+
+    public Builder keyRangePartitioning(@Nullable Boolean keyRangePartitioning) {
+      this.keyRangePartitioning = keyRangePartitioning;
+      return this;
+    }
+
+    public Builder timeWindowProperty(@Nullable String timeWindowProperty) {
+      this.timeWindowProperty = timeWindowProperty;
+      return this;
+    }
+
+    public Builder partitionFilters(@Nullable String partitionFilters) {
+      this.partitionFilters = partitionFilters;
+      return this;
+    }
+
     public SuccessFactorsPluginConfig build() {
-      return new SuccessFactorsPluginConfig(referenceName, baseURL, entityName, associateEntityName, username,
-                                            password, proxyUrl, proxyUsername, proxyPassword,
-                                            filterOption, selectOption, expandOption, additionalQueryParameters,
-                                            paginationType);
+      SuccessFactorsPluginConfig pluginConfig =
+        new SuccessFactorsPluginConfig(referenceName, baseURL, entityName, associateEntityName, username,
+                                       password, proxyUrl, proxyUsername, proxyPassword,
+                                       filterOption, selectOption, expandOption, additionalQueryParameters,
+                                       paginationType);
+      pluginConfig.maxRecords = maxRecords;
+      pluginConfig.orderByKey = orderByKey;
+      pluginConfig.directDecoding = directDecoding;
+      pluginConfig.pipelinedRead = pipelinedRead;
+      pluginConfig.prefetchDepth = prefetchDepth;
+      pluginConfig.pageConcurrency = pageConcurrency;
+      pluginConfig.unorderedRead = unorderedRead;
+      pluginConfig.maxRequestsPerSecond = maxRequestsPerSecond;
+      pluginConfig.readerMemoryBudget = readerMemoryBudget;
+      pluginConfig.pageCacheSize = pageCacheSize;
+      pluginConfig.adaptivePageSize = adaptivePageSize;
+      pluginConfig.errorTolerantRead = errorTolerantRead;
+      pluginConfig.targetParallelism = targetParallelism;
+      pluginConfig.targetSplitSize = targetSplitSize;
+      pluginConfig.keyRangePartitioning = keyRangePartitioning;
+      pluginConfig.timeWindowProperty = timeWindowProperty;
+      pluginConfig.partitionFilters = partitionFilters;
+      return pluginConfig;
     }
   }
 }
@@ -19,12 +19,6 @@ package io.cdap.plugin.successfactors.source.input;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
-import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
-import io.cdap.plugin.successfactors.source.SuccessFactorsSource;
-import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
-import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
 import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordReader;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
@@ -33,7 +27,6 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.olingo.odata2.api.edm.Edm;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -45,9 +38,8 @@ import java.util.Objects;
  */
 public class SuccessFactorsInputFormat extends InputFormat<LongWritable, StructuredRecord> {
 
-  public static final String SUCCESSFACTORS_PLUGIN_PROPERTIES = "successFactorsPluginProperties";
+  public static final String READ_PLAN_PROPERTY = "readPlanProperty";
   public static final String PARTITIONS_PROPERTY = "partitionProperty";
-  public static final String ENCODED_ENTITY_METADATA_STRING = "encodedMetadataString";
   private static final String SERVER_SIDE = "serverSide";
   private static final Gson GSON = new Gson();
   private static final Type INPUT_SPLIT_TYPE = new TypeToken<List<SuccessFactorsInputSplit>>() {
@@ -73,30 +65,26 @@ public class SuccessFactorsInputFormat extends InputFormat<LongWritable, Structu
   @Override
   public RecordReader<LongWritable, StructuredRecord> createRecordReader(InputSplit split,
                                                                          TaskAttemptContext taContext)
-    throws IOException {
+    throws IOException, InterruptedException {
 
     SuccessFactorsInputSplit inputSplit = (SuccessFactorsInputSplit) split;
 
-    SuccessFactorsPluginConfig pluginConfig = GSON.fromJson(taContext.getConfiguration()
-      .get(SUCCESSFACTORS_PLUGIN_PROPERTIES), SuccessFactorsPluginConfig.class);
-
-    Schema outputSchema = Schema.parseJson(taContext.getConfiguration().get(SuccessFactorsSource.OUTPUT_SCHEMA));
-
-    String encodedMetadataString = taContext.getConfiguration().get(ENCODED_ENTITY_METADATA_STRING);
-
-    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
-
-    try {
-      Edm edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
-      if (!Objects.equals(pluginConfig.getPaginationType(), SERVER_SIDE)) {
-        return new SuccessFactorsRecordReader(successFactorsService, edmData, outputSchema, inputSplit.getStart(),
-                                              inputSplit.getEnd(), inputSplit.getBatchSize());
-      } else {
-        return new SuccessFactorsRecordReader(successFactorsService, edmData, outputSchema, null, null,
-                                              null);
+    // hydrated once per JVM, the record readers of the other splits share it
+    SuccessFactorsReadPlan readPlan = SuccessFactorsReadPlan.hydrate(taContext.getConfiguration()
+                                                                       .get(READ_PLAN_PROPERTY));
+
+    if (!Objects.equals(readPlan.getPluginConfig().getPaginationType(), SERVER_SIDE)) {
+      return new SuccessFactorsRecordReader(readPlan, inputSplit.getStart(), inputSplit.getEnd(),
+                                            inputSplit.getBatchSize(), null, null, inputSplit.getFilter());
+    } else {
+      // the server side split covers the records counted while planning, which the progress is measured against
+      Long maxRecords = readPlan.getMaxRecords();
+      if (maxRecords != null && inputSplit.getFilter() != null) {
+        // the partitions are planned up to the record limit, each split running its own snapshot paging
+        maxRecords = Math.min(maxRecords, inputSplit.getLength());
       }
-    } catch (SuccessFactorsServiceException e) {
-      throw new IOException(e.getMessage(), e);
+      return new SuccessFactorsRecordReader(readPlan, null, null, null, maxRecords, inputSplit.getLength(),
+                                            inputSplit.getFilter());
     }
   }
 }
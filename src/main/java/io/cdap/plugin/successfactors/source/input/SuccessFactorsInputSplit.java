@@ -22,11 +22,16 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import javax.annotation.Nullable;
 
 /**
  * This {@code SuccessFactorsInputSplit} holds a wrapper for partition details like start and end indices of
  * the records and static information like runtime Metadata which remains same
  * for all splits generated in this instance of InputFormat.
+ * <p>
+ * A split planned from a partition of the records, i.e. a range of the key, a time window or a user defined
+ * partition filter, carries the '$filter' condition of its partition, the start and end indices are then relative to
+ * the records of the partition.
  */
 public class SuccessFactorsInputSplit extends InputSplit implements Writable {
 
@@ -35,14 +40,22 @@ public class SuccessFactorsInputSplit extends InputSplit implements Writable {
   // Standard package size. A split may need multiple SAP network calls (batches),
   // and last batch may have lesser number of records than this packageSize
   private long batchSize;
+  // only set when the split is planned from a key range, a time window or a partition filter
+  @Nullable
+  private String filter;
 
   public SuccessFactorsInputSplit() {
   }
 
   public SuccessFactorsInputSplit(long start, long end, long batchSize) {
+    this(start, end, batchSize, null);
+  }
+
+  public SuccessFactorsInputSplit(long start, long end, long batchSize, @Nullable String filter) {
     this.start = start;
     this.end = end;
     this.batchSize = batchSize;
+    this.filter = filter;
   }
 
   @Override
@@ -60,6 +73,10 @@ public class SuccessFactorsInputSplit extends InputSplit implements Writable {
     out.writeLong(start);
     out.writeLong(end);
     out.writeLong(batchSize);
+    out.writeBoolean(filter != null);
+    if (filter != null) {
+      out.writeUTF(filter);
+    }
   }
 
   @Override
@@ -67,6 +84,7 @@ public class SuccessFactorsInputSplit extends InputSplit implements Writable {
     this.start = in.readLong();
     this.end = in.readLong();
     this.batchSize = in.readLong();
+    this.filter = in.readBoolean() ? in.readUTF() : null;
   }
 
   public long getStart() {
@@ -80,4 +98,13 @@ public class SuccessFactorsInputSplit extends InputSplit implements Writable {
   public long getBatchSize() {
     return batchSize;
   }
+
+  /**
+   * @return '$filter' condition of the key range, time window or partition filter of the split, or null if the split
+   * is planned from offsets of all the records.
+   */
+  @Nullable
+  public String getFilter() {
+    return filter;
+  }
 }
@@ -18,6 +18,8 @@ package io.cdap.plugin.successfactors.source.input;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * This {@code SuccessFactorsPartitionBuilder} will prepare the list of optimized splits containing start & end indices
@@ -28,10 +30,19 @@ import java.util.List;
  * <p>
  * If the total available record count is less than equal to 10000 then only 1 split will be created.
  * <p>
+ * The records in split can be planned from targets instead, see
+ * {@link #getRecordsPerSplit(long, Integer, Long, long)}:
+ * - target parallelism: the records are spread over at least the given number of splits.
+ * - target split size: every split holds at most the given bytes, at the size of the records of a probe page.
+ * <p>
+ * With key range partitioning, every split holds a range of the key instead of '$skip' offsets, see
+ * {@link #buildKeyRangeSplits(List, long, long)}, and with time window or user defined partitions the '$filter' of a
+ * partition, see {@link #buildFilterSplits(Map, Long, long, boolean)}. Either way, a split read with server side
+ * pagination runs its own snapshot paging, restricted to its range.
  */
 public class SuccessFactorsPartitionBuilder {
   public static final long MAX_ALLOWED_BATCH_SIZE = 1000L;
-  private static final long MAX_RECORDS_IN_SPLIT = 10000L;
+  public static final long MAX_RECORDS_IN_SPLIT = 10000L;
 
   /**
    * Builds the list of {@code SuccessFactorsInputSplit}
@@ -40,12 +51,23 @@ public class SuccessFactorsPartitionBuilder {
    * @return list of {@code SuccessFactorsInputSplit}
    */
   public List<SuccessFactorsInputSplit> buildSplits(long availableRecordCount) {
+    return buildSplits(availableRecordCount, MAX_RECORDS_IN_SPLIT);
+  }
+
+  /**
+   * Builds the list of {@code SuccessFactorsInputSplit} holding the given number of records each, but the last one.
+   *
+   * @param availableRecordCount available row count
+   * @param recordsPerSplit      maximum number of records in split
+   * @return list of {@code SuccessFactorsInputSplit}
+   */
+  public List<SuccessFactorsInputSplit> buildSplits(long availableRecordCount, long recordsPerSplit) {
 
     List<SuccessFactorsInputSplit> list = new ArrayList<>();
     long start = 1;
     // setting up the optimal split size and count values
     long batchSize = Math.min(availableRecordCount, MAX_ALLOWED_BATCH_SIZE);
-    long optimalLoadOnSplit = Math.min(availableRecordCount, MAX_RECORDS_IN_SPLIT);
+    long optimalLoadOnSplit = Math.min(availableRecordCount, recordsPerSplit);
     long optimalSplitCount = availableRecordCount / optimalLoadOnSplit +
       (availableRecordCount % optimalLoadOnSplit != 0 ? 1 : 0);
 
@@ -62,4 +84,94 @@ public class SuccessFactorsPartitionBuilder {
     }
     return list;
   }
+
+  /**
+   * Builds the list of {@code SuccessFactorsInputSplit} reading the given key ranges, which hold the given number of
+   * records each, but the last one. The start and end indices of a split are relative to the records of its range.
+   *
+   * @param keyRanges            filter conditions of the key ranges, in the key order
+   * @param availableRecordCount available row count
+   * @param recordsPerSplit      number of records in the key ranges
+   * @return list of {@code SuccessFactorsInputSplit}
+   */
+  public List<SuccessFactorsInputSplit> buildKeyRangeSplits(List<String> keyRanges, long availableRecordCount,
+                                                            long recordsPerSplit) {
+    if (keyRanges.isEmpty()) {
+      return buildSplits(availableRecordCount, recordsPerSplit);
+    }
+    List<SuccessFactorsInputSplit> list = new ArrayList<>();
+    for (int split = 0; split < keyRanges.size(); split++) {
+      long end = split < keyRanges.size() - 1 ? recordsPerSplit : availableRecordCount - split * recordsPerSplit;
+      list.add(new SuccessFactorsInputSplit(1, end, Math.min(end, MAX_ALLOWED_BATCH_SIZE), keyRanges.get(split)));
+    }
+    return list;
+  }
+
+  /**
+   * Builds the list of {@code SuccessFactorsInputSplit} reading the given partitions, e.g. time windows, holding the
+   * records counted for their partition. The start and end indices of a split are relative to the records of its
+   * partition. With a record limit, the partitions are read in order up to the limit.
+   * <p>
+   * The counts are fixed at planning time: with client side pagination a partition is read by '$skip' offsets, in
+   * splits of the given number of records sharing its '$filter', and a partition found empty has no split. With
+   * server side pagination a single split pages its partition to the end, so a partition found empty is still read.
+   *
+   * @param partitions      filter conditions of the partitions, in order, with their number of records
+   * @param recordLimit     maximum number of records to extract, null if there is no limit
+   * @param recordsPerSplit maximum number of records in split, with client side pagination
+   * @param clientSide      true if the splits are read with client side pagination
+   * @return list of {@code SuccessFactorsInputSplit}
+   */
+  public List<SuccessFactorsInputSplit> buildFilterSplits(Map<String, Long> partitions, @Nullable Long recordLimit,
+                                                          long recordsPerSplit, boolean clientSide) {
+    List<SuccessFactorsInputSplit> list = new ArrayList<>();
+    long remaining = recordLimit == null ? Long.MAX_VALUE : recordLimit;
+    for (Map.Entry<String, Long> partition : partitions.entrySet()) {
+      if (remaining <= 0) {
+        break;
+      }
+      long records = Math.min(partition.getValue(), remaining);
+      remaining -= records;
+      if (!clientSide) {
+        list.add(new SuccessFactorsInputSplit(1, records, Math.min(records, MAX_ALLOWED_BATCH_SIZE),
+                                              partition.getKey()));
+        continue;
+      }
+      // a window of a single instant or the window of the records without value may still hold many records
+      for (long start = 1; start <= records; start += recordsPerSplit) {
+        long end = Math.min(start - 1 + recordsPerSplit, records);
+        list.add(new SuccessFactorsInputSplit(start, end, Math.min(end - start + 1, MAX_ALLOWED_BATCH_SIZE),
+                                              partition.getKey()));
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns the number of records in split meeting the given targets, or the default records in split if no target
+   * is given. With both targets, the split count is the larger of the two, so that neither the parallelism nor the
+   * split size falls short of its target.
+   *
+   * @param availableRecordCount available row count
+   * @param targetParallelism    minimum number of splits, or null if not targeted
+   * @param targetSplitBytes     maximum size in bytes of a split, or null if not targeted
+   * @param bytesPerRecord       average size in bytes of the records, 0 if unknown
+   * @return maximum number of records in split
+   */
+  public static long getRecordsPerSplit(long availableRecordCount, @Nullable Integer targetParallelism,
+                                        @Nullable Long targetSplitBytes, long bytesPerRecord) {
+    boolean sizeTargeted = targetSplitBytes != null && bytesPerRecord > 0;
+    if (targetParallelism == null && !sizeTargeted) {
+      return MAX_RECORDS_IN_SPLIT;
+    }
+    long recordsPerSplit = Long.MAX_VALUE;
+    if (sizeTargeted) {
+      recordsPerSplit = Math.max(targetSplitBytes / bytesPerRecord, 1);
+    }
+    if (targetParallelism != null) {
+      long parallelRecords = (availableRecordCount + targetParallelism - 1) / targetParallelism;
+      recordsPerSplit = Math.min(recordsPerSplit, Math.max(parallelRecords, 1));
+    }
+    return recordsPerSplit;
+  }
 }
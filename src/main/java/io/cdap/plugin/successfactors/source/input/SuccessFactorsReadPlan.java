@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.input;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordDecoder;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsReadPlan} holds everything the record readers need to extract the records, compiled once
+ * while preparing the run and shipped to the tasks as a single compressed job configuration property:
+ * - plugin config, including the connection
+ * - output schema
+ * - pruned entity metadata
+ * - maximum number of records, only used with server side pagination
+ * - run identifier, unique to the planned run, which keys the pages cached by the executors
+ * - stage name, which keys the metrics of the readers of the stage on the executors
+ * <p>
+ * The readers hydrate the plan once per JVM. The hydrated plan holds the parsed output schema, the parsed metadata,
+ * the properties selected by default in the data URL and the compiled record decoder, which are shared by the record
+ * readers of all the splits running on the same executor.
+ */
+public final class SuccessFactorsReadPlan {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsReadPlan.class);
+  private static final Gson GSON = new Gson();
+  private static final int MAX_ENTRIES = 8;
+  private static final long EXPIRE_AFTER_ACCESS_MINUTES = 60;
+
+  private static final Cache<String, SuccessFactorsReadPlan> PLAN_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(MAX_ENTRIES)
+    .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+    .build();
+
+  private final SuccessFactorsPluginConfig pluginConfig;
+  private final String outputSchema;
+  private final String encodedMetadata;
+  @Nullable
+  private final Long maxRecords;
+  private final String runId;
+  private final String stageName;
+
+  // hydrated once per JVM, never serialized
+  private transient Schema schema;
+  private transient Edm edm;
+  private transient List<String> selectProperties;
+  private transient SuccessFactorsRecordDecoder recordDecoder;
+
+  public SuccessFactorsReadPlan(SuccessFactorsPluginConfig pluginConfig, Schema outputSchema, String encodedMetadata,
+                                @Nullable Long maxRecords, String stageName) {
+    this.pluginConfig = pluginConfig;
+    this.outputSchema = outputSchema.toString();
+    this.encodedMetadata = encodedMetadata;
+    this.maxRecords = maxRecords;
+    this.runId = UUID.randomUUID().toString();
+    this.stageName = stageName;
+  }
+
+  /**
+   * Serializes the plan as a base64 encoded, gzip compressed JSON string.
+   *
+   * @return serialized plan
+   * @throws IOException if the plan can not be compressed
+   */
+  public String serialize() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(GSON.toJson(this).getBytes(StandardCharsets.UTF_8));
+    }
+    return Base64.getEncoder().encodeToString(output.toByteArray());
+  }
+
+  /**
+   * Returns the hydrated plan of the given serialized plan. The plan is deserialized and hydrated once per JVM, the
+   * record readers reading the same plan share the hydrated instance.
+   *
+   * @param serializedPlan serialized plan
+   * @return hydrated {@code SuccessFactorsReadPlan}
+   * @throws IOException if the plan can not be deserialized or hydrated
+   */
+  public static SuccessFactorsReadPlan hydrate(String serializedPlan) throws IOException {
+    try {
+      return PLAN_CACHE.get(DigestUtils.sha256Hex(serializedPlan), () -> {
+        long startTime = System.currentTimeMillis();
+        SuccessFactorsReadPlan readPlan = deserialize(serializedPlan);
+        readPlan.hydrate();
+        LOG.debug("Hydrated the read plan of '{}' in {} ms.", readPlan.pluginConfig.getEntityName(),
+                  System.currentTimeMillis() - startTime);
+        return readPlan;
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  @VisibleForTesting
+  static void invalidateAll() {
+    PLAN_CACHE.invalidateAll();
+  }
+
+  private static SuccessFactorsReadPlan deserialize(String serializedPlan) throws IOException {
+    byte[] compressed = Base64.getDecoder().decode(serializedPlan);
+    try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return GSON.fromJson(new String(ByteStreams.toByteArray(gzip), StandardCharsets.UTF_8),
+                           SuccessFactorsReadPlan.class);
+    }
+  }
+
+  private void hydrate() throws IOException, SuccessFactorsServiceException, EdmException {
+    schema = Schema.parseJson(outputSchema);
+    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
+    edm = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadata);
+    selectProperties = Collections.unmodifiableList(new SuccessFactorsSchemaGenerator(
+      new SuccessFactorsEntityProvider(edm)).getNonNavigationalProperties(pluginConfig.getEntityName()));
+    recordDecoder = successFactorsService.getRecordDecoder(edm, schema);
+  }
+
+  public SuccessFactorsPluginConfig getPluginConfig() {
+    return pluginConfig;
+  }
+
+  public Schema getOutputSchema() {
+    return schema;
+  }
+
+  public Edm getEdm() {
+    return edm;
+  }
+
+  public List<String> getSelectProperties() {
+    return selectProperties;
+  }
+
+  @Nullable
+  public Long getMaxRecords() {
+    return maxRecords;
+  }
+
+  /**
+   * @return identifier of the planned run, shared by all the attempts of its splits.
+   */
+  public String getRunId() {
+    return runId;
+  }
+
+  /**
+   * @return name of the stage reading the records, which keys the metrics of its readers.
+   */
+  public String getStageName() {
+    return stageName;
+  }
+
+  /**
+   * Creates a new {@code SuccessFactorsService} to read the records of a single split, as the service holds the
+   * paging state.
+   *
+   * @return {@code SuccessFactorsService}
+   */
+  public SuccessFactorsService newService() {
+    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
+    successFactorsService.setNonNavigationalProperties(selectProperties);
+    return successFactorsService;
+  }
+
+  /**
+   * Creates a new record decoder from the compiled decoding plan, as the decoder holds the key values of the last
+   * decoded entry.
+   *
+   * @return {@code SuccessFactorsRecordDecoder} or null if the entries are to be read as Olingo entries
+   */
+  @Nullable
+  public SuccessFactorsRecordDecoder newRecordDecoder() {
+    return recordDecoder == null ? null : recordDecoder.copy();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.edm.EdmEntityType;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.edm.EdmNavigationProperty;
+import org.apache.olingo.odata2.api.edm.EdmProperty;
+import org.apache.olingo.odata2.api.edm.EdmTyped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This {@code SuccessFactorsEdmCache} holds the parsed SuccessFactors service metadata per JVM, so that the record
+ * readers of all the splits running on the same executor share a single {@code Edm} instead of decoding and parsing
+ * the encoded metadata once per split.
+ * <p>
+ * The entries are keyed by the SHA-256 hash of the encoded metadata string. Concurrent requests for the same metadata
+ * wait for a single parse. Olingo resolves the metadata elements lazily into plain maps, so every entity set, entity
+ * type and property is resolved once before the {@code Edm} is shared, leaving only reads to the concurrent readers.
+ */
+public class SuccessFactorsEdmCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsEdmCache.class);
+  private static final int MAX_ENTRIES = 8;
+  private static final long EXPIRE_AFTER_ACCESS_MINUTES = 60;
+
+  private static final Cache<String, Edm> EDM_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(MAX_ENTRIES)
+    .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+    .build();
+
+  private SuccessFactorsEdmCache() {
+  }
+
+  /**
+   * Returns the cached {@code Edm} of the given encoded metadata, or parses it with the given loader.
+   *
+   * @param encodedMetadata base64 encoded SuccessFactors entity metadata string
+   * @param edmLoader       parses the encoded metadata if not cached yet
+   * @return {@code Edm}
+   * @throws SuccessFactorsServiceException any exception thrown by the loader
+   */
+  public static Edm getEdm(String encodedMetadata, EdmLoader edmLoader) throws SuccessFactorsServiceException {
+    String metadataHash = DigestUtils.sha256Hex(encodedMetadata);
+    try {
+      return EDM_CACHE.get(metadataHash, () -> {
+        long startTime = System.currentTimeMillis();
+        Edm edm = edmLoader.load();
+        resolveMetadata(edm);
+        LOG.debug("Parsed service metadata '{}' in {} ms.", metadataHash, System.currentTimeMillis() - startTime);
+        return edm;
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof SuccessFactorsServiceException) {
+        throw (SuccessFactorsServiceException) e.getCause();
+      }
+      throw new SuccessFactorsServiceException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  @VisibleForTesting
+  static void invalidateAll() {
+    EDM_CACHE.invalidateAll();
+  }
+
+  /**
+   * Resolves every entity set, entity type and property of the metadata, so that the lazily built Olingo elements
+   * are complete before the {@code Edm} is shared across threads.
+   */
+  private static void resolveMetadata(Edm edm) {
+    try {
+      edm.getDefaultEntityContainer().getEntitySets();
+      for (EdmEntitySet entitySet : edm.getEntitySets()) {
+        resolveEntityType(entitySet.getEntityType());
+      }
+    } catch (EdmException e) {
+      // the same exception is thrown to the reader accessing the invalid element
+      LOG.debug("Service metadata could not be resolved completely.", e);
+    }
+  }
+
+  private static void resolveEntityType(EdmEntityType entityType) throws EdmException {
+    entityType.getKeyProperties();
+    entityType.getNavigationPropertyNames();
+    for (String propertyName : entityType.getPropertyNames()) {
+      EdmTyped property = entityType.getProperty(propertyName);
+      property.getType();
+      ((EdmProperty) property).getFacets();
+    }
+    for (String navigationPropertyName : entityType.getNavigationPropertyNames()) {
+      EdmNavigationProperty navigationProperty = (EdmNavigationProperty) entityType.getProperty(navigationPropertyName);
+      navigationProperty.getRelationship().getEnd(navigationProperty.getToRole()).getEntityType();
+      navigationProperty.getMultiplicity();
+    }
+  }
+
+  /**
+   * Parses the service metadata on a cache miss.
+   */
+  @FunctionalInterface
+  public interface EdmLoader {
+    Edm load() throws SuccessFactorsServiceException;
+  }
+}
@@ -22,10 +22,18 @@ import org.apache.olingo.odata2.api.edm.EdmComplexType;
 import org.apache.olingo.odata2.api.edm.EdmEntitySet;
 import org.apache.olingo.odata2.api.edm.EdmEntityType;
 import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
 import org.apache.olingo.odata2.core.edm.provider.EdmNavigationPropertyImplProv;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -34,14 +42,25 @@ import javax.annotation.Nullable;
  *    - get Entity instance for the given entity name
  *    - get property list for the given entity name
  *    - get navigation property and complex property for the given entity name
+ * <p>
+ * When created from a {@code SuccessFactorsMetadataIndex}, the metadata is materialized lazily: only the closure of
+ * the requested entity and navigation paths is parsed into an {@code Edm}, instead of the metadata of the whole
+ * service.
  */
 public class SuccessFactorsEntityProvider {
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsEntityProvider.class);
 
-  private final Edm edmMetadata;
+  private final SuccessFactorsMetadataIndex metadataIndex;
+  private final Map<String, EntityMetadata> entityMetadata = new HashMap<>();
+  private Edm edmMetadata;
 
   public SuccessFactorsEntityProvider(Edm edmMetadata) {
     this.edmMetadata = edmMetadata;
+    this.metadataIndex = null;
+  }
+
+  public SuccessFactorsEntityProvider(SuccessFactorsMetadataIndex metadataIndex) {
+    this.metadataIndex = metadataIndex;
   }
 
   /**
@@ -53,8 +72,17 @@ public class SuccessFactorsEntityProvider {
    */
   @Nullable
   public EdmEntitySet getEntitySet(String entityName) throws EdmException {
+    return getEntitySet(entityName, null);
+  }
+
+  @Nullable
+  private EdmEntitySet getEntitySet(String entityName, @Nullable String navPath) throws EdmException {
     if (SuccessFactorsUtil.isNotNullOrEmpty(entityName)) {
-      for (EdmEntitySet edmEntitySet : edmMetadata.getEntitySets()) {
+      Edm edm = getEntityMetadata(entityName, navPath);
+      if (edm == null) {
+        return null;
+      }
+      for (EdmEntitySet edmEntitySet : edm.getEntitySets()) {
         if (edmEntitySet.getName().equals(entityName)) {
           return edmEntitySet;
         }
@@ -98,7 +126,7 @@ public class SuccessFactorsEntityProvider {
    * @throws EdmException Expected exception
    */
   public List<EdmEntitySet> getDefaultEntitySet() throws EdmException {
-    return edmMetadata.getDefaultEntityContainer().getEntitySets();
+    return getEdmMetadata().getDefaultEntityContainer().getEntitySets();
   }
 
   /**
@@ -114,7 +142,7 @@ public class SuccessFactorsEntityProvider {
     throws EdmException {
 
     if (SuccessFactorsUtil.isNotNullOrEmpty(entityName) && SuccessFactorsUtil.isNotNullOrEmpty(navPath)) {
-      EdmEntitySet entitySet = getEntitySet(entityName);
+      EdmEntitySet entitySet = getEntitySet(entityName, navPath);
       if (entitySet != null) {
         EdmEntityType entityType = entitySet.getEntityType();
         EdmNavigationPropertyImplProv association = null;
@@ -172,7 +200,16 @@ public class SuccessFactorsEntityProvider {
   @Nullable
   public EdmComplexType getComplexType(String namespace, String propertyName) throws EdmException {
     if (SuccessFactorsUtil.isNotNullOrEmpty(namespace) && SuccessFactorsUtil.isNotNullOrEmpty(propertyName)) {
-      return edmMetadata.getComplexType(namespace, propertyName);
+      if (metadataIndex != null) {
+        // complex types are materialized along with the entities using them
+        for (EntityMetadata metadata : entityMetadata.values()) {
+          EdmComplexType complexType = metadata.edm.getComplexType(namespace, propertyName);
+          if (complexType != null) {
+            return complexType;
+          }
+        }
+      }
+      return getEdmMetadata().getComplexType(namespace, propertyName);
     }
 
     String debugMsg = String.format("Namespace: '%s' and Complex property name: '%s', " +
@@ -189,7 +226,67 @@ public class SuccessFactorsEntityProvider {
     return extractEntitySetFromNavigationProperty(navProp);
   }
 
-  public Edm getEdmMetadata() {
+  /**
+   * Returns the metadata of the whole service, which is materialized completely on the first call in lazy mode.
+   *
+   * @return {@code Edm}
+   * @throws EdmException Expected exception
+   */
+  public Edm getEdmMetadata() throws EdmException {
+    if (edmMetadata == null) {
+      edmMetadata = readMetadata(metadataIndex.buildMetadata());
+    }
     return edmMetadata;
   }
+
+  /**
+   * Returns the metadata holding the given entity, the entity types along its requested navigation paths and the
+   * given navigation path.
+   */
+  @Nullable
+  private Edm getEntityMetadata(String entityName, @Nullable String navPath) throws EdmException {
+    if (metadataIndex == null) {
+      return edmMetadata;
+    }
+    EntityMetadata metadata = entityMetadata.get(entityName);
+    if (metadata != null && (navPath == null || metadata.navigationPaths.contains(navPath))) {
+      return metadata.edm;
+    }
+
+    Set<String> navigationPaths = new LinkedHashSet<>();
+    if (metadata != null) {
+      navigationPaths.addAll(metadata.navigationPaths);
+    }
+    if (navPath != null) {
+      navigationPaths.add(navPath);
+    }
+    byte[] metadataDocument = metadataIndex.buildEntityMetadata(entityName, navigationPaths);
+    if (metadataDocument == null) {
+      return null;
+    }
+    metadata = new EntityMetadata(navigationPaths, readMetadata(metadataDocument));
+    entityMetadata.put(entityName, metadata);
+    return metadata.edm;
+  }
+
+  private static Edm readMetadata(byte[] metadataDocument) throws EdmException {
+    try {
+      return EntityProvider.readMetadata(new ByteArrayInputStream(metadataDocument), false);
+    } catch (EntityProviderException e) {
+      throw new EdmException(EdmException.COMMON, e);
+    }
+  }
+
+  /**
+   * Materialized metadata of an entity and the navigation paths it holds completely.
+   */
+  private static final class EntityMetadata {
+    private final Set<String> navigationPaths;
+    private final Edm edm;
+
+    private EntityMetadata(Set<String> navigationPaths, Edm edm) {
+      this.navigationPaths = navigationPaths;
+      this.edm = edm;
+    }
+  }
 }
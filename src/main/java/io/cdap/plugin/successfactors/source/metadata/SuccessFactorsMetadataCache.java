@@ -0,0 +1,326 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.connector.SuccessFactorsConnectorConfig;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * This {@code SuccessFactorsMetadataCache} keeps the downloaded SuccessFactors service metadata ($metadata) in a local
+ * directory, so that the design-time actions and the pipeline runs on the same host do not download the same
+ * metadata again and again.
+ * <p>
+ * The cache is enabled by the 'Metadata Cache TTL' of the connection. The entries are keyed by the metadata URL, which
+ * holds the base URL, the entity and the associated entity, and by the user, as the metadata depends on the user
+ * permissions.
+ *    - Within the TTL, the cached metadata is used without calling the service.
+ *    - Once expired, the metadata is revalidated with the cached ETag / Last-Modified validators and downloaded again
+ *      only if it has changed.
+ *    - The indexed metadata of the cached documents is kept in memory, so a cache hit skips the parsing as well.
+ * <p>
+ * Every entry is written to a temporary file and atomically moved in place, so that the pipelines running on the same
+ * host never read a partially written entry. Concurrent requests for the same entry within the JVM wait for a single
+ * download. The cache is only an optimization, any failure to read or write an entry falls back to the service call.
+ */
+public class SuccessFactorsMetadataCache {
+
+  static final String DEFAULT_DIRECTORY = "successfactors-metadata-cache";
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsMetadataCache.class);
+  private static final String METADATA = "METADATA";
+  private static final String FILE_EXTENSION = ".metadata";
+  private static final String IF_NONE_MATCH = "If-None-Match";
+  private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+  private static final int FORMAT_VERSION = 1;
+  private static final int MAX_INDEXED_ENTRIES = 8;
+  private static final long EXPIRE_AFTER_ACCESS_MINUTES = 60;
+
+  private static final Striped<Lock> ENTRY_LOCKS = Striped.lock(32);
+  private static final Cache<String, SuccessFactorsMetadataIndex> INDEX_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(MAX_INDEXED_ENTRIES)
+    .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+    .build();
+
+  private final SuccessFactorsTransporter transporter;
+  private final String username;
+  private final long ttlMillis;
+  private final Path directory;
+
+  public SuccessFactorsMetadataCache(SuccessFactorsConnectorConfig config, SuccessFactorsTransporter transporter) {
+    this(transporter, config.getUsername(), TimeUnit.MINUTES.toMillis(config.getMetadataCacheTtl()),
+         SuccessFactorsUtil.isNotNullOrEmpty(config.getMetadataCacheDirectory()) ?
+           Paths.get(config.getMetadataCacheDirectory()) :
+           Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY));
+  }
+
+  @VisibleForTesting
+  SuccessFactorsMetadataCache(SuccessFactorsTransporter transporter, String username, long ttlMillis,
+                              Path directory) {
+    this.transporter = transporter;
+    this.username = username;
+    this.ttlMillis = ttlMillis;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the metadata document of the given metadata URL.
+   *
+   * @param metadataURL SuccessFactors metadata URL
+   * @return metadata document, or the response body if the metadata could not be fetched
+   * @throws TransportException any http client exceptions are wrapped under it
+   */
+  public byte[] getMetadata(URL metadataURL) throws TransportException {
+    MetadataEntry entry = fetch(metadataURL);
+    byte[] content = entry.content == null ? readContent(entry) : entry.content;
+    return content == null ? download(metadataURL).content : content;
+  }
+
+  /**
+   * Returns the indexed metadata document of the given metadata URL.
+   *
+   * @param metadataURL SuccessFactors metadata URL
+   * @return {@code SuccessFactorsMetadataIndex}
+   * @throws TransportException      any http client exceptions are wrapped under it
+   * @throws EntityProviderException if the metadata document can not be read
+   */
+  public SuccessFactorsMetadataIndex getMetadataIndex(URL metadataURL)
+    throws TransportException, EntityProviderException {
+    MetadataEntry entry = fetch(metadataURL);
+    if (entry.contentHash != null) {
+      SuccessFactorsMetadataIndex metadataIndex = INDEX_CACHE.getIfPresent(entry.contentHash);
+      if (metadataIndex != null) {
+        return metadataIndex;
+      }
+      byte[] content = entry.content == null ? readContent(entry) : entry.content;
+      if (content != null) {
+        metadataIndex = SuccessFactorsMetadataIndex.read(new ByteArrayInputStream(content));
+        INDEX_CACHE.put(entry.contentHash, metadataIndex);
+        return metadataIndex;
+      }
+      entry = download(metadataURL);
+    }
+    return SuccessFactorsMetadataIndex.read(new ByteArrayInputStream(entry.content));
+  }
+
+  @VisibleForTesting
+  static void invalidateIndexes() {
+    INDEX_CACHE.invalidateAll();
+  }
+
+  private MetadataEntry fetch(URL metadataURL) throws TransportException {
+    if (ttlMillis <= 0) {
+      return download(metadataURL);
+    }
+
+    String key = DigestUtils.sha256Hex(username + "\n" + metadataURL);
+    Path entryFile = directory.resolve(key + FILE_EXTENSION);
+    Lock lock = ENTRY_LOCKS.get(key);
+    lock.lock();
+    try {
+      MetadataEntry cached = readEntry(entryFile, metadataURL.toString());
+      long now = System.currentTimeMillis();
+      if (cached != null && now - cached.fetchedAt < ttlMillis) {
+        LOG.debug("Using the cached metadata of '{}'.", metadataURL);
+        return cached;
+      }
+
+      Map<String, String> requestHeaders = new HashMap<>();
+      if (cached != null && cached.eTag != null) {
+        requestHeaders.put(IF_NONE_MATCH, cached.eTag);
+      }
+      if (cached != null && cached.lastModified != null) {
+        requestHeaders.put(IF_MODIFIED_SINCE, cached.lastModified);
+      }
+      SuccessFactorsResponseContainer response =
+        transporter.callSuccessFactorsEntity(metadataURL, MediaType.APPLICATION_XML, METADATA, requestHeaders);
+
+      if (cached != null && response.getHttpStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        byte[] content = readContent(cached);
+        if (content != null) {
+          LOG.debug("Cached metadata of '{}' is not modified.", metadataURL);
+          MetadataEntry entry = new MetadataEntry(cached.url, cached.eTag, cached.lastModified, now,
+                                                  cached.contentHash, entryFile, content);
+          writeEntry(entry);
+          return entry;
+        }
+        response = transporter.callSuccessFactorsEntity(metadataURL, MediaType.APPLICATION_XML, METADATA);
+      }
+
+      if (response.getHttpStatusCode() != HttpURLConnection.HTTP_OK || response.getResponseBytes() == null) {
+        // errors are not cached, they are reported by the caller reading the response
+        return MetadataEntry.uncached(response);
+      }
+      byte[] content = response.getResponseBytes();
+      MetadataEntry entry = new MetadataEntry(metadataURL.toString(), response.getETag(), response.getLastModified(),
+                                              now, DigestUtils.sha256Hex(content), entryFile, content);
+      writeEntry(entry);
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private MetadataEntry download(URL metadataURL) throws TransportException {
+    return MetadataEntry.uncached(
+      transporter.callSuccessFactorsEntity(metadataURL, MediaType.APPLICATION_XML, METADATA));
+  }
+
+  /**
+   * Reads the validators of the cached entry, without its content.
+   *
+   * @return cached entry or null if there is no valid entry for the given URL
+   */
+  @Nullable
+  private static MetadataEntry readEntry(Path entryFile, String url) {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+      if (input.readInt() != FORMAT_VERSION || !url.equals(input.readUTF())) {
+        return null;
+      }
+      String eTag = emptyToNull(input.readUTF());
+      String lastModified = emptyToNull(input.readUTF());
+      long fetchedAt = input.readLong();
+      String contentHash = input.readUTF();
+      return new MetadataEntry(url, eTag, lastModified, fetchedAt, contentHash, entryFile, null);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOG.debug("Cached metadata '{}' could not be read.", entryFile, e);
+      return null;
+    }
+  }
+
+  @Nullable
+  private static byte[] readContent(MetadataEntry entry) {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry.file)))) {
+      input.readInt();
+      input.readUTF();
+      input.readUTF();
+      input.readUTF();
+      input.readLong();
+      input.readUTF();
+      byte[] content = new byte[input.readInt()];
+      input.readFully(content);
+      return content;
+    } catch (IOException e) {
+      LOG.debug("Cached metadata '{}' could not be read.", entry.file, e);
+      return null;
+    }
+  }
+
+  private static void writeEntry(MetadataEntry entry) {
+    Path temporaryFile = null;
+    try {
+      Files.createDirectories(entry.file.getParent());
+      temporaryFile = Files.createTempFile(entry.file.getParent(), entry.file.getFileName().toString(), ".tmp");
+      try (DataOutputStream output =
+             new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(entry.url);
+        output.writeUTF(entry.eTag == null ? "" : entry.eTag);
+        output.writeUTF(entry.lastModified == null ? "" : entry.lastModified);
+        output.writeLong(entry.fetchedAt);
+        output.writeUTF(entry.contentHash);
+        output.writeInt(entry.content.length);
+        output.write(entry.content);
+      }
+      try {
+        Files.move(temporaryFile, entry.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, entry.file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      LOG.warn("Metadata could not be written to the metadata cache '{}'.", entry.file, e);
+    } finally {
+      deleteQuietly(temporaryFile);
+    }
+  }
+
+  private static void deleteQuietly(@Nullable Path file) {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOG.debug("Temporary metadata file '{}' could not be deleted.", file, e);
+      }
+    }
+  }
+
+  @Nullable
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+
+  /**
+   * Cached metadata document along with its validators. The content is only read from the entry file on demand.
+   */
+  private static final class MetadataEntry {
+    private final String url;
+    private final String eTag;
+    private final String lastModified;
+    private final long fetchedAt;
+    private final String contentHash;
+    private final Path file;
+    private final byte[] content;
+
+    private MetadataEntry(@Nullable String url, @Nullable String eTag, @Nullable String lastModified, long fetchedAt,
+                          @Nullable String contentHash, @Nullable Path file, @Nullable byte[] content) {
+      this.url = url;
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+      this.fetchedAt = fetchedAt;
+      this.contentHash = contentHash;
+      this.file = file;
+      this.content = content;
+    }
+
+    private static MetadataEntry uncached(SuccessFactorsResponseContainer response) {
+      byte[] content = response.getResponseBytes();
+      return new MetadataEntry(null, null, null, 0, null, null, content == null ? new byte[0] : content);
+    }
+  }
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * This {@code SuccessFactorsMetadataIndex} indexes the SuccessFactors service metadata document ($metadata) in a single
+ * streaming pass, without building the Olingo entity data model of the whole service.
+ * <p>
+ * The elements are kept as lightweight XML elements, indexed by their namespace (or alias) qualified names. For an
+ * entity, the index writes a minimal EDMX document holding:
+ *    - the entity type of the entity and the entity types along the given navigation paths, as they are
+ *    - the complex types used by their properties
+ *    - the associations of their navigation properties, whose other end types are kept with their key properties only
+ *      so that the not expanded ('__deferred') navigation properties can still be read
+ *    - the entity sets of the kept entity types and the association sets between them
+ * <p>
+ * Only this document is then parsed by Olingo, so that the annotations and facets of the properties are read exactly
+ * as from the complete metadata.
+ */
+public class SuccessFactorsMetadataIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsMetadataIndex.class);
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"utf-8\"?>";
+  private static final String DATA_SERVICES = "DataServices";
+  private static final String SCHEMA = "Schema";
+  private static final String ENTITY_CONTAINER = "EntityContainer";
+  private static final String ENTITY_SET = "EntitySet";
+  private static final String ASSOCIATION_SET = "AssociationSet";
+  private static final String FUNCTION_IMPORT = "FunctionImport";
+  private static final String ENTITY_TYPE = "EntityType";
+  private static final String COMPLEX_TYPE = "ComplexType";
+  private static final String ASSOCIATION = "Association";
+  private static final String NAVIGATION_PROPERTY = "NavigationProperty";
+  private static final String PROPERTY = "Property";
+  private static final String PROPERTY_REF = "PropertyRef";
+  private static final String KEY = "Key";
+  private static final String END = "End";
+  private static final String NAME = "Name";
+  private static final String TYPE = "Type";
+  private static final String ROLE = "Role";
+  private static final String BASE_TYPE = "BaseType";
+
+  @Nullable
+  private final XmlElement root;
+  private final Map<String, XmlElement> entityTypes = new HashMap<>();
+  private final Map<String, XmlElement> complexTypes = new HashMap<>();
+  private final Map<String, XmlElement> associations = new HashMap<>();
+  private final Map<String, XmlElement> entitySets = new HashMap<>();
+
+  private SuccessFactorsMetadataIndex(@Nullable XmlElement root) {
+    this.root = root;
+    if (root == null) {
+      return;
+    }
+    for (XmlElement dataServices : root.getChildren(DATA_SERVICES)) {
+      for (XmlElement schema : dataServices.getChildren(SCHEMA)) {
+        indexSchema(schema);
+      }
+    }
+  }
+
+  /**
+   * Indexes the given metadata document.
+   *
+   * @param metadataStream SuccessFactors service metadata document
+   * @return {@code SuccessFactorsMetadataIndex}
+   * @throws EntityProviderException if the metadata document is not well-formed XML
+   */
+  public static SuccessFactorsMetadataIndex read(InputStream metadataStream) throws EntityProviderException {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+    long startTime = System.currentTimeMillis();
+    XMLStreamReader reader = null;
+    try {
+      reader = factory.createXMLStreamReader(metadataStream);
+      XmlElement root = null;
+      while (root == null && reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          root = readElement(reader);
+        }
+      }
+      SuccessFactorsMetadataIndex metadataIndex = new SuccessFactorsMetadataIndex(root);
+      LOG.debug("Indexed {} entity types of the service metadata in {} ms.", metadataIndex.entityTypes.size(),
+                System.currentTimeMillis() - startTime);
+      return metadataIndex;
+    } catch (XMLStreamException e) {
+      throw new EntityProviderException(EntityProviderException.COMMON, e);
+    } finally {
+      closeReader(reader);
+    }
+  }
+
+  /**
+   * Writes the minimal metadata document required to read the given entity and navigation paths.
+   *
+   * @param entityName      SuccessFactors entity name
+   * @param navigationPaths navigation paths to be materialized completely, e.g. 'picklistOptions/picklistLabels'
+   * @return metadata document or null if the entity is not found in the metadata
+   */
+  @Nullable
+  public byte[] buildEntityMetadata(String entityName, Collection<String> navigationPaths) {
+    XmlElement entitySet = entitySets.get(entityName);
+    XmlElement rootEntityType = entitySet == null ? null : entityTypes.get(entitySet.getAttribute(ENTITY_TYPE));
+    if (rootEntityType == null) {
+      LOG.debug("Entity set '{}' is not found in the metadata.", entityName);
+      return null;
+    }
+
+    Closure closure = new Closure();
+    closure.keepEntityType(rootEntityType);
+    for (String navigationPath : navigationPaths) {
+      XmlElement entityType = rootEntityType;
+      for (String navigationName : navigationPath.split(SuccessFactorsUrlContainer.NAV_PROPERTY_SEPARATOR)) {
+        entityType = getTargetEntityType(entityType, navigationName.trim());
+        if (entityType == null) {
+          break;
+        }
+        closure.keepEntityType(entityType);
+      }
+    }
+    for (XmlElement entityType : closure.keptEntityTypes) {
+      closure.keepAssociations(entityType);
+    }
+    return write(closure);
+  }
+
+  /**
+   * Writes the complete metadata document.
+   *
+   * @return metadata document
+   */
+  public byte[] buildMetadata() {
+    return write(null);
+  }
+
+  private void indexSchema(XmlElement schema) {
+    List<String> qualifiers = new ArrayList<>();
+    qualifiers.add(schema.getAttribute("Namespace"));
+    if (schema.getAttribute("Alias") != null) {
+      qualifiers.add(schema.getAttribute("Alias"));
+    }
+    for (XmlElement child : schema.children) {
+      Map<String, XmlElement> index = null;
+      if (ENTITY_TYPE.equals(child.localName)) {
+        index = entityTypes;
+      } else if (COMPLEX_TYPE.equals(child.localName)) {
+        index = complexTypes;
+      } else if (ASSOCIATION.equals(child.localName)) {
+        index = associations;
+      } else if (ENTITY_CONTAINER.equals(child.localName)) {
+        for (XmlElement entitySet : child.getChildren(ENTITY_SET)) {
+          entitySets.putIfAbsent(entitySet.getAttribute(NAME), entitySet);
+        }
+      }
+      if (index != null) {
+        for (String qualifier : qualifiers) {
+          index.put(qualifier + "." + child.getAttribute(NAME), child);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private XmlElement getTargetEntityType(XmlElement entityType, String navigationName) {
+    for (XmlElement navigationProperty : entityType.getChildren(NAVIGATION_PROPERTY)) {
+      if (!navigationName.equals(navigationProperty.getAttribute(NAME))) {
+        continue;
+      }
+      XmlElement association = associations.get(navigationProperty.getAttribute("Relationship"));
+      if (association == null) {
+        return null;
+      }
+      for (XmlElement end : association.getChildren(END)) {
+        if (navigationProperty.getAttribute("ToRole").equals(end.getAttribute(ROLE))) {
+          return entityTypes.get(end.getAttribute(TYPE));
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Writes the elements of the given closure, or all the elements if no closure is given.
+   */
+  private byte[] write(@Nullable Closure closure) {
+    StringBuilder builder = new StringBuilder(XML_DECLARATION);
+    if (root == null) {
+      return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    root.writeStartTag(builder);
+    for (XmlElement dataServices : root.getChildren(DATA_SERVICES)) {
+      dataServices.writeStartTag(builder);
+      for (XmlElement schema : dataServices.getChildren(SCHEMA)) {
+        schema.writeStartTag(builder);
+        for (XmlElement child : schema.children) {
+          writeSchemaElement(builder, child, closure);
+        }
+        schema.writeEndTag(builder);
+      }
+      dataServices.writeEndTag(builder);
+    }
+    root.writeEndTag(builder);
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void writeSchemaElement(StringBuilder builder, XmlElement element, @Nullable Closure closure) {
+    if (closure == null) {
+      element.write(builder);
+    } else if (ENTITY_TYPE.equals(element.localName)) {
+      if (closure.keptEntityTypes.contains(element)) {
+        element.write(builder);
+      } else if (closure.keyOnlyEntityTypes.contains(element)) {
+        writeKeyProperties(builder, element);
+      }
+    } else if (COMPLEX_TYPE.equals(element.localName)) {
+      if (closure.keptComplexTypes.contains(element)) {
+        element.write(builder);
+      }
+    } else if (ASSOCIATION.equals(element.localName)) {
+      if (closure.keptAssociations.contains(element)) {
+        element.write(builder);
+      }
+    } else if (ENTITY_CONTAINER.equals(element.localName)) {
+      writeEntityContainer(builder, element, closure);
+    } else {
+      element.write(builder);
+    }
+  }
+
+  /**
+   * Writes the entity sets and association sets related to the kept entity types, without the function imports.
+   */
+  private void writeEntityContainer(StringBuilder builder, XmlElement entityContainer, Closure closure) {
+    Set<String> keptEntitySets = new HashSet<>();
+    for (XmlElement entitySet : entityContainer.getChildren(ENTITY_SET)) {
+      if (closure.keptEntityTypes.contains(entityTypes.get(entitySet.getAttribute(ENTITY_TYPE)))) {
+        keptEntitySets.add(entitySet.getAttribute(NAME));
+      }
+    }
+
+    entityContainer.writeStartTag(builder);
+    for (XmlElement child : entityContainer.children) {
+      boolean keep;
+      if (ENTITY_SET.equals(child.localName)) {
+        keep = keptEntitySets.contains(child.getAttribute(NAME));
+      } else if (ASSOCIATION_SET.equals(child.localName)) {
+        keep = closure.keptAssociations.contains(associations.get(child.getAttribute(ASSOCIATION)));
+        for (XmlElement end : child.getChildren(END)) {
+          keep = keep && keptEntitySets.contains(end.getAttribute(ENTITY_SET));
+        }
+      } else {
+        keep = !FUNCTION_IMPORT.equals(child.localName);
+      }
+      if (keep) {
+        child.write(builder);
+      }
+    }
+    entityContainer.writeEndTag(builder);
+  }
+
+  private static void writeKeyProperties(StringBuilder builder, XmlElement entityType) {
+    Set<String> keyNames = new HashSet<>();
+    for (XmlElement key : entityType.getChildren(KEY)) {
+      for (XmlElement propertyRef : key.getChildren(PROPERTY_REF)) {
+        keyNames.add(propertyRef.getAttribute(NAME));
+      }
+    }
+    entityType.writeStartTag(builder);
+    for (XmlElement child : entityType.children) {
+      if (KEY.equals(child.localName) || (PROPERTY.equals(child.localName)
+        && keyNames.contains(child.getAttribute(NAME)))) {
+        child.write(builder);
+      }
+    }
+    entityType.writeEndTag(builder);
+  }
+
+  /**
+   * Reads the element at the current start tag of the reader, up to and including its end tag.
+   */
+  private static XmlElement readElement(XMLStreamReader reader) throws XMLStreamException {
+    XmlElement element = new XmlElement(reader);
+    StringBuilder text = null;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        element.children.add(readElement(reader));
+      } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+        if (!reader.isWhiteSpace()) {
+          text = text == null ? new StringBuilder() : text;
+          text.append(reader.getText());
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        break;
+      }
+    }
+    element.text = text == null ? null : text.toString();
+    return element;
+  }
+
+  private static void closeReader(@Nullable XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        LOG.debug("Metadata reader could not be closed.", e);
+      }
+    }
+  }
+
+  private static void escape(StringBuilder builder, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          builder.append("&amp;");
+          break;
+        case '<':
+          builder.append("&lt;");
+          break;
+        case '>':
+          builder.append("&gt;");
+          break;
+        case '"':
+          builder.append("&quot;");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+  }
+
+  /**
+   * Elements of the metadata required by an entity.
+   */
+  private final class Closure {
+    private final Set<XmlElement> keptEntityTypes = new LinkedHashSet<>();
+    private final Set<XmlElement> keyOnlyEntityTypes = new HashSet<>();
+    private final Set<XmlElement> keptComplexTypes = new HashSet<>();
+    private final Set<XmlElement> keptAssociations = new HashSet<>();
+
+    private void keepEntityType(XmlElement entityType) {
+      if (!keptEntityTypes.add(entityType)) {
+        return;
+      }
+      keyOnlyEntityTypes.remove(entityType);
+      XmlElement baseType = entityTypes.get(entityType.getAttribute(BASE_TYPE));
+      if (baseType != null) {
+        keepEntityType(baseType);
+      }
+      keepComplexTypes(entityType);
+    }
+
+    private void keepComplexTypes(XmlElement structuralType) {
+      for (XmlElement property : structuralType.getChildren(PROPERTY)) {
+        XmlElement complexType = complexTypes.get(property.getAttribute(TYPE));
+        if (complexType != null && keptComplexTypes.add(complexType)) {
+          keepComplexTypes(complexType);
+        }
+      }
+    }
+
+    /**
+     * Keeps the associations of all the navigation properties of the given entity type and the entity types at their
+     * other ends, with the key properties only unless they are kept as they are.
+     */
+    private void keepAssociations(XmlElement entityType) {
+      for (XmlElement navigationProperty : entityType.getChildren(NAVIGATION_PROPERTY)) {
+        XmlElement association = associations.get(navigationProperty.getAttribute("Relationship"));
+        if (association == null) {
+          continue;
+        }
+        keptAssociations.add(association);
+        for (XmlElement end : association.getChildren(END)) {
+          keepKeyOnlyEntityType(entityTypes.get(end.getAttribute(TYPE)));
+        }
+      }
+    }
+
+    private void keepKeyOnlyEntityType(@Nullable XmlElement entityType) {
+      if (entityType != null && !keptEntityTypes.contains(entityType) && keyOnlyEntityTypes.add(entityType)) {
+        // the key may be declared by the base type
+        keepKeyOnlyEntityType(entityTypes.get(entityType.getAttribute(BASE_TYPE)));
+      }
+    }
+  }
+
+  /**
+   * Lightweight XML element holding its serialized start tag, the attributes without namespace and the children.
+   */
+  private static final class XmlElement {
+    private final String localName;
+    private final String qualifiedName;
+    private final String startTag;
+    private final Map<String, String> attributes;
+    private final List<XmlElement> children = new ArrayList<>();
+    private String text;
+
+    private XmlElement(XMLStreamReader reader) {
+      localName = reader.getLocalName();
+      qualifiedName = qualify(reader.getPrefix(), localName);
+
+      StringBuilder builder = new StringBuilder("<").append(qualifiedName);
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        builder.append(' ').append(qualify("xmlns", reader.getNamespacePrefix(i))).append("=\"");
+        escape(builder, reader.getNamespaceURI(i));
+        builder.append('"');
+      }
+      Map<String, String> attributeMap = reader.getAttributeCount() == 0 ?
+        Collections.emptyMap() : new HashMap<>();
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        builder.append(' ').append(qualify(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)))
+          .append("=\"");
+        escape(builder, reader.getAttributeValue(i));
+        builder.append('"');
+        String namespace = reader.getAttributeNamespace(i);
+        if (namespace == null || namespace.isEmpty()) {
+          attributeMap.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+      }
+      startTag = builder.toString();
+      attributes = attributeMap;
+    }
+
+    @Nullable
+    private String getAttribute(String name) {
+      return attributes.get(name);
+    }
+
+    private List<XmlElement> getChildren(String childName) {
+      List<XmlElement> elements = new ArrayList<>();
+      for (XmlElement child : children) {
+        if (childName.equals(child.localName)) {
+          elements.add(child);
+        }
+      }
+      return elements;
+    }
+
+    private void writeStartTag(StringBuilder builder) {
+      builder.append(startTag).append('>');
+    }
+
+    private void writeEndTag(StringBuilder builder) {
+      builder.append("</").append(qualifiedName).append('>');
+    }
+
+    private void write(StringBuilder builder) {
+      if (children.isEmpty() && text == null) {
+        builder.append(startTag).append("/>");
+        return;
+      }
+      writeStartTag(builder);
+      if (text != null) {
+        escape(builder, text);
+      }
+      for (XmlElement child : children) {
+        child.write(builder);
+      }
+      writeEndTag(builder);
+    }
+
+    private static String qualify(@Nullable String prefix, @Nullable String name) {
+      if (prefix == null || prefix.isEmpty()) {
+        return name == null || name.isEmpty() ? "" : name;
+      }
+      return name == null || name.isEmpty() ? prefix : prefix + ":" + name;
+    }
+  }
+}
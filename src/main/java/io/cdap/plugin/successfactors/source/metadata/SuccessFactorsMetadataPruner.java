@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsMetadataPruner} reduces the SuccessFactors service metadata document ($metadata) to the
+ * elements required to read the given entity, before it is shipped to the runtime tasks.
+ * <p>
+ * The pruned EDMX holds the closure of the entity and its expand paths, as written by
+ * {@code SuccessFactorsMetadataIndex}.
+ * <p>
+ * Pruning is only an optimization, the complete metadata is returned if it can not be pruned.
+ */
+public class SuccessFactorsMetadataPruner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsMetadataPruner.class);
+
+  private SuccessFactorsMetadataPruner() {
+  }
+
+  /**
+   * Prunes the metadata document to the closure of the given entity and expand paths.
+   *
+   * @param metadata     SuccessFactors service metadata document
+   * @param entityName   SuccessFactors entity name
+   * @param expandOption navigation paths to be expanded, e.g. 'picklistOptions/picklistLabels,picklist'
+   * @return pruned metadata document or the given document if it can not be pruned
+   */
+  public static byte[] prune(byte[] metadata, String entityName, @Nullable String expandOption) {
+    byte[] prunedMetadata;
+    try {
+      prunedMetadata = buildPrunedMetadata(SuccessFactorsMetadataIndex.read(new ByteArrayInputStream(metadata)),
+                                           entityName, expandOption);
+    } catch (Exception e) {
+      LOG.warn("Metadata of '{}' could not be pruned, the complete metadata is used.", entityName, e);
+      return metadata;
+    }
+    return prunedMetadata == null ? metadata : prunedMetadata;
+  }
+
+  /**
+   * Prunes the indexed metadata document to the closure of the given entity and expand paths.
+   *
+   * @param metadataIndex indexed SuccessFactors service metadata document
+   * @param entityName    SuccessFactors entity name
+   * @param expandOption  navigation paths to be expanded, e.g. 'picklistOptions/picklistLabels,picklist'
+   * @return pruned metadata document or the complete document if it can not be pruned
+   */
+  public static byte[] prune(SuccessFactorsMetadataIndex metadataIndex, String entityName,
+                             @Nullable String expandOption) {
+    byte[] prunedMetadata = null;
+    try {
+      prunedMetadata = buildPrunedMetadata(metadataIndex, entityName, expandOption);
+    } catch (Exception e) {
+      LOG.warn("Metadata of '{}' could not be pruned, the complete metadata is used.", entityName, e);
+    }
+    return prunedMetadata == null ? metadataIndex.buildMetadata() : prunedMetadata;
+  }
+
+  @Nullable
+  private static byte[] buildPrunedMetadata(SuccessFactorsMetadataIndex metadataIndex, String entityName,
+                                            @Nullable String expandOption) throws Exception {
+    byte[] prunedMetadata = metadataIndex.buildEntityMetadata(entityName, getExpandPaths(expandOption));
+    if (prunedMetadata == null) {
+      return null;
+    }
+    // the pruned document must still resolve the extracted entity
+    Edm edm = EntityProvider.readMetadata(new ByteArrayInputStream(prunedMetadata), false);
+    if (new SuccessFactorsEntityProvider(edm).getEntityType(entityName) == null) {
+      LOG.warn("Pruned metadata does not contain entity '{}', the complete metadata is used.", entityName);
+      return null;
+    }
+    LOG.debug("Metadata of '{}' pruned to {} bytes.", entityName, prunedMetadata.length);
+    return prunedMetadata;
+  }
+
+  private static List<String> getExpandPaths(@Nullable String expandOption) {
+    List<String> expandPaths = new ArrayList<>();
+    if (SuccessFactorsUtil.isNotNullOrEmpty(expandOption)) {
+      for (String expandPath : expandOption.split(SuccessFactorsUrlContainer.PROPERTY_SEPARATOR)) {
+        if (!expandPath.trim().isEmpty()) {
+          expandPaths.add(expandPath.trim());
+        }
+      }
+    }
+    return expandPaths;
+  }
+}
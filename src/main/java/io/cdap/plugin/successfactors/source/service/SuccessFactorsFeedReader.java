@@ -0,0 +1,515 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordDecoder;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
+import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.ep.EntityProviderException;
+import org.apache.olingo.odata2.api.ep.EntityProviderReadProperties;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
+import org.apache.olingo.odata2.core.ep.aggregator.EntityInfoAggregator;
+import org.apache.olingo.odata2.core.ep.consumer.JsonEntryConsumer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsFeedReader} reads the SuccessFactors OData JSON feed one entry at a time.
+ * <p>
+ * The JSON feed has the following format:
+ * "d": {
+ *         "results": [
+ *             { entry },
+ *             { entry }
+ *         ],
+ *         "__next": "https://apisalesdemo2.successfactors.eu/odata/v2/EmpCompensation?$skiptoken=..."
+ *      }
+ * <p>
+ * Only the current entry is parsed, either into an {@code ODataEntry} typed as per the given {@code EdmEntitySet} or
+ * straight into a {@code StructuredRecord} by a {@code SuccessFactorsRecordDecoder}, and the '__next' link is
+ * available once all the entries are read. Read from a downloaded page, an entry is handed to Olingo straight from its
+ * bytes in the page, the feed being only tokenized to find the bounds of the entries. The parse time of a page is then
+ * close to the one of 'EntityProvider.readFeed', see {@code SuccessFactorsFeedReaderTest}, while only the entry being
+ * read is held rather than all the entries of the page.
+ */
+public class SuccessFactorsFeedReader implements Closeable {
+
+  private static final String ODATA_ROOT_ELEMENT = "d";
+  private static final String ODATA_RESULT_ELEMENT = "results";
+  private static final String ODATA_NEXT_ELEMENT = "__next";
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonParser parser;
+  // raw page, only kept when the feed is read from a downloaded page
+  @Nullable
+  private final byte[] data;
+  private final EdmEntitySet entitySet;
+  private final SuccessFactorsPluginConfig pluginConfig;
+  private final List<String> expandFieldList;
+  private final EntityProviderReadProperties readProperties;
+  private EntityInfoAggregator entityInfo;
+  private boolean inResults;
+  private boolean completed;
+  private String nextLink;
+  private Map<String, Object> lastKeyValues;
+
+  public SuccessFactorsFeedReader(InputStream dataStream, EdmEntitySet entitySet,
+                                  SuccessFactorsPluginConfig pluginConfig) throws IOException {
+    this(JSON_FACTORY.createParser(dataStream), null, entitySet, pluginConfig);
+  }
+
+  public SuccessFactorsFeedReader(byte[] data, EdmEntitySet entitySet, SuccessFactorsPluginConfig pluginConfig)
+    throws IOException {
+    this(JSON_FACTORY.createParser(data), data, entitySet, pluginConfig);
+  }
+
+  private SuccessFactorsFeedReader(JsonParser parser, @Nullable byte[] data, EdmEntitySet entitySet,
+                                   SuccessFactorsPluginConfig pluginConfig) {
+    this.parser = parser;
+    this.data = data;
+    this.entitySet = entitySet;
+    this.pluginConfig = pluginConfig;
+    this.expandFieldList = getExpandFieldList(pluginConfig.getExpandOption());
+    this.readProperties = EntityProviderReadProperties.init().build();
+  }
+
+  /**
+   * Reads the next entry from the feed.
+   *
+   * @return {@code ODataEntry} or null if all the entries are read
+   * @throws SuccessFactorsServiceException any feed parsing exception is wrapped under it.
+   */
+  @Nullable
+  public ODataEntry nextEntry() throws SuccessFactorsServiceException {
+    try {
+      if (!moveToNextEntry()) {
+        return null;
+      }
+      if (entityInfo == null) {
+        // aggregated once per feed rather than for every entry, as 'EntityProvider.readEntry' does
+        entityInfo = EntityInfoAggregator.create(entitySet);
+      }
+      JsonReader entryReader = new JsonReader(new StringReader(readEntryJson()));
+      ODataEntry entry = new JsonEntryConsumer(entryReader, entityInfo, readProperties).readSingleEntry();
+      lastKeyValues = entry.getProperties();
+      return entry;
+    } catch (EntityProviderException | IOException ex) {
+      throw new SuccessFactorsServiceException(getErrorMessage(), ex);
+    }
+  }
+
+  /**
+   * Reads the next entry from the feed and decodes it straight to a {@code StructuredRecord}.
+   *
+   * @param recordDecoder decoder compiled for the output schema
+   * @return {@code StructuredRecord} or null if all the entries are read
+   * @throws SuccessFactorsServiceException any feed parsing exception is wrapped under it.
+   */
+  @Nullable
+  public StructuredRecord nextRecord(SuccessFactorsRecordDecoder recordDecoder)
+    throws SuccessFactorsServiceException {
+    try {
+      if (!moveToNextEntry()) {
+        return null;
+      }
+      StructuredRecord record = recordDecoder.decode(parser);
+      lastKeyValues = new HashMap<>(recordDecoder.getKeyValues());
+      return record;
+    } catch (EdmException | IOException ex) {
+      throw new SuccessFactorsServiceException(getErrorMessage(), ex);
+    }
+  }
+
+  /**
+   * @return the '__next' link of the feed, only available once all the entries are read.
+   */
+  @Nullable
+  public String getNextLink() {
+    return nextLink;
+  }
+
+  /**
+   * Scans the downloaded page for the '__next' link without reading the entries, so that the next page can be
+   * requested before the entries of this one are read.
+   *
+   * @return the '__next' link of the feed, or null if the feed has no next page or is not read from a downloaded page
+   * @throws IOException any JSON parsing exception
+   */
+  @Nullable
+  public String findNextLink() throws IOException {
+    if (data == null) {
+      return null;
+    }
+    try (JsonParser scanner = JSON_FACTORY.createParser(data)) {
+      if (scanner.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (scanner.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = scanner.getCurrentName();
+        if (scanner.nextToken() == JsonToken.START_OBJECT && ODATA_ROOT_ELEMENT.equals(fieldName)) {
+          while (scanner.nextToken() == JsonToken.FIELD_NAME) {
+            String rootFieldName = scanner.getCurrentName();
+            if (scanner.nextToken() == JsonToken.VALUE_STRING && ODATA_NEXT_ELEMENT.equals(rootFieldName)) {
+              return scanner.getText();
+            }
+            scanner.skipChildren();
+          }
+          return null;
+        }
+        scanner.skipChildren();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @return size of the downloaded page in bytes, 0 if the feed is not read from a downloaded page.
+   */
+  public long getSize() {
+    return data == null ? 0 : data.length;
+  }
+
+  /**
+   * @return raw JSON of the downloaded page, e.g. to report a page whose entries fail to be parsed, or null if the feed
+   * is not read from a downloaded page.
+   */
+  @Nullable
+  public String getJson() {
+    return data == null ? null : new String(data, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return number of bytes of the downloaded page parsed so far.
+   */
+  public long getReadBytes() {
+    return parser.getCurrentLocation().getByteOffset();
+  }
+
+  /**
+   * @return the property values of the last read entry, holding at least its key property values, or null if no
+   * entry is read.
+   */
+  @Nullable
+  public Map<String, Object> getLastKeyValues() {
+    return lastKeyValues;
+  }
+
+  @Override
+  public void close() throws IOException {
+    completed = true;
+    parser.close();
+  }
+
+  /**
+   * Moves the parser to the start of the next entry object.
+   *
+   * @return true if the parser is positioned at the next entry, false if all the entries are read
+   */
+  private boolean moveToNextEntry() throws IOException {
+    if (completed) {
+      return false;
+    }
+    if (!inResults && !moveToResults()) {
+      complete();
+      return false;
+    }
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      // end of the 'results' array, the '__next' link follows it
+      inResults = false;
+      readRemainingFields();
+      complete();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Moves the parser to the first entry of the 'results' array. Supports both the 'd.results' and the 'd' array
+   * formats.
+   *
+   * @return true if the 'results' array is found
+   */
+  private boolean moveToResults() throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return false;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (ODATA_ROOT_ELEMENT.equals(fieldName)) {
+        if (token == JsonToken.START_ARRAY) {
+          inResults = true;
+          return true;
+        }
+        if (token == JsonToken.START_OBJECT) {
+          return moveToResultsField();
+        }
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  private boolean moveToResultsField() throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (ODATA_RESULT_ELEMENT.equals(fieldName) && token == JsonToken.START_ARRAY) {
+        inResults = true;
+        return true;
+      }
+      readField(fieldName);
+    }
+    return false;
+  }
+
+  /**
+   * Reads the fields placed after the 'results' array of the 'd' element.
+   */
+  private void readRemainingFields() throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      parser.nextToken();
+      readField(fieldName);
+    }
+  }
+
+  private void readField(String fieldName) throws IOException {
+    if (ODATA_NEXT_ELEMENT.equals(fieldName) && parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+      nextLink = parser.getText();
+    } else {
+      parser.skipChildren();
+    }
+  }
+
+  private void complete() throws IOException {
+    completed = true;
+    parser.close();
+  }
+
+  /**
+   * Returns the JSON of the current entry object. Read from a downloaded page without expanded entity data to filter,
+   * the entry is decoded straight from its bytes in the page, whose bounds the parser finds by skipping the entry, so
+   * that the entry is parsed by Olingo only. Otherwise the entry is copied, after removing the expanded entity data if
+   * required.
+   *
+   * @return JSON of the current entry
+   */
+  private String readEntryJson() throws IOException {
+    if (data != null && expandFieldList.isEmpty()) {
+      // the offsets of a parser over a byte array are the offsets in the array
+      int start = (int) parser.getTokenLocation().getByteOffset();
+      parser.skipChildren();
+      int end = (int) parser.getCurrentLocation().getByteOffset();
+      return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+    StringWriter output = new StringWriter();
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+      if (expandFieldList.isEmpty()) {
+        generator.copyCurrentStructure(parser);
+      } else {
+        copyFilteredEntry(generator);
+      }
+    }
+    return output.toString();
+  }
+
+  /**
+   * Copies the current entry object, removing the unreadable nodes from the expanded entity data.
+   * The expanded entity data has the following format:
+   * "customManager": {
+   *                    "results": [
+   *                        {
+   *                            "__metadata": { ... },
+   *                            "userId": "107030",
+   *                            "customManager": { "__deferred": { ... } },
+   *                            "empInfo": { "__count": "1", "results": [ ... ] }
+   *                        }
+   *                    ]
+   *                  }
+   * Within the expanded entities, the nested container nodes are dropped, except the objects holding a 'results'
+   * field, which are kept with their 'results' entries filtered the same way. As the 'results' field may follow the
+   * other fields of its object, each expanded object is buffered before it is copied.
+   *
+   * @param generator generator to copy the entry to
+   */
+  private void copyFilteredEntry(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      generator.writeFieldName(fieldName);
+      if (token == JsonToken.START_OBJECT && expandFieldList.contains(fieldName)) {
+        TokenBuffer expandedNode = bufferCurrentValue(parser);
+        if (hasResults(expandedNode)) {
+          copyResultsObject(parserOf(expandedNode), generator);
+        } else {
+          copyReadableObject(parserOf(expandedNode), generator);
+        }
+      } else {
+        generator.copyCurrentStructure(parser);
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Copies the current object of the source, dropping the nested container nodes which do not hold a 'results' field.
+   *
+   * @param source    parser positioned at the start of the object
+   * @param generator generator to copy the object to
+   */
+  private static void copyReadableObject(JsonParser source, JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    while (source.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = source.getCurrentName();
+      JsonToken token = source.nextToken();
+      if (!token.isStructStart()) {
+        generator.writeFieldName(fieldName);
+        generator.copyCurrentEvent(source);
+      } else if (token == JsonToken.START_OBJECT) {
+        TokenBuffer nestedNode = bufferCurrentValue(source);
+        if (hasResults(nestedNode)) {
+          generator.writeFieldName(fieldName);
+          copyResultsObject(parserOf(nestedNode), generator);
+        }
+      } else {
+        source.skipChildren();
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Copies the current object of the source with the entries of its 'results' array filtered, keeping its other
+   * fields as they are.
+   *
+   * @param source    parser positioned at the start of the object
+   * @param generator generator to copy the object to
+   */
+  private static void copyResultsObject(JsonParser source, JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    while (source.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = source.getCurrentName();
+      JsonToken token = source.nextToken();
+      generator.writeFieldName(fieldName);
+      if (ODATA_RESULT_ELEMENT.equals(fieldName) && token == JsonToken.START_ARRAY) {
+        copyResultEntries(source, generator);
+      } else {
+        generator.copyCurrentStructure(source);
+      }
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Copies the current 'results' array of the source, removing the unreadable nodes from each of its entries.
+   *
+   * @param source    parser positioned at the start of the array
+   * @param generator generator to copy the array to
+   */
+  private static void copyResultEntries(JsonParser source, JsonGenerator generator) throws IOException {
+    generator.writeStartArray();
+    for (JsonToken token = source.nextToken(); token != JsonToken.END_ARRAY; token = source.nextToken()) {
+      if (token == JsonToken.START_OBJECT) {
+        copyReadableObject(source, generator);
+      } else {
+        generator.copyCurrentStructure(source);
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  /**
+   * Buffers the current value of the source, leaving the source at its end.
+   */
+  private static TokenBuffer bufferCurrentValue(JsonParser source) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(source);
+    buffer.copyCurrentStructure(source);
+    return buffer;
+  }
+
+  /**
+   * Returns a parser over the buffered value, positioned at its start.
+   */
+  private static JsonParser parserOf(TokenBuffer buffer) throws IOException {
+    JsonParser bufferParser = buffer.asParser();
+    bufferParser.nextToken();
+    return bufferParser;
+  }
+
+  /**
+   * Checks whether the buffered object holds a 'results' field, at any position among its fields.
+   */
+  private static boolean hasResults(TokenBuffer buffer) throws IOException {
+    JsonParser bufferParser = parserOf(buffer);
+    while (bufferParser.nextToken() == JsonToken.FIELD_NAME) {
+      if (ODATA_RESULT_ELEMENT.equals(bufferParser.getCurrentName())) {
+        return true;
+      }
+      bufferParser.nextToken();
+      bufferParser.skipChildren();
+    }
+    return false;
+  }
+
+  private static List<String> getExpandFieldList(@Nullable String expandOption) {
+    List<String> expandFieldList = new ArrayList<>();
+    if (SuccessFactorsUtil.isNullOrEmpty(expandOption)) {
+      return expandFieldList;
+    }
+    if (expandOption.contains(SuccessFactorsUrlContainer.PROPERTY_SEPARATOR)) {
+      expandFieldList.addAll(Arrays.asList(expandOption.split(SuccessFactorsUrlContainer.PROPERTY_SEPARATOR)));
+    } else if (expandOption.contains(SuccessFactorsUrlContainer.NAV_PROPERTY_SEPARATOR)) {
+      expandFieldList.add(expandOption.split(SuccessFactorsUrlContainer.NAV_PROPERTY_SEPARATOR)[0]);
+    } else {
+      expandFieldList.add(expandOption);
+    }
+    return expandFieldList;
+  }
+
+  private String getErrorMessage() {
+    if (pluginConfig.getAssociatedEntityName() != null) {
+      return ResourceConstants.ERR_UNSUPPORTED_ASSOCIATED_ENTITY
+        .getMsgForKey(pluginConfig.getAssociatedEntityName(), pluginConfig.getEntityName());
+    }
+    return ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKeyWithCode(pluginConfig.getEntityName());
+  }
+}
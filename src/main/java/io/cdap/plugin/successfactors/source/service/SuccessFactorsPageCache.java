@@ -0,0 +1,277 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsReaderMetrics;
+import okhttp3.HttpUrl;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsPageCache} keeps the pages downloaded by the record readers of a run on the local disk
+ * of the executor, so that another attempt of the same split, speculative or retried, reads them from the disk instead
+ * of calling the SuccessFactors service again.
+ * <p>
+ * A page is keyed by the run, the split and the data URL, normalized by sorting its query parameters. The pages of a
+ * run are kept in their own directory, up to the given size: once exceeded, the least recently used pages are
+ * evicted. The directory of a run is deleted once the run finishes, or with the JVM of the executor. The directories
+ * left behind by killed executors are deleted by the next run once stale.
+ * <p>
+ * The index of the cached pages is rebuilt from the directory of the run when the cache is opened, and a page missing
+ * from the index is still looked up on the disk, so that an attempt running in another JVM sharing the same temporary
+ * directory, such as the executor started after one was killed, also reads the pages left by the previous attempt.
+ */
+public class SuccessFactorsPageCache {
+
+  public static final String HITS_METRIC = "successfactors.page.cache.hits";
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsPageCache.class);
+  private static final String CACHE_DIRECTORY = "successfactors-page-cache";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final long STALE_RUN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private static final Map<String, SuccessFactorsPageCache> RUN_CACHES = new ConcurrentHashMap<>();
+
+  private final Path runDirectory;
+  private final long maxBytes;
+  private final SuccessFactorsReaderMetrics readerMetrics;
+  // cached pages in access order, with their size
+  private final LinkedHashMap<String, Long> pages = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
+
+  @VisibleForTesting
+  SuccessFactorsPageCache(Path runDirectory, long maxBytes, SuccessFactorsReaderMetrics readerMetrics) {
+    this.runDirectory = runDirectory;
+    this.maxBytes = maxBytes;
+    this.readerMetrics = readerMetrics;
+    loadPages();
+  }
+
+  /**
+   * Returns the page cache of the given run, shared by the record readers of the JVM.
+   *
+   * @param runId         identifier of the run, see {@code SuccessFactorsReadPlan#getRunId()}
+   * @param maxBytes      maximum size in bytes of the cached pages
+   * @param readerMetrics metrics of the stage planning the run, counting the pages read from the cache
+   * @return {@code SuccessFactorsPageCache}
+   */
+  public static SuccessFactorsPageCache forRun(String runId, long maxBytes, SuccessFactorsReaderMetrics readerMetrics) {
+    return RUN_CACHES.computeIfAbsent(runId, id -> {
+      Path cacheDirectory = getCacheDirectory();
+      deleteStaleRuns(cacheDirectory);
+      Path runDirectory = cacheDirectory.resolve(id);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteDirectory(runDirectory)));
+      return new SuccessFactorsPageCache(runDirectory, maxBytes, readerMetrics);
+    });
+  }
+
+  /**
+   * Deletes the cached pages of the given run, once it is finished.
+   *
+   * @param runId identifier of the run
+   */
+  public static void deleteRun(String runId) {
+    RUN_CACHES.remove(runId);
+    deleteDirectory(getCacheDirectory().resolve(runId));
+  }
+
+  /**
+   * Returns the cached page of the given split and data URL.
+   *
+   * @param splitKey identifier of the split within the run
+   * @param dataURL  data URL of the page
+   * @return downloaded page or null if not cached
+   */
+  @Nullable
+  byte[] get(String splitKey, URL dataURL) {
+    String pageKey = getPageKey(splitKey, dataURL);
+    boolean indexed;
+    synchronized (this) {
+      // also marks the page as the most recently used
+      indexed = pages.get(pageKey) != null;
+    }
+    try {
+      byte[] page = Files.readAllBytes(runDirectory.resolve(pageKey));
+      if (!indexed) {
+        // cached by another JVM
+        index(pageKey, page.length);
+      }
+      readerMetrics.pageCacheHit();
+      LOG.debug("Read the page '{}' of the split '{}' from the page cache.", dataURL, splitKey);
+      return page;
+    } catch (NoSuchFileException e) {
+      // evicted meanwhile
+      return null;
+    } catch (IOException e) {
+      LOG.warn("Failed to read the page '{}' from the page cache.", dataURL, e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the given downloaded page, evicting the least recently used pages once the cache is full. A page larger
+   * than the cache is not cached.
+   *
+   * @param splitKey identifier of the split within the run
+   * @param dataURL  data URL of the page
+   * @param page     downloaded page
+   */
+  void put(String splitKey, URL dataURL, byte[] page) {
+    if (page.length > maxBytes) {
+      return;
+    }
+    String pageKey = getPageKey(splitKey, dataURL);
+    try {
+      Files.createDirectories(runDirectory);
+      // written first and moved once complete, so that a concurrent attempt never reads a partial page
+      Path tempFile = Files.createTempFile(runDirectory, pageKey, TEMP_SUFFIX);
+      Files.write(tempFile, page);
+      Files.move(tempFile, runDirectory.resolve(pageKey), StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Failed to write the page '{}' to the page cache.", dataURL, e);
+      return;
+    }
+    index(pageKey, page.length);
+  }
+
+  synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  /**
+   * Adds the given page to the index as the most recently used, and evicts the least recently used pages once the
+   * cache is full.
+   */
+  private void index(String pageKey, long pageBytes) {
+    List<String> evictedPages = new ArrayList<>();
+    synchronized (this) {
+      Long previousSize = pages.put(pageKey, pageBytes);
+      cachedBytes += pageBytes - (previousSize == null ? 0 : previousSize);
+      for (Iterator<Map.Entry<String, Long>> iterator = pages.entrySet().iterator();
+           cachedBytes > maxBytes && iterator.hasNext(); ) {
+        Map.Entry<String, Long> eldest = iterator.next();
+        iterator.remove();
+        cachedBytes -= eldest.getValue();
+        evictedPages.add(eldest.getKey());
+      }
+    }
+    for (String evictedPage : evictedPages) {
+      try {
+        Files.deleteIfExists(runDirectory.resolve(evictedPage));
+      } catch (IOException e) {
+        LOG.debug("Failed to delete the evicted page '{}'.", evictedPage, e);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the index from the pages found in the directory of the run, the least recently modified first.
+   */
+  private void loadPages() {
+    if (!Files.isDirectory(runDirectory)) {
+      return;
+    }
+    List<Path> pageFiles = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(runDirectory, file -> Files.isRegularFile(file)
+      && !file.getFileName().toString().endsWith(TEMP_SUFFIX))) {
+      files.forEach(pageFiles::add);
+    } catch (IOException e) {
+      LOG.debug("Failed to list the page cache directory '{}'.", runDirectory, e);
+      return;
+    }
+    pageFiles.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+    for (Path pageFile : pageFiles) {
+      index(pageFile.getFileName().toString(), pageFile.toFile().length());
+    }
+    if (!pages.isEmpty()) {
+      LOG.debug("Found {} pages in the page cache directory '{}'.", pages.size(), runDirectory);
+    }
+  }
+
+  /**
+   * Returns the file name of the page, a digest of the split and of the data URL with its query parameters sorted,
+   * so that the same page is found whatever the order the parameters were added in.
+   */
+  @VisibleForTesting
+  static String getPageKey(String splitKey, URL dataURL) {
+    String normalizedURL = dataURL.toString();
+    HttpUrl url = HttpUrl.parse(normalizedURL);
+    if (url != null) {
+      HttpUrl.Builder builder = url.newBuilder().query(null);
+      url.queryParameterNames().stream().sorted().forEach(name -> url.queryParameterValues(name)
+        .forEach(value -> builder.addQueryParameter(name, value)));
+      normalizedURL = builder.build().toString();
+    }
+    return DigestUtils.sha256Hex(splitKey + '\n' + normalizedURL);
+  }
+
+  private static Path getCacheDirectory() {
+    return Paths.get(System.getProperty("java.io.tmpdir"), CACHE_DIRECTORY);
+  }
+
+  private static void deleteStaleRuns(Path cacheDirectory) {
+    if (!Files.isDirectory(cacheDirectory)) {
+      return;
+    }
+    long staleTime = System.currentTimeMillis() - STALE_RUN_MILLIS;
+    try (DirectoryStream<Path> runDirectories = Files.newDirectoryStream(cacheDirectory)) {
+      for (Path runDirectory : runDirectories) {
+        FileTime modifiedTime = Files.getLastModifiedTime(runDirectory);
+        if (modifiedTime.toMillis() < staleTime) {
+          deleteDirectory(runDirectory);
+        }
+      }
+    } catch (IOException e) {
+      LOG.debug("Failed to list the page cache directory '{}'.", cacheDirectory, e);
+    }
+  }
+
+  private static void deleteDirectory(Path directory) {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete the page cache directory '{}'.", directory, e);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This {@code SuccessFactorsRunPlanner} prepares the pipeline stage by issuing the independent SAP SuccessFactors
+ * service calls concurrently, instead of one after another:
+ * - the tester URL call, which validates the given parameters
+ * - the metadata call, from which both the output schema and the encoded entity metadata are built
+ * - the record count call, which is used to plan the splits
+ * <p>
+ * The metadata is fetched once by the shared {@code SuccessFactorsService}. The results are read in the same order
+ * as the calls were made before, so a failed tester call is still reported ahead of the failures it causes in the
+ * other calls. The calls depending on these results, such as the key probes of key range partitioning, are run in
+ * the same pool, see {@link #invokeAll(List)}.
+ */
+public class SuccessFactorsRunPlanner implements AutoCloseable {
+
+  public static final String PLANNING_TIME_METRIC = "successfactors.planning.time.ms";
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsRunPlanner.class);
+  private static final int MAX_CONCURRENT_CALLS = 3;
+
+  private final long startTime;
+  private final ExecutorService executor;
+  private final Future<Void> urlCheck;
+  private final Future<Schema> outputSchema;
+  private final Future<Long> availableRowCount;
+  private final Future<String> encodedMetadata;
+
+  private SuccessFactorsRunPlanner(SuccessFactorsService successFactorsService, boolean buildSchema,
+                                   boolean configureJob) {
+    startTime = System.currentTimeMillis();
+    executor = Executors.newFixedThreadPool(MAX_CONCURRENT_CALLS, new ThreadFactoryBuilder()
+      .setNameFormat("successfactors-planner-%d").setDaemon(true).build());
+    Callable<Void> urlCheckCall = () -> {
+      successFactorsService.checkSuccessFactorsURL();
+      return null;
+    };
+    urlCheck = buildSchema ? executor.submit(urlCheckCall) : null;
+    outputSchema = buildSchema ? executor.submit(successFactorsService::buildOutputSchema) : null;
+    availableRowCount = configureJob ? executor.submit(successFactorsService::getTotalAvailableRowCount) : null;
+    encodedMetadata = configureJob ? executor.submit(successFactorsService::getEncodedServiceMetadata) : null;
+  }
+
+  /**
+   * Starts the calls required to build the output schema.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @return {@code SuccessFactorsRunPlanner}
+   */
+  public static SuccessFactorsRunPlanner planSchema(SuccessFactorsService successFactorsService) {
+    return new SuccessFactorsRunPlanner(successFactorsService, true, false);
+  }
+
+  /**
+   * Starts the calls required to configure the Hadoop job, along with the output schema calls if required.
+   *
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param buildSchema           whether the output schema is to be built
+   * @return {@code SuccessFactorsRunPlanner}
+   */
+  public static SuccessFactorsRunPlanner planRun(SuccessFactorsService successFactorsService, boolean buildSchema) {
+    return new SuccessFactorsRunPlanner(successFactorsService, buildSchema, true);
+  }
+
+  /**
+   * Waits for the tester URL call.
+   *
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public void checkSuccessFactorsURL() throws TransportException, SuccessFactorsServiceException {
+    try {
+      await(urlCheck);
+    } catch (IOException e) {
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Waits for the output schema.
+   *
+   * @return {@code Schema}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public Schema buildOutputSchema() throws TransportException, SuccessFactorsServiceException {
+    try {
+      return await(outputSchema);
+    } catch (IOException e) {
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Waits for the total available record count.
+   *
+   * @return count of total available records
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   * @throws IOException                    if the record count can not be read
+   */
+  public long getTotalAvailableRowCount() throws TransportException, SuccessFactorsServiceException, IOException {
+    return await(availableRowCount);
+  }
+
+  /**
+   * Waits for the base64 encoded entity metadata.
+   *
+   * @return base64 encoded metadata string
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  public String getEncodedServiceMetadata() throws TransportException, SuccessFactorsServiceException {
+    try {
+      return await(encodedMetadata);
+    } catch (IOException e) {
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Runs the given calls concurrently, along with the calls still running, and waits for all of them.
+   *
+   * @param calls calls to run
+   * @param <T>   type of the call results
+   * @return results of the calls, in the order of the calls
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
+   */
+  public <T> List<T> invokeAll(List<Callable<T>> calls) throws TransportException, SuccessFactorsServiceException {
+    List<Future<T>> futures = new ArrayList<>();
+    for (Callable<T> call : calls) {
+      futures.add(executor.submit(call));
+    }
+    List<T> results = new ArrayList<>();
+    try {
+      for (Future<T> future : futures) {
+        results.add(await(future));
+      }
+    } catch (IOException e) {
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    } finally {
+      // the calls left once one failed are obsolete
+      futures.forEach(future -> future.cancel(true));
+    }
+    return results;
+  }
+
+  /**
+   * @return milliseconds elapsed since the calls were started
+   */
+  public long getElapsedMillis() {
+    return System.currentTimeMillis() - startTime;
+  }
+
+  /**
+   * Cancels the calls which are still running, e.g. after a failed call made the other results obsolete.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    if (!executor.isTerminated()) {
+      LOG.debug("Cancelling the pending planning calls.");
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T> T await(Future<T> call) throws TransportException, SuccessFactorsServiceException,
+    IOException {
+    if (call == null) {
+      throw new IllegalStateException("The requested call was not planned.");
+    }
+    try {
+      return call.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TransportException) {
+        throw (TransportException) cause;
+      } else if (cause instanceof SuccessFactorsServiceException) {
+        throw (SuccessFactorsServiceException) cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new SuccessFactorsServiceException(cause.getMessage(), cause);
+    }
+  }
+}
@@ -16,8 +16,6 @@
 
 package io.cdap.plugin.successfactors.source.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
 import io.cdap.plugin.successfactors.common.exception.TransportException;
@@ -25,37 +23,44 @@ import io.cdap.plugin.successfactors.common.util.ExceptionParser;
 import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
 import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEdmCache;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataCache;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataIndex;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataPruner;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordDecoder;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsUrlContainer;
 import okhttp3.HttpUrl;
 import org.apache.olingo.odata2.api.edm.Edm;
 import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.edm.EdmEntityType;
 import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.edm.EdmLiteralKind;
+import org.apache.olingo.odata2.api.edm.EdmProperty;
+import org.apache.olingo.odata2.api.edm.EdmSimpleType;
 import org.apache.olingo.odata2.api.ep.EntityProvider;
 import org.apache.olingo.odata2.api.ep.EntityProviderException;
-import org.apache.olingo.odata2.api.ep.EntityProviderReadProperties;
-import org.apache.olingo.odata2.api.ep.feed.ODataFeed;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
@@ -72,14 +77,25 @@ public class SuccessFactorsService {
   public static final String TEST = "TEST";
   public static final String METADATA = "METADATA";
   private static final String COUNT = "COUNT";
+  private static final String DATA = "DATA";
   private static final String SERVER_SIDE = "serverSide";
-  private static final String ODATA_ROOT_ELEMENT = "d";
-  private static final String ODATA_RESULT_ELEMENT = "results";
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsService.class);
   private final SuccessFactorsPluginConfig pluginConfig;
   private final SuccessFactorsTransporter successFactorsHttpClient;
   private final SuccessFactorsUrlContainer urlContainer;
+  private SuccessFactorsMetadataCache metadataCache;
+  // service metadata of the entity, fetched and indexed once per service
+  private SuccessFactorsMetadataIndex metadataIndex;
   private String nextUrl;
+  // condition on the last read key, only used with keyset pagination
+  private String keysetFilter;
+  // condition of the partition of the split, only set when the split is planned from a key range, a time window or a
+  // partition filter
+  private String splitFilter;
+  private SuccessFactorsFeedReader currentFeed;
+  // only set when the downloaded pages of the split are cached
+  private SuccessFactorsPageCache pageCache;
+  private String splitKey;
 
   public SuccessFactorsService(SuccessFactorsPluginConfig pluginConfig,
                                SuccessFactorsTransporter successFactorsHttpClient) {
@@ -118,7 +134,7 @@ public class SuccessFactorsService {
    */
   public Schema buildOutputSchema() throws SuccessFactorsServiceException, TransportException {
 
-    SuccessFactorsEntityProvider edmData = fetchServiceMetadata(callEntityMetadata());
+    SuccessFactorsEntityProvider edmData = fetchServiceMetadata();
     SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
 
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getSelectOption())) {
@@ -139,32 +155,37 @@ public class SuccessFactorsService {
   }
 
   /**
-   * Calls the SAP SuccessFactors Service and returns the {@code Edm} instance.
+   * Indexes the SAP SuccessFactors service metadata and returns the {@code SuccessFactorsEntityProvider} instance,
+   * which materializes only the metadata of the requested entities. The metadata is fetched once and shared by all the
+   * calls of this service, and reused from the metadata cache, if enabled.
    *
    * @return {@code SuccessFactorsEntityProvider}
+   * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any SuccessFactors service based exception is wrapped under it.
    */
-  private SuccessFactorsEntityProvider fetchServiceMetadata(InputStream metadataStream)
-    throws SuccessFactorsServiceException {
-    try (InputStream stream = metadataStream) {
-      Edm metadata = EntityProvider.readMetadata(stream, false);
-      return new SuccessFactorsEntityProvider(metadata);
-    } catch (EntityProviderException | IOException e) {
-      String errMsg = ResourceConstants.ERR_READING_METADATA.getMsgForKey(pluginConfig.getEntityName());
-      throw new SuccessFactorsServiceException(errMsg, e);
+  private SuccessFactorsEntityProvider fetchServiceMetadata() throws TransportException,
+    SuccessFactorsServiceException {
+    return new SuccessFactorsEntityProvider(getMetadataIndex());
+  }
+
+  private synchronized SuccessFactorsMetadataIndex getMetadataIndex() throws TransportException,
+    SuccessFactorsServiceException {
+    if (metadataIndex == null) {
+      try {
+        metadataIndex = getMetadataCache().getMetadataIndex(urlContainer.getMetadataURL());
+      } catch (EntityProviderException e) {
+        String errMsg = ResourceConstants.ERR_READING_METADATA.getMsgForKey(pluginConfig.getEntityName());
+        throw new SuccessFactorsServiceException(errMsg, e);
+      }
     }
+    return metadataIndex;
   }
 
-  /**
-   * Calls the SAP SuccessFactors catalog entity to fetch Entity metadata
-   *
-   * @return {@code InputStream}
-   * @throws TransportException any http client exceptions are wrapped under it.
-   */
-  private InputStream callEntityMetadata() throws TransportException {
-    SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
-      .callSuccessFactorsEntity(urlContainer.getMetadataURL(), MediaType.APPLICATION_XML, METADATA);
-    return responseContainer.getResponseStream();
+  private SuccessFactorsMetadataCache getMetadataCache() {
+    if (metadataCache == null) {
+      metadataCache = new SuccessFactorsMetadataCache(pluginConfig.getConnection(), successFactorsHttpClient);
+    }
+    return metadataCache;
   }
 
   /**
@@ -176,8 +197,22 @@ public class SuccessFactorsService {
    * @throws IOException
    */
   public long getTotalAvailableRowCount() throws TransportException, SuccessFactorsServiceException, IOException {
+    return getRecordCount(null);
+  }
+
+  /**
+   * Fetches the number of available records matching the given condition, combined with the filter option.
+   *
+   * @param condition filter condition e.g. of a time window, null to count all the available records
+   * @return number of records
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   * @throws IOException                    if the count can not be read.
+   */
+  public long getRecordCount(@Nullable String condition) throws TransportException, SuccessFactorsServiceException,
+    IOException {
     try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(
-      callEntityDataCount(), StandardCharsets.UTF_8))) {
+      callEntityDataCount(urlContainer.getRecordCountURL(condition)), StandardCharsets.UTF_8))) {
       String raw = bufferedReader.lines().collect(Collectors.joining(""));
       return Long.parseLong(raw);
     }
@@ -186,13 +221,14 @@ public class SuccessFactorsService {
   /**
    * Calls the SAP SuccessFactors service entity to fetch the total number of available records
    *
+   * @param countURL record count URL
    * @return
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
    */
-  private InputStream callEntityDataCount() throws SuccessFactorsServiceException, TransportException {
+  private InputStream callEntityDataCount(URL countURL) throws SuccessFactorsServiceException, TransportException {
     SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient
-      .callSuccessFactors(urlContainer.getTotalRecordCountURL(), MediaType.TEXT_PLAIN, COUNT);
+      .callSuccessFactors(countURL, MediaType.TEXT_PLAIN, COUNT);
 
     String errMsg = ResourceConstants.ERR_FETCH_RECORD_COUNT.getMsgForKeyWithCode(pluginConfig.getEntityName());
     ExceptionParser.checkAndThrowException(errMsg, responseContainer);
@@ -200,88 +236,430 @@ public class SuccessFactorsService {
   }
 
   /**
+   * Fetches the SAP SuccessFactors entity metadata, pruned to the entity closure, as base64 encoded string.
+   *
+   * @return base64 encoded metadata string
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
    */
   public String getEncodedServiceMetadata() throws TransportException, SuccessFactorsServiceException {
-    byte[] buffer = new byte[1024];
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    int numRead = 0;
-    try (InputStream metaDataStream = callEntityMetadata()) {
-      while ((numRead = metaDataStream.read(buffer)) > -1) {
-        output.write(buffer, 0, numRead);
-      }
-
-      return Base64.getEncoder().encodeToString(output.toByteArray());
-    } catch (IOException ioe) {
-      throw new SuccessFactorsServiceException(ResourceConstants.ERR_METADATA_ENCODED_STRING
-                                                 .getMsgForKeyWithCode(pluginConfig.getEntityName()), ioe);
-
-    }
+    // only the entity closure is required to read the records
+    byte[] metadata = SuccessFactorsMetadataPruner.prune(getMetadataIndex(), pluginConfig.getEntityName(),
+                                                         pluginConfig.getExpandOption());
+    return Base64.getEncoder().encodeToString(metadata);
   }
 
   /**
    * Converts the base64 encoded SuccessFactors entity metadata string to actual 'Edm' type.
-   * This method will be used in the runtime.
+   * This method will be used in the runtime. The parsed 'Edm' is cached per JVM and shared by all the splits reading
+   * the same metadata.
    *
    * @param encodedMetadata base64 encoded SuccessFactors entity metadata string
    * @return {@code Edm}
    * @throws SuccessFactorsServiceException any SuccessFactors based exception is wrapped under it.
    */
   public Edm getSuccessFactorsServiceEdm(String encodedMetadata) throws SuccessFactorsServiceException {
+    return SuccessFactorsEdmCache.getEdm(encodedMetadata, () -> decodeServiceEdm(encodedMetadata));
+  }
+
+  private Edm decodeServiceEdm(String encodedMetadata) throws SuccessFactorsServiceException {
     try {
       byte[] bytes = Base64.getDecoder().decode(encodedMetadata);
       try (ByteArrayInputStream metadataStream = new ByteArrayInputStream(bytes)) {
-        return fetchServiceMetadata(metadataStream).getEdmMetadata();
+        return EntityProvider.readMetadata(metadataStream, false);
       }
     } catch (IOException | IllegalArgumentException e) {
       throw new SuccessFactorsServiceException(
         ResourceConstants.ERR_METADATA_DECODE.getMsgForKeyWithCode(pluginConfig.getEntityName()), e);
+    } catch (EntityProviderException e) {
+      String errMsg = ResourceConstants.ERR_READING_METADATA.getMsgForKey(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, e);
     }
   }
 
   /**
-   * Calls the SAP SuccessFactors service to fetch records and convert it into list of {@code ODataEntry}.
-   * skip and top params are only used with client side pagination.
+   * @return true if the records of a split are to be read by the concurrent stages of the pipelined reader.
+   */
+  public boolean isPipelinedRead() {
+    return pluginConfig.isPipelinedRead();
+  }
+
+  /**
+   * @return maximum number of pages of a split downloaded ahead of the page being read.
+   */
+  public int getPrefetchDepth() {
+    return pluginConfig.getPrefetchDepth();
+  }
+
+  /**
+   * @return number of windows of a split downloaded in parallel.
+   */
+  public int getPageConcurrency() {
+    return pluginConfig.getPageConcurrency();
+  }
+
+  /**
+   * @return true if the windows of a split are emitted as they complete.
+   */
+  public boolean isUnorderedRead() {
+    return pluginConfig.isUnorderedRead();
+  }
+
+  /**
+   * @return true if the number of records of the client side pages adapts to the response times of the service.
+   */
+  public boolean isAdaptivePageSize() {
+    return pluginConfig.isAdaptivePageSize();
+  }
+
+  /**
+   * @return true if the records failing to be parsed are sent to the error output.
+   */
+  public boolean isErrorTolerantRead() {
+    return pluginConfig.isErrorTolerantRead();
+  }
+
+  /**
+   * @return maximum number of bytes held by the record reader of a split, or null if not limited.
+   */
+  @Nullable
+  public Long getReaderMemoryBudgetBytes() {
+    return pluginConfig.getReaderMemoryBudgetBytes();
+  }
+
+  /**
+   * @return maximum number of bytes of the pages cached by an executor, or null if the pages are not cached.
+   */
+  @Nullable
+  public Long getPageCacheBytes() {
+    return pluginConfig.getPageCacheBytes();
+  }
+
+  /**
+   * Reads the pages of the split through the given page cache, so that the pages already downloaded by another
+   * attempt of the same split are not requested again.
+   *
+   * @param pageCache page cache of the run
+   * @param splitKey  identifier of the split within the run
+   */
+  public void setPageCache(SuccessFactorsPageCache pageCache, String splitKey) {
+    this.pageCache = pageCache;
+    this.splitKey = splitKey;
+  }
+
+  /**
+   * @return true if the next page of a split can be requested before the current one is read, i.e. the client side
+   * pagination windows, which depend neither on the '__next' link nor on the last read key.
+   */
+  public boolean hasIndependentPages() {
+    return !isServerSidePagination() && !pluginConfig.isKeysetPagination();
+  }
+
+  /**
+   * @return true if the pages are requested with the '__next' link of the previous page.
+   */
+  public boolean isServerSidePagination() {
+    return SERVER_SIDE.equals(pluginConfig.getPaginationType());
+  }
+
+  /**
+   * Sets the properties selected by default in the data URL, e.g. as resolved by the read plan, so that they are not
+   * resolved from the metadata again.
+   *
+   * @param nonNavigationalProperties non-navigational properties of the entity
+   */
+  public void setNonNavigationalProperties(List<String> nonNavigationalProperties) {
+    urlContainer.setNonNavigationalProperties(nonNavigationalProperties);
+  }
+
+  /**
+   * Compiles the {@code SuccessFactorsRecordDecoder} to decode the fetched entries straight to the output schema.
+   *
+   * @param edm          SuccessFactors service entity metadata
+   * @param outputSchema output schema
+   * @return {@code SuccessFactorsRecordDecoder} or null if the direct decoding is disabled or not supported by the
+   * output schema, in which case the entries are to be read as Olingo entries.
+   * @throws SuccessFactorsServiceException any metadata based exception is wrapped under it.
+   */
+  @Nullable
+  public SuccessFactorsRecordDecoder getRecordDecoder(Edm edm, Schema outputSchema)
+    throws SuccessFactorsServiceException {
+    if (!pluginConfig.isDirectDecoding()) {
+      return null;
+    }
+    try {
+      EdmEntityType entityType = new SuccessFactorsEntityProvider(edm).getEntityType(pluginConfig.getEntityName());
+      SuccessFactorsRecordDecoder recordDecoder =
+        SuccessFactorsRecordDecoder.compile(outputSchema, entityType, pluginConfig.isKeysetPagination());
+      if (recordDecoder == null) {
+        LOG.info("Output schema of '{}' can not be decoded directly, the records are read through the OData entries.",
+                 pluginConfig.getEntityName());
+      }
+      return recordDecoder;
+    } catch (EdmException ex) {
+      String errMsg = ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, ex);
+    }
+  }
+
+  /**
+   * Restricts the records of the split to the given partition, combined with the filter of every page. With server
+   * side pagination, the snapshot paging of the split is started with it.
+   *
+   * @param splitFilter condition of the partition of the split, null if the split is planned from offsets
+   */
+  public void setSplitFilter(@Nullable String splitFilter) {
+    this.splitFilter = splitFilter;
+  }
+
+  @Nullable
+  public String getSplitFilter() {
+    return splitFilter;
+  }
+
+  /**
+   * Probes the keys closing the key ranges of the records to extract, in the key order, and returns the key ranges to
+   * plan the splits from: every range but the last one holds the given number of records. The key closing a range is
+   * requested on its own, selecting only the key properties in the key order at its '$skip' offset, and the probes
+   * run concurrently in the pool of the planner, so that the planning does not page through all the keys.
+   * e.g. with 2 records per split and the keys 1 to 5, the keys at the offsets 1 and 3 close the ranges:
+   * not (id gt 2), (id gt 2) and not (id gt 4), id gt 4
+   *
+   * @param edm             SuccessFactors service entity metadata
+   * @param recordsPerSplit number of records of a range
+   * @param maxRecords      number of records to extract, the keys after are not probed
+   * @param planner         {@code SuccessFactorsRunPlanner} running the probes
+   * @return filter conditions of the key ranges, in the key order, or an empty list if a single range holds all the
+   * records
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  public List<String> probeKeyRanges(Edm edm, long recordsPerSplit, long maxRecords, SuccessFactorsRunPlanner planner)
+    throws SuccessFactorsServiceException, TransportException {
+    SuccessFactorsEntityProvider serviceHelper = new SuccessFactorsEntityProvider(edm);
+    EdmEntityType entityType;
+    EdmEntitySet entitySet;
+    try {
+      entityType = serviceHelper.getEntityType(pluginConfig.getEntityName());
+      entitySet = serviceHelper.getEntitySet(pluginConfig.getEntityName());
+    } catch (EdmException ex) {
+      String errMsg = ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, ex);
+    }
+    List<Callable<String>> probes = new ArrayList<>();
+    for (long rangeEnd = recordsPerSplit; rangeEnd < maxRecords; rangeEnd += recordsPerSplit) {
+      long skip = rangeEnd - 1;
+      probes.add(() -> getKeyBoundary(entitySet, entityType, skip));
+    }
+    // conditions on the keys closing every range but the last one, up to the first offset past the last record
+    List<String> boundaries = new ArrayList<>();
+    for (String boundary : planner.invokeAll(probes)) {
+      if (boundary == null) {
+        break;
+      }
+      boundaries.add(boundary);
+    }
+    LOG.debug("Probed {} keys of '{}' into {} key ranges.", probes.size(), pluginConfig.getEntityName(),
+              boundaries.size() + 1);
+    return getKeyRanges(boundaries);
+  }
+
+  /**
+   * Fetches the key at the given offset, in the key order.
+   *
+   * @param entitySet  extracted entity set
+   * @param entityType extracted entity type
+   * @param skip       offset of the key
+   * @return condition on the keys after the fetched key, or null if there is no record at the offset
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  @Nullable
+  private String getKeyBoundary(EdmEntitySet entitySet, EdmEntityType entityType, long skip)
+    throws SuccessFactorsServiceException, TransportException {
+    try {
+      URL probeURL = urlContainer.getKeyProbeURL(entityType.getKeyPropertyNames(), skip);
+      SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient.callSuccessFactorsWithRetry(
+        probeURL);
+      ExceptionParser.checkAndThrowException("", responseContainer);
+      try (SuccessFactorsFeedReader feed = new SuccessFactorsFeedReader(responseContainer.getResponseBytes(),
+                                                                        entitySet, pluginConfig)) {
+        return feed.nextEntry() == null ? null : buildKeysetFilter(entityType, feed.getLastKeyValues());
+      }
+    } catch (EdmException | IOException ex) {
+      String errMsg = ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, ex);
+    } catch (TransportException te) {
+      String errMsg = ResourceConstants.ERR_RECORD_PULL.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      errMsg += ExceptionParser.buildTransportError(te);
+      throw new TransportException(errMsg, te);
+    } catch (SuccessFactorsServiceException ose) {
+      String errMsg = ResourceConstants.ERR_RECORD_PULL.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      errMsg += ExceptionParser.buildSuccessFactorsServiceError(ose);
+      throw new SuccessFactorsServiceException(errMsg, ose);
+    }
+  }
+
+  /**
+   * Fetches the first or last non-null value of the given property, in the order of the property.
+   *
+   * @param edm      SuccessFactors service entity metadata
+   * @param property property of the extracted entity
+   * @param last     true to fetch the last value, false to fetch the first one
+   * @return property value, or null if no record has a value
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  @Nullable
+  public Object getPropertyBound(Edm edm, String property, boolean last)
+    throws SuccessFactorsServiceException, TransportException {
+    try {
+      EdmEntitySet entitySet = new SuccessFactorsEntityProvider(edm).getEntitySet(pluginConfig.getEntityName());
+      SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient.callSuccessFactorsWithRetry(
+        urlContainer.getPropertyBoundURL(property, last));
+      ExceptionParser.checkAndThrowException("", responseContainer);
+      try (SuccessFactorsFeedReader feed = new SuccessFactorsFeedReader(responseContainer.getResponseBytes(),
+                                                                        entitySet, pluginConfig)) {
+        ODataEntry entry = feed.nextEntry();
+        return entry == null ? null : entry.getProperties().get(property);
+      }
+    } catch (EdmException | IOException ex) {
+      String errMsg = ResourceConstants.ERR_RECORD_PROCESSING.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      throw new SuccessFactorsServiceException(errMsg, ex);
+    } catch (TransportException te) {
+      String errMsg = ResourceConstants.ERR_RECORD_PULL.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      errMsg += ExceptionParser.buildTransportError(te);
+      throw new TransportException(errMsg, te);
+    } catch (SuccessFactorsServiceException ose) {
+      String errMsg = ResourceConstants.ERR_RECORD_PULL.getMsgForKeyWithCode(pluginConfig.getEntityName());
+      errMsg += ExceptionParser.buildSuccessFactorsServiceError(ose);
+      throw new SuccessFactorsServiceException(errMsg, ose);
+    }
+  }
+
+  /**
+   * Returns the filter conditions of the ranges closed by the given boundaries: a range holds the keys after the
+   * boundary of the previous range, up to its own boundary included.
+   *
+   * @param boundaries conditions on the keys after the boundary keys, in the key order
+   * @return filter conditions of the key ranges, or an empty list if there is no boundary
+   */
+  private static List<String> getKeyRanges(List<String> boundaries) {
+    List<String> keyRanges = new ArrayList<>();
+    if (boundaries.isEmpty()) {
+      return keyRanges;
+    }
+    keyRanges.add(String.format("not (%s)", boundaries.get(0)));
+    for (int i = 1; i < boundaries.size(); i++) {
+      keyRanges.add(String.format("(%s) and not (%s)", boundaries.get(i - 1), boundaries.get(i)));
+    }
+    keyRanges.add(boundaries.get(boundaries.size() - 1));
+    return keyRanges;
+  }
+
+  /**
+   * Calls the SAP SuccessFactors service to fetch records and returns a {@code SuccessFactorsFeedReader} to read them
+   * one entry at a time.
+   * skip and top params are only used with client side pagination. The '__next' link (server side pagination) and
+   * the last read key (keyset pagination) of the previously returned feed are used to request the next page.
    *
    * @param edm  SuccessFactors service entity metadata
    * @param skip number of rows to skip
    * @param top  number of rows to fetch
-   * @return {@code ODataFeed}
+   * @return {@code SuccessFactorsFeedReader}
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
    */
-  public ODataFeed readServiceEntityData(Edm edm, Long skip, Long top)
+  public SuccessFactorsFeedReader readServiceEntityData(Edm edm, Long skip, Long top)
     throws SuccessFactorsServiceException, TransportException {
+    currentFeed = readFeed(edm, skip, top, null, true);
+    return currentFeed;
+  }
 
-    SuccessFactorsEntityProvider serviceHelper = new SuccessFactorsEntityProvider(edm);
-    try (InputStream dataStream = callEntityData(skip, top)) {
+  /**
+   * Calls the SAP SuccessFactors service to fetch the given client side pagination window, or the first server side
+   * page if no window is given. Unlike {@link #readServiceEntityData(Edm, Long, Long)}, the returned feed is not taken
+   * over to request the next page, so the pages of a split can be fetched while the previously returned feed is still
+   * being read. The caller is responsible for closing the returned feed.
+   *
+   * @param edm  SuccessFactors service entity metadata
+   * @param skip number of rows to skip
+   * @param top  number of rows to fetch
+   * @return {@code SuccessFactorsFeedReader}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  public SuccessFactorsFeedReader readServiceEntityWindow(Edm edm, @Nullable Long skip, @Nullable Long top)
+    throws SuccessFactorsServiceException, TransportException {
+    return readFeed(edm, skip, top, null, false);
+  }
 
-      EdmEntitySet entity = serviceHelper.getEntitySet(pluginConfig.getEntityName());
-      // compile raw data to ODataFeed type
-      ODataFeed dataFeed;
-      if (pluginConfig.getExpandOption() != null) {
-        dataFeed = EntityProvider
-          .readFeed(MediaType.APPLICATION_JSON, entity, filterExpandedEntityData(dataStream),
-                    EntityProviderReadProperties.init().build());
-      } else {
-        dataFeed = EntityProvider
-          .readFeed(MediaType.APPLICATION_JSON, entity, dataStream, EntityProviderReadProperties
-            .init().build());
+  /**
+   * Downloads a probe page of the given number of records, to estimate the size of the records before planning the
+   * splits.
+   *
+   * @param edm          SuccessFactors service entity metadata
+   * @param probeRecords number of records of the probe page
+   * @return average size in bytes of the records of the probe page, or 0 if the entity has no record
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  public long probeBytesPerRecord(Edm edm, long probeRecords) throws SuccessFactorsServiceException,
+    TransportException {
+    SuccessFactorsFeedReader feed = readServiceEntityWindow(edm, null, probeRecords);
+    try {
+      long records = 0;
+      while (feed.nextEntry() != null) {
+        records++;
       }
+      return records == 0 ? 0 : feed.getSize() / records;
+    } finally {
+      try {
+        feed.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close the probe page.", e);
+      }
+    }
+  }
 
-      if (dataFeed != null) {
-        if (pluginConfig.getPaginationType().equals(SERVER_SIDE)) {
-          String nextLink = dataFeed.getFeedMetadata().getNextLink();
-          if (nextLink != null) {
-            nextUrl = nextLink;
-            LOG.info("Next page url: {}", nextLink);
-          }
+  /**
+   * Calls the given server side '__next' link. Like {@link #readServiceEntityWindow(Edm, Long, Long)}, the returned
+   * feed is not taken over to request the next page and the caller is responsible for closing it.
+   *
+   * @param edm      SuccessFactors service entity metadata
+   * @param nextLink '__next' link of the previous page
+   * @return {@code SuccessFactorsFeedReader}
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   */
+  public SuccessFactorsFeedReader readServiceEntityPage(Edm edm, String nextLink)
+    throws SuccessFactorsServiceException, TransportException {
+    LOG.info("Next page url: {}", nextLink);
+    return readFeed(edm, null, null, nextLink, false);
+  }
+
+  private SuccessFactorsFeedReader readFeed(Edm edm, @Nullable Long skip, @Nullable Long top,
+                                            @Nullable String pageLink, boolean followPaging)
+    throws SuccessFactorsServiceException, TransportException {
+
+    SuccessFactorsEntityProvider serviceHelper = new SuccessFactorsEntityProvider(edm);
+    try {
+      if (followPaging) {
+        updatePagingState(serviceHelper);
+      }
+      // the windows of a split may be read by concurrent threads
+      synchronized (urlContainer) {
+        if (!urlContainer.hasNonNavigationalProperties()) {
+          // the default selection is resolved from the runtime metadata instead of fetching the metadata again
+          urlContainer.setNonNavigationalProperties(new SuccessFactorsSchemaGenerator(serviceHelper)
+                                                      .getNonNavigationalProperties(pluginConfig.getEntityName()));
         }
-        return dataFeed;
       }
+      byte[] data = callEntityData(skip, top, getOrderByProperties(serviceHelper), pageLink);
+      EdmEntitySet entity = serviceHelper.getEntitySet(pluginConfig.getEntityName());
+      return new SuccessFactorsFeedReader(data, entity, pluginConfig);
 
-    } catch (EdmException | EntityProviderException | IOException ex) {
+    } catch (EdmException | IOException ex) {
       if (pluginConfig.getAssociatedEntityName() != null) {
         String errMsg =
           ResourceConstants.ERR_UNSUPPORTED_ASSOCIATED_ENTITY.
@@ -300,111 +678,148 @@ public class SuccessFactorsService {
       errMsg += ExceptionParser.buildSuccessFactorsServiceError(ose);
       throw new SuccessFactorsServiceException(errMsg, ose);
     }
-    return null;
+  }
+
+  /**
+   * Takes over the '__next' link and the last read key from the previously returned feed.
+   *
+   * @param serviceHelper SuccessFactors entity provider
+   * @throws SuccessFactorsServiceException if the last read entry does not contain all the key properties
+   */
+  private void updatePagingState(SuccessFactorsEntityProvider serviceHelper)
+    throws IOException, EdmException, SuccessFactorsServiceException {
+    if (currentFeed == null) {
+      return;
+    }
+    currentFeed.close();
+    String nextLink = currentFeed.getNextLink();
+    if (pluginConfig.getPaginationType().equals(SERVER_SIDE) && nextLink != null) {
+      nextUrl = nextLink;
+      LOG.info("Next page url: {}", nextLink);
+    }
+    Map<String, Object> lastKeyValues = currentFeed.getLastKeyValues();
+    if (pluginConfig.isKeysetPagination() && lastKeyValues != null) {
+      keysetFilter = buildKeysetFilter(serviceHelper.getEntityType(pluginConfig.getEntityName()), lastKeyValues);
+    }
+    currentFeed = null;
   }
 
   /**
    * Calls the SAP SuccessFactors service entity to fetch the data from the given range
    *
-   * @param skip number to rows to skip
-   * @param top  number to rows to fetch
-   * @return {@code InputStream}
+   * @param skip          number to rows to skip
+   * @param top           number to rows to fetch
+   * @param keyProperties key properties to order the records by, empty to keep the service default order
+   * @param pageLink      '__next' link to call instead of the one taken over from the previous feed
+   * @return downloaded page
    * @throws TransportException             any http client exceptions are wrapped under it.
    * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
    */
-  private InputStream callEntityData(@Nullable Long skip, @Nullable Long top)
+  private byte[] callEntityData(@Nullable Long skip, @Nullable Long top, List<String> keyProperties,
+                                @Nullable String pageLink)
     throws SuccessFactorsServiceException, TransportException, IOException {
     URL dataURL;
-    if (nextUrl != null) {
-      dataURL = Objects.requireNonNull(HttpUrl.parse(nextUrl)).newBuilder().build().url();
+    String link = pageLink != null ? pageLink : nextUrl;
+    if (link != null) {
+      dataURL = Objects.requireNonNull(HttpUrl.parse(link)).newBuilder().build().url();
+    } else if (keysetFilter != null) {
+      // rows before the last read key are excluded by the filter, so no '$skip' is required
+      dataURL = urlContainer.getDataFetchURL(null, top, keyProperties, combineFilters(splitFilter, keysetFilter));
     } else {
-      dataURL = urlContainer.getDataFetchURL(skip, top);
+      dataURL = urlContainer.getDataFetchURL(skip, top, keyProperties, splitFilter);
+    }
+    byte[] cachedPage = pageCache == null ? null : pageCache.get(splitKey, dataURL);
+    if (cachedPage != null) {
+      return cachedPage;
     }
-    SuccessFactorsResponseContainer responseContainer = successFactorsHttpClient.callSuccessFactorsWithRetry(dataURL);
+    // with adaptive page size a failed page is requested again with fewer records rather than retried as is, down to a
+    // single record
+    boolean retried = !pluginConfig.isAdaptivePageSize() || top == null || top <= 1;
+    SuccessFactorsResponseContainer responseContainer = retried
+      ? successFactorsHttpClient.callSuccessFactorsWithRetry(dataURL)
+      : successFactorsHttpClient.callSuccessFactorsEntity(dataURL, MediaType.APPLICATION_JSON, DATA);
 
     ExceptionParser.checkAndThrowException("", responseContainer);
-    return responseContainer.getResponseStream();
+    byte[] page = responseContainer.getResponseBytes();
+    if (pageCache != null) {
+      pageCache.put(splitKey, dataURL, page);
+    }
+    return page;
   }
 
-  public List<String> getNonNavigationalProperties() throws TransportException, SuccessFactorsServiceException,
-    EdmException {
-    SuccessFactorsEntityProvider edmData = fetchServiceMetadata(callEntityMetadata());
-    SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
-    List<String> columnDetailList = successFactorsSchemaGenerator.getNonNavigationalProperties
-      (pluginConfig.getEntityName());
-    return columnDetailList;
+  /**
+   * Combines the given filter conditions, either of which may be missing.
+   */
+  @Nullable
+  private static String combineFilters(@Nullable String filter, @Nullable String otherFilter) {
+    if (filter == null || otherFilter == null) {
+      return filter == null ? otherFilter : filter;
+    }
+    return String.format("(%s) and (%s)", filter, otherFilter);
   }
 
   /**
-   * Filter the data stream after removing the expanded entity data.
-   * 
-   * Data stream after conversion to JSON has the following format:
-   * "d": {
-   *         "results": [
-   *             {
-   *                 "__metadata": {
-   *                     "uri": "https://apisalesdemo2.successfactors.eu/odata/v2/EmpCompensation(startDate=datetime
-   *                     '1997-01-01T00:00:00',userId='107030')",
-   *                     "type": "SFOData.EmpCompensation"
-   *                 },
-   *                 "userId": "107030",
+   * Returns the key properties of the extracted entity to order the records by. The records are ordered with keyset
+   * pagination, or with client side pagination if enabled so that the '$skip' windows of the parallel splits are
+   * taken from the same order, which the splits planned from key ranges, time windows or partition filters always
+   * are, as each of them pages its own filtered records by '$skip'.
    *
-   *                 and so on...
+   * @param serviceHelper SuccessFactors entity provider
+   * @return key property names or empty list if the records are not to be ordered
+   * @throws EdmException any metadata based exception
+   */
+  private List<String> getOrderByProperties(SuccessFactorsEntityProvider serviceHelper) throws EdmException {
+    boolean filterPartitioning = pluginConfig.isKeyRangePartitioning() || pluginConfig.getTimeWindowProperty() != null
+      || !pluginConfig.getPartitionFilters().isEmpty();
+    boolean orderByKey = (pluginConfig.isOrderByKey() || filterPartitioning) &&
+      !SERVER_SIDE.equals(pluginConfig.getPaginationType());
+    if (!pluginConfig.isKeysetPagination() && !orderByKey) {
+      return Collections.emptyList();
+    }
+    return serviceHelper.getEntityType(pluginConfig.getEntityName()).getKeyPropertyNames();
+  }
+
+  /**
+   * Builds the filter condition to fetch the records placed after the given key values in the key order.
+   * e.g. for the composite key (backgroundElementId, userId):
+   * (backgroundElementId gt 130168L) or (backgroundElementId eq 130168L and userId gt 'gsteward')
    *
-   * @param dataStream
-   * @return filteredDataStream Filtered Data Stream after removing expanded entity data
-   * @throws IOException
+   * @param entityType    SuccessFactors entity type
+   * @param lastKeyValues property values of the last read entry
+   * @return filter condition
+   * @throws EdmException                   any metadata based exception
+   * @throws SuccessFactorsServiceException if the entry does not contain all the key properties
    */
-  private InputStream filterExpandedEntityData(InputStream dataStream) throws IOException {
-    ObjectMapper objectMapper = new ObjectMapper();
-    List<String> expandFieldList = new ArrayList<>();
-    JsonNode root = objectMapper.readTree(dataStream);
-    JsonNode arrayNode = root.get(ODATA_ROOT_ELEMENT).get(ODATA_RESULT_ELEMENT);
-    for (JsonNode objectNode : arrayNode) {
-      String expandOption = pluginConfig.getExpandOption();
-      if (expandOption.contains(SuccessFactorsUrlContainer.PROPERTY_SEPARATOR)) {
-        expandFieldList = Arrays.asList(expandOption.split(SuccessFactorsUrlContainer.PROPERTY_SEPARATOR));
-      } else if (expandOption.contains(SuccessFactorsUrlContainer.NAV_PROPERTY_SEPARATOR)) {
-        expandFieldList.add(expandOption.split(SuccessFactorsUrlContainer.NAV_PROPERTY_SEPARATOR)[0]);
-      } else {
-        expandFieldList.add(pluginConfig.getExpandOption());
-      }
-      for (String expandField : expandFieldList) {
-        JsonNode expandedNode = objectNode.get(expandField);
-        JsonNode expandedArrayNode = expandedNode.get(ODATA_RESULT_ELEMENT);
-        if (expandedArrayNode != null) {
-          // Expanded Array Node Results can contain more than one element
-          for (JsonNode node : expandedArrayNode) {
-            removeNode(node);
-          }
-        } else {
-          removeNode(expandedNode);
-        }
+  private String buildKeysetFilter(EdmEntityType entityType, Map<String, Object> lastKeyValues)
+    throws EdmException, SuccessFactorsServiceException {
+
+    List<String> conditions = new ArrayList<>();
+    List<String> equalKeys = new ArrayList<>();
+    for (EdmProperty keyProperty : entityType.getKeyProperties()) {
+      Object keyValue = lastKeyValues.get(keyProperty.getName());
+      if (keyValue == null) {
+        throw new SuccessFactorsServiceException(ResourceConstants.ERR_KEYSET_MISSING_KEY
+                                                   .getMsgForKey(keyProperty.getName(), pluginConfig.getEntityName()));
       }
+      String literal = ((EdmSimpleType) keyProperty.getType()).valueToString(keyValue, EdmLiteralKind.URI, null);
+
+      List<String> condition = new ArrayList<>(equalKeys);
+      condition.add(String.format("%s gt %s", keyProperty.getName(), literal));
+      conditions.add(String.join(" and ", condition));
+      equalKeys.add(String.format("%s eq %s", keyProperty.getName(), literal));
     }
-    InputStream filteredDataStream = new ByteArrayInputStream(objectMapper.writeValueAsBytes(root));
-    return filteredDataStream;
-  }
-
-  /**
-   * Remove the unreadable nodes from the root node
-   * @param node JSON Node to be removed
-   */
-  private void removeNode(JsonNode node) {
-    Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
-    while (iterator.hasNext()) {
-      JsonNode nested = iterator.next().getValue();
-      if (nested.isContainerNode()) {
-        JsonNode nestedArrayNode = nested.get(ODATA_RESULT_ELEMENT);
-        if (nestedArrayNode != null) {
-          // Nested Array Node Results can contain more than one element
-          for (JsonNode n : nestedArrayNode) {
-            removeNode(n);
-          }
-        } else {
-          iterator.remove();
-        }
-      }
+    if (conditions.size() == 1) {
+      return conditions.get(0);
     }
+    return "(" + String.join(") or (", conditions) + ")";
+  }
+
+  public List<String> getNonNavigationalProperties() throws TransportException, SuccessFactorsServiceException,
+    EdmException {
+    SuccessFactorsEntityProvider edmData = fetchServiceMetadata();
+    SuccessFactorsSchemaGenerator successFactorsSchemaGenerator = new SuccessFactorsSchemaGenerator(edmData);
+    List<String> columnDetailList = successFactorsSchemaGenerator.getNonNavigationalProperties
+      (pluginConfig.getEntityName());
+    return columnDetailList;
   }
 }
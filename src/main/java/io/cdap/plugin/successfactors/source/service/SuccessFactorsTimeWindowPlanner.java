@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.edm.EdmLiteralKind;
+import org.apache.olingo.odata2.api.edm.EdmSimpleType;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.apache.olingo.odata2.api.edm.EdmType;
+import org.apache.olingo.odata2.api.edm.EdmTyped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsTimeWindowPlanner} splits the records to extract into '$filter' time windows on a date
+ * time property of the entity, holding roughly the same number of records:
+ * - the records start as a single window, from the first to the last value of the property.
+ * - the windows holding more records than a split are bisected at the middle of their time range, the records of
+ * their first half being counted by a filtered '$count' call, until every window holds at most the records of a
+ * split, the larger windows last a single millisecond or {@link #MAX_WINDOWS} windows are planned. The windows are
+ * bisected level by level, largest first, the '$count' calls of a level running concurrently through the
+ * {@link SuccessFactorsRunPlanner}.
+ * - the adjacent windows are then merged as long as they hold at most the records of a split together.
+ * <p>
+ * The first and last windows are open ended, so that the records changed after the planning are still read, and the
+ * records without value are read by a window of their own.
+ */
+public class SuccessFactorsTimeWindowPlanner {
+
+  static final int MAX_WINDOWS = 1000;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsTimeWindowPlanner.class);
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  private final SuccessFactorsService successFactorsService;
+  private final Edm edm;
+  private final String entityName;
+  private final String property;
+  private final EdmSimpleType propertyType;
+
+  /**
+   * @param successFactorsService {@code SuccessFactorsService}
+   * @param edm                   SuccessFactors service entity metadata
+   * @param entityName            extracted entity
+   * @param property              date time property of the entity to plan the windows on
+   * @throws SuccessFactorsServiceException if the property is not a date time property of the entity
+   */
+  public SuccessFactorsTimeWindowPlanner(SuccessFactorsService successFactorsService, Edm edm, String entityName,
+                                         String property) throws SuccessFactorsServiceException {
+    this.successFactorsService = successFactorsService;
+    this.edm = edm;
+    this.entityName = entityName;
+    this.property = property;
+    EdmType type = null;
+    try {
+      EdmTyped typed = new SuccessFactorsEntityProvider(edm).getEntityType(entityName).getProperty(property);
+      type = typed == null ? null : typed.getType();
+    } catch (EdmException e) {
+      LOG.debug("Failed to resolve the type of the time window property '{}'.", property, e);
+    }
+    if (!EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance().equals(type) &&
+      !EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance().equals(type)) {
+      throw new SuccessFactorsServiceException(ResourceConstants.ERR_TIME_WINDOW_PROPERTY.getMsgForKey(property,
+                                                                                                      entityName));
+    }
+    this.propertyType = (EdmSimpleType) type;
+  }
+
+  /**
+   * Plans the time windows of the records to extract.
+   *
+   * @param availableRecordCount number of available records, with or without a value
+   * @param recordsPerSplit      maximum number of records in a window
+   * @param planner              {@code SuccessFactorsRunPlanner} running the '$count' calls
+   * @return filter conditions of the windows, in the time order and followed by the window of the records without
+   * value, with their number of records
+   * @throws TransportException             any http client exceptions are wrapped under it.
+   * @throws SuccessFactorsServiceException any OData service based exception is wrapped under it.
+   * @throws IOException                    if a record count can not be read.
+   */
+  public Map<String, Long> plan(long availableRecordCount, long recordsPerSplit, SuccessFactorsRunPlanner planner)
+    throws TransportException, SuccessFactorsServiceException, IOException {
+    Map<String, Long> windows = new LinkedHashMap<>();
+    String nullCondition = property + " eq null";
+    long nullRecords = successFactorsService.getRecordCount(nullCondition);
+    Object firstValue = successFactorsService.getPropertyBound(edm, property, false);
+    Object lastValue = successFactorsService.getPropertyBound(edm, property, true);
+    if (firstValue != null && lastValue != null) {
+      Window records = new Window(toMillis(firstValue), toMillis(lastValue) + 1,
+                                  Math.max(availableRecordCount - nullRecords, 0));
+      List<Window> plannedWindows = merge(bisect(records, recordsPerSplit, planner), recordsPerSplit);
+      for (int i = 0; i < plannedWindows.size(); i++) {
+        Window window = plannedWindows.get(i);
+        windows.put(getCondition(i == 0 ? null : window.from, i == plannedWindows.size() - 1 ? null : window.to),
+                    window.records);
+      }
+    }
+    if (nullRecords > 0) {
+      windows.put(nullCondition, nullRecords);
+    }
+    LOG.debug("Planned {} time windows on '{}'.", windows.size(), property);
+    return windows;
+  }
+
+  /**
+   * Bisects the windows holding more than the given number of records, level by level, until every window holds at
+   * most the given number of records.
+   */
+  private List<Window> bisect(Window records, long recordsPerSplit, SuccessFactorsRunPlanner planner)
+    throws TransportException, SuccessFactorsServiceException {
+    PriorityQueue<Window> largestFirst = new PriorityQueue<>(Comparator.comparingLong((Window w) -> w.records)
+                                                               .reversed());
+    List<Window> windows = new ArrayList<>();
+    largestFirst.add(records);
+    while (true) {
+      // every window bisected in the level adds a window, up to the maximum
+      List<Window> level = new ArrayList<>();
+      while (!largestFirst.isEmpty() && largestFirst.size() + windows.size() + 2 * level.size() < MAX_WINDOWS &&
+        largestFirst.peek().records > recordsPerSplit) {
+        Window window = largestFirst.poll();
+        if (window.to - window.from <= 1) {
+          windows.add(window);
+        } else {
+          level.add(window);
+        }
+      }
+      if (level.isEmpty()) {
+        break;
+      }
+      List<Callable<Long>> counts = new ArrayList<>();
+      for (Window window : level) {
+        String firstHalf = getCondition(window.from, window.middle());
+        counts.add(() -> successFactorsService.getRecordCount(firstHalf));
+      }
+      List<Long> firstHalfRecords = planner.invokeAll(counts);
+      for (int i = 0; i < level.size(); i++) {
+        Window window = level.get(i);
+        long middle = window.middle();
+        largestFirst.add(new Window(window.from, middle, firstHalfRecords.get(i)));
+        largestFirst.add(new Window(middle, window.to, Math.max(window.records - firstHalfRecords.get(i), 0)));
+      }
+    }
+    windows.addAll(largestFirst);
+    windows.sort(Comparator.comparingLong(w -> w.from));
+    return windows;
+  }
+
+  /**
+   * Merges the adjacent windows as long as they hold at most the given number of records together.
+   */
+  private static List<Window> merge(List<Window> windows, long recordsPerSplit) {
+    List<Window> merged = new ArrayList<>();
+    Window current = windows.get(0);
+    for (int i = 1; i < windows.size(); i++) {
+      Window next = windows.get(i);
+      if (current.records + next.records <= recordsPerSplit) {
+        current = new Window(current.from, next.to, current.records + next.records);
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return merged;
+  }
+
+  /**
+   * Returns the filter condition of the records from the given time, included, to the given time, excluded.
+   * e.g. lastModifiedDateTime ge datetimeoffset'2022-01-01T00:00:00Z' and
+   * lastModifiedDateTime lt datetimeoffset'2022-07-01T00:00:00Z'
+   *
+   * @param from start of the window, or null if open ended
+   * @param to   end of the window, or null if open ended
+   * @return filter condition
+   */
+  private String getCondition(@Nullable Long from, @Nullable Long to) throws SuccessFactorsServiceException {
+    List<String> conditions = new ArrayList<>();
+    if (from != null) {
+      conditions.add(String.format("%s ge %s", property, toLiteral(from)));
+    }
+    if (to != null) {
+      conditions.add(String.format("%s lt %s", property, toLiteral(to)));
+    }
+    if (conditions.isEmpty()) {
+      // a single window holds all the records with a value
+      return property + " ne null";
+    }
+    return String.join(" and ", conditions);
+  }
+
+  private String toLiteral(long millis) throws SuccessFactorsServiceException {
+    Calendar calendar = Calendar.getInstance(UTC);
+    calendar.setTimeInMillis(millis);
+    try {
+      return propertyType.valueToString(calendar, EdmLiteralKind.URI, null);
+    } catch (EdmException e) {
+      throw new SuccessFactorsServiceException(ResourceConstants.ERR_TIME_WINDOW_PROPERTY.getMsgForKey(property,
+                                                                                                      entityName), e);
+    }
+  }
+
+  private static long toMillis(Object value) {
+    return value instanceof Calendar ? ((Calendar) value).getTimeInMillis() : ((Date) value).getTime();
+  }
+
+  /**
+   * Time range of the records, from its start included to its end excluded, with its number of records.
+   */
+  private static final class Window {
+    private final long from;
+    private final long to;
+    private final long records;
+
+    private Window(long from, long to, long records) {
+      this.from = from;
+      this.to = to;
+      this.records = records;
+    }
+
+    private long middle() {
+      return from + (to - from) / 2;
+    }
+  }
+}
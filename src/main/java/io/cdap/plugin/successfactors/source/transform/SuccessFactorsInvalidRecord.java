@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.plugin.successfactors.common.util.ResourceConstants;
+
+/**
+ * This {@code SuccessFactorsInvalidRecord} carries a record which fails to be parsed with error tolerant read, from the
+ * record reader to the error emitter of the source. The record holds the raw JSON of the page requesting only the
+ * invalid record, along with its position in the split and the parsing error.
+ */
+public final class SuccessFactorsInvalidRecord {
+
+  public static final String POSITION_FIELD = "position";
+  public static final String JSON_FIELD = "json";
+  public static final String ERROR_FIELD = "error";
+
+  private static final String SCHEMA_NAME = "SuccessFactorsInvalidRecord";
+  private static final Schema SCHEMA = Schema.recordOf(
+    SCHEMA_NAME,
+    Schema.Field.of(POSITION_FIELD, Schema.of(Schema.Type.LONG)),
+    Schema.Field.of(JSON_FIELD, Schema.of(Schema.Type.STRING)),
+    Schema.Field.of(ERROR_FIELD, Schema.of(Schema.Type.STRING)));
+
+  private SuccessFactorsInvalidRecord() {
+  }
+
+  /**
+   * @param position position of the record in the split, starting at 1
+   * @param json     raw JSON of the page requesting only the invalid record
+   * @param error    message of the root cause of the parsing error
+   * @return {@code StructuredRecord} of the invalid record
+   */
+  static StructuredRecord of(long position, String json, String error) {
+    return StructuredRecord.builder(SCHEMA)
+      .set(POSITION_FIELD, position)
+      .set(JSON_FIELD, json)
+      .set(ERROR_FIELD, error)
+      .build();
+  }
+
+  /**
+   * @return true if the given record read by the record reader is an invalid record to emit as an error.
+   */
+  public static boolean isInvalid(StructuredRecord record) {
+    return SCHEMA_NAME.equals(record.getSchema().getRecordName());
+  }
+
+  /**
+   * @param record invalid record read by the record reader
+   * @return {@code InvalidEntry} to emit as an error
+   */
+  public static InvalidEntry<StructuredRecord> toInvalidEntry(StructuredRecord record) {
+    return new InvalidEntry<>(ResourceConstants.ERR_RECORD_PROCESSING.getNumericCode(), record.get(ERROR_FIELD),
+                              record);
+  }
+}
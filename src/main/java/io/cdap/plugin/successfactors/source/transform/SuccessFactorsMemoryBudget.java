@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsMemoryBudget} bounds the memory held by the record reader of a split:
+ * - pages: the downloaded pages, from their request until all their records are read.
+ * - entries: the batches of entries or records parsed by the pipelined reader and not emitted yet, sized by the
+ * bytes they were parsed from.
+ * <p>
+ * A reservation beyond the budget waits until the memory held by the same kind is released, but is let through if
+ * nothing of its kind is held, so that a page larger than the budget is still read, one at a time.
+ * <p>
+ * The highest memory held by a reader is reported in the metrics of the stage, see
+ * {@link SuccessFactorsReaderMetrics}.
+ */
+class SuccessFactorsMemoryBudget {
+
+  static final String PEAK_PAGE_BYTES_METRIC = "successfactors.reader.page.bytes.peak";
+  static final String PEAK_ENTRY_BYTES_METRIC = "successfactors.reader.entry.bytes.peak";
+
+  private final long budgetBytes;
+  private final SuccessFactorsReaderMetrics readerMetrics;
+  private long pageBytes;
+  private long entryBytes;
+  private long peakPageBytes;
+  private long peakEntryBytes;
+
+  /**
+   * @param budgetBytes   maximum number of bytes held by the reader, or null if not limited
+   * @param readerMetrics metrics of the stage reading the split
+   */
+  SuccessFactorsMemoryBudget(@Nullable Long budgetBytes, SuccessFactorsReaderMetrics readerMetrics) {
+    this.budgetBytes = budgetBytes == null ? Long.MAX_VALUE : budgetBytes;
+    this.readerMetrics = readerMetrics;
+  }
+
+  boolean isLimited() {
+    return budgetBytes != Long.MAX_VALUE;
+  }
+
+  long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  /**
+   * Reserves the memory of a page to download, waiting while the budget is held by other pages.
+   *
+   * @param bytes expected size of the page in bytes
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized void reservePage(long bytes) throws InterruptedException {
+    while (pageBytes > 0 && pageBytes + entryBytes + bytes > budgetBytes) {
+      wait();
+    }
+    pageBytes += bytes;
+    updatePeaks();
+  }
+
+  /**
+   * Adjusts the memory reserved for a page to the size of the downloaded page.
+   *
+   * @param reservedBytes reserved size of the page in bytes
+   * @param actualBytes   size of the downloaded page in bytes
+   */
+  synchronized void resizePage(long reservedBytes, long actualBytes) {
+    pageBytes += actualBytes - reservedBytes;
+    updatePeaks();
+    notifyAll();
+  }
+
+  synchronized void releasePage(long bytes) {
+    pageBytes -= bytes;
+    notifyAll();
+  }
+
+  /**
+   * Reserves the memory of a batch of parsed entries, waiting while the budget is held by other batches.
+   *
+   * @param bytes size of the entries in bytes
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized void reserveEntries(long bytes) throws InterruptedException {
+    while (entryBytes > 0 && pageBytes + entryBytes + bytes > budgetBytes) {
+      wait();
+    }
+    entryBytes += bytes;
+    updatePeaks();
+  }
+
+  synchronized void releaseEntries(long bytes) {
+    entryBytes -= bytes;
+    notifyAll();
+  }
+
+  synchronized long getUsedBytes() {
+    return pageBytes + entryBytes;
+  }
+
+  synchronized long getPeakPageBytes() {
+    return peakPageBytes;
+  }
+
+  synchronized long getPeakEntryBytes() {
+    return peakEntryBytes;
+  }
+
+  private void updatePeaks() {
+    if (pageBytes > peakPageBytes) {
+      peakPageBytes = pageBytes;
+      readerMetrics.pageBytesHeld(pageBytes);
+    }
+    if (entryBytes > peakEntryBytes) {
+      peakEntryBytes = entryBytes;
+      readerMetrics.entryBytesHeld(entryBytes);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsFeedReader;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsPagePrefetcher} downloads the pages of a split on background threads, at most the given
+ * depth of pages ahead of the page being read:
+ * - client side pagination: the next '$skip/$top' windows, downloaded by up to the page concurrency threads at once.
+ * The windows are handed out in order, or as they complete with unordered read. If a window returns fewer records
+ * than requested, the windows fetched ahead are dropped and the fetch restarts right after the last read record, as
+ * the sequential reader does. With unordered read every window is requested once.
+ * - server side pagination: the '__next' link, scanned from the downloaded page before its entries are read.
+ * - keyset pagination: the next page depends on the last key of the current one, so it is fetched once the current
+ * page is read.
+ * <p>
+ * The downloaded pages waiting to be read are accounted for, the peak is logged when the prefetcher is closed.
+ * Closing the prefetcher cancels the pending downloads and releases the downloaded pages.
+ * <p>
+ * Every page holds its size in the memory budget of the reader until all its records are read. Once the budget is
+ * reached, no further page is requested until the memory is released, which lowers the number of pages downloaded
+ * ahead and in parallel. The '$top' of the client side pages is also lowered, so that the pages fetched ahead and the
+ * page being read fit in the budget at the average size of the records read so far.
+ * <p>
+ * The '$top' of the client side pages is bounded by the page sizer of the reader. A page that times out or fails with
+ * a server error is requested again with the lowered page size, the records of a window cut this way are requested by
+ * a further window, handed out before the next ones.
+ */
+class SuccessFactorsPagePrefetcher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsPagePrefetcher.class);
+
+  private final SuccessFactorsService successFactorsService;
+  private final Edm edmData;
+  // split range, only set with client side pagination
+  @Nullable
+  private final Long start;
+  @Nullable
+  private final Long end;
+  @Nullable
+  private final Long packageSize;
+  @Nullable
+  private final Long maxRecords;
+  private final boolean windows;
+  private final boolean links;
+  private final boolean ordered;
+  private final int fetchThreads;
+
+  private final int prefetchPages;
+  private final Semaphore permits;
+  private final SuccessFactorsMemoryBudget budget;
+  private final SuccessFactorsPageSizer pageSizer;
+  private ExecutorService executor;
+
+  // paging state shared by the fetch threads and the reader, guarded by this prefetcher
+  private final List<Page> pages = new ArrayList<>();
+  // remainders of the windows cut by a lowered page size
+  private final Queue<Page> cutWindows = new ArrayDeque<>();
+  private int runningFetchThreads;
+  @Nullable
+  private Exception failure;
+  private long readRows;
+  private long readPages;
+  private long readPageBytes;
+  private long readPageRecords;
+  private long fetchPosition;
+  // incremented when the windows fetched ahead are dropped
+  private int generation;
+  private boolean nextPageReady = true;
+  @Nullable
+  private String nextLink;
+  private boolean done;
+  private boolean closed;
+  private long bufferedBytes;
+  private long peakBufferedBytes;
+
+  SuccessFactorsPagePrefetcher(SuccessFactorsService successFactorsService, Edm edmData, @Nullable Long start,
+                               @Nullable Long end, @Nullable Long packageSize, @Nullable Long maxRecords,
+                               int prefetchDepth, SuccessFactorsMemoryBudget budget,
+                               SuccessFactorsPageSizer pageSizer) {
+    this.successFactorsService = successFactorsService;
+    this.edmData = edmData;
+    this.start = start;
+    this.end = end;
+    this.packageSize = packageSize;
+    this.maxRecords = maxRecords;
+    this.windows = successFactorsService.hasIndependentPages() && isClientSide();
+    this.links = successFactorsService.isServerSidePagination();
+    this.ordered = !windows || !successFactorsService.isUnorderedRead();
+    // only the windows of client side pagination are independent of each other
+    this.fetchThreads = windows ? successFactorsService.getPageConcurrency() : 1;
+    // every fetch thread holds a page ahead while downloading it
+    this.prefetchPages = Math.max(prefetchDepth, fetchThreads);
+    this.permits = new Semaphore(prefetchPages);
+    this.budget = budget;
+    this.pageSizer = pageSizer;
+  }
+
+  /**
+   * Returns the next page of the split, starting the downloads on the first call.
+   *
+   * @return {@code Page} or null if all the pages are read
+   * @throws IOException          any download failure is wrapped under it.
+   * @throws InterruptedException if interrupted while waiting for the download
+   */
+  @Nullable
+  Page nextPage() throws IOException, InterruptedException {
+    if (executor == null) {
+      startFetchThreads();
+    }
+    return takePage();
+  }
+
+  /**
+   * Reports the number of records read from the given page, which decides on the next page the same way the
+   * sequential reader does.
+   *
+   * @param page     page returned by {@link #nextPage()}
+   * @param pageRows number of records read from the page
+   * @return true if the next page is to be read
+   */
+  synchronized boolean pageRead(Page page, long pageRows) {
+    readRows += pageRows;
+    readPages++;
+    readPageBytes += page.feed.getSize();
+    readPageRecords += pageRows;
+    budget.releasePage(page.feed.getSize());
+    boolean nextPageRequired;
+    if (!ordered) {
+      // a short or empty window does not end the split, the remaining windows are read as they complete
+      nextPageRequired = readRows < getLength();
+    } else {
+      nextPageRequired = pageRows > 0 && (maxRecords == null || readRows < maxRecords) &&
+        (isClientSide() ? readRows < getLength() : page.feed.getNextLink() != null);
+    }
+    if (!nextPageRequired) {
+      done = true;
+    } else if (windows && ordered && pageRows < page.top) {
+      LOG.debug("Window at offset {} returned {} of {} records, fetching again from offset {}.", page.offset,
+                pageRows, page.top, readRows);
+      fetchPosition = readRows;
+      generation++;
+      dropPages(false);
+    } else if (!windows && !links) {
+      fetchPosition = readRows;
+      nextPageReady = true;
+    }
+    notifyAll();
+    return nextPageRequired;
+  }
+
+  /**
+   * @return size in bytes of the downloaded pages waiting to be read.
+   */
+  synchronized long getBufferedBytes() {
+    return bufferedBytes;
+  }
+
+  /**
+   * @return highest size in bytes of the downloaded pages waiting to be read.
+   */
+  synchronized long getPeakBufferedBytes() {
+    return peakBufferedBytes;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      done = true;
+      closed = true;
+      dropPages(true);
+      notifyAll();
+    }
+    if (executor == null) {
+      return;
+    }
+    executor.shutdownNow();
+    LOG.debug("Downloaded pages waiting to be read peaked at {} bytes.", getPeakBufferedBytes());
+  }
+
+  private void startFetchThreads() {
+    executor = Executors.newFixedThreadPool(fetchThreads, new ThreadFactoryBuilder()
+      .setNameFormat("successfactors-prefetch-%d").setDaemon(true).build());
+    synchronized (this) {
+      runningFetchThreads = fetchThreads;
+    }
+    for (int i = 0; i < fetchThreads; i++) {
+      executor.submit(this::fetch);
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Takes the next downloaded page, in order unless the windows are read as they complete.
+   *
+   * @return downloaded page or null if all the pages are downloaded and read
+   */
+  @Nullable
+  private synchronized Page takePage() throws IOException, InterruptedException {
+    while (true) {
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+      for (Iterator<Page> iterator = pages.iterator(); iterator.hasNext(); ) {
+        Page page = iterator.next();
+        if (!ordered || !windows || page.offset == readRows) {
+          iterator.remove();
+          release(page);
+          return page;
+        }
+      }
+      if (runningFetchThreads == 0 || closed) {
+        return null;
+      }
+      wait();
+    }
+  }
+
+  private void fetch() {
+    try {
+      while (true) {
+        permits.acquire();
+        // the budget is reserved before the page size is decided, which accounts for the pages read meanwhile
+        long reservedBytes = estimatePageBytes();
+        budget.reservePage(reservedBytes);
+        Page page = null;
+        try {
+          Page request = nextRequest();
+          if (request == null) {
+            permits.release();
+            return;
+          }
+          page = download(request);
+        } finally {
+          budget.resizePage(reservedBytes, page == null ? 0 : page.feed.getSize());
+        }
+        hold(page);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (SuccessFactorsServiceException | TransportException | IOException | RuntimeException e) {
+      fail(e);
+    } finally {
+      fetchThreadFinished();
+    }
+  }
+
+  /**
+   * Downloads the requested page, requesting it again with the lowered page size while it times out or fails with a
+   * server error.
+   *
+   * @return downloaded page, which may request fewer records than the given request
+   */
+  private Page download(Page request) throws SuccessFactorsServiceException, TransportException, IOException {
+    Page page = request;
+    while (true) {
+      long startTime = System.currentTimeMillis();
+      try {
+        SuccessFactorsFeedReader feed = downloadFeed(page);
+        if (page.top != null) {
+          pageSizer.pageFetched(page.top, System.currentTimeMillis() - startTime);
+        }
+        return new Page(feed, page.offset, page.top, page.generation);
+      } catch (SuccessFactorsServiceException | TransportException e) {
+        if (page.top == null || !pageSizer.pageFailed(page.top, e)) {
+          throw e;
+        }
+        page = cut(page);
+      }
+    }
+  }
+
+  /**
+   * Cuts the given request to the lowered page size, the remaining records of a window are requested by a further
+   * window.
+   */
+  private synchronized Page cut(Page request) {
+    long top = Math.min(pageSizer.getPageSize(), request.top);
+    LOG.debug("Page at offset {} failed with {} records, requesting {} records.", request.offset, request.top, top);
+    if (windows) {
+      cutWindows.add(new Page(null, request.offset + top, request.top - top, request.generation));
+      notifyAll();
+    }
+    Page cutRequest = new Page(null, request.offset, top, request.generation);
+    cutRequest.link = request.link;
+    return cutRequest;
+  }
+
+  private SuccessFactorsFeedReader downloadFeed(Page request)
+    throws SuccessFactorsServiceException, TransportException, IOException {
+    SuccessFactorsFeedReader feed;
+    if (links && request.link != null) {
+      feed = successFactorsService.readServiceEntityPage(edmData, request.link);
+    } else if (windows || links) {
+      feed = successFactorsService.readServiceEntityWindow(edmData, getSkip(request.offset), request.top);
+    } else {
+      feed = successFactorsService.readServiceEntityData(edmData, getSkip(request.offset), request.top);
+    }
+    if (links) {
+      setNextLink(feed.findNextLink());
+    }
+    return feed;
+  }
+
+  /**
+   * Returns the next page to download, waiting for the current page to be read if the next one depends on it.
+   *
+   * @return requested page without feed, or null if all the required pages are downloaded
+   */
+  @Nullable
+  private synchronized Page nextRequest() throws InterruptedException {
+    while (!done) {
+      Page cutWindow = windows ? cutWindows.poll() : null;
+      if (cutWindow != null) {
+        if (cutWindow.generation == generation) {
+          return cutWindow;
+        }
+        continue;
+      }
+      if (windows && fetchPosition < getLength()) {
+        long offset = fetchPosition;
+        long top = Math.min(getLength() - offset, getPageTop());
+        fetchPosition += top;
+        return new Page(null, offset, top, generation);
+      }
+      if (windows && !ordered) {
+        // every window is requested once, no restart can follow
+        return null;
+      }
+      if (!windows && nextPageReady) {
+        nextPageReady = false;
+        Long top = isClientSide() ? Math.min(getLength() - fetchPosition, getPageTop()) : null;
+        Page request = new Page(null, fetchPosition, top, generation);
+        request.link = nextLink;
+        return request;
+      }
+      wait();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the '$top' of the next client side page, the page size of the page sizer lowered so that the pages fetched
+   * ahead and the page being read fit in the memory budget.
+   */
+  private synchronized long getPageTop() {
+    long pageSize = pageSizer.getPageSize();
+    if (!budget.isLimited() || readPageRecords == 0) {
+      return pageSize;
+    }
+    long bytesPerRecord = Math.max(readPageBytes / readPageRecords, 1);
+    long budgetTop = budget.getBudgetBytes() / (prefetchPages + 1) / bytesPerRecord;
+    return Math.max(Math.min(budgetTop, pageSize), 1);
+  }
+
+  /**
+   * @return expected size of the next page, the average size of the pages read so far
+   */
+  private synchronized long estimatePageBytes() {
+    return readPages == 0 ? 0 : readPageBytes / readPages;
+  }
+
+  private synchronized void setNextLink(@Nullable String link) {
+    nextLink = link;
+    // without a '__next' link the split is complete, the reader reports it once the page is read
+    nextPageReady = link != null;
+  }
+
+  /**
+   * Hands the downloaded page over to the reader, unless the page was fetched ahead of a dropped window.
+   */
+  private synchronized void hold(Page page) throws IOException {
+    if (closed || page.generation != generation) {
+      permits.release();
+      budget.releasePage(page.feed.getSize());
+      page.feed.close();
+      return;
+    }
+    pages.add(page);
+    bufferedBytes += page.feed.getSize();
+    peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+    notifyAll();
+  }
+
+  private synchronized void release(Page page) {
+    permits.release();
+    bufferedBytes -= page.feed.getSize();
+  }
+
+  /**
+   * Drops the downloaded pages fetched ahead of a dropped window, or all of them once closed.
+   */
+  private synchronized void dropPages(boolean all) {
+    for (Iterator<Page> iterator = pages.iterator(); iterator.hasNext(); ) {
+      Page page = iterator.next();
+      if (all || page.generation != generation) {
+        iterator.remove();
+        release(page);
+        budget.releasePage(page.feed.getSize());
+        try {
+          page.feed.close();
+        } catch (IOException e) {
+          LOG.debug("Failed to close a dropped page.", e);
+        }
+      }
+    }
+  }
+
+  private synchronized void fail(Exception e) {
+    if (failure == null) {
+      failure = e;
+    }
+    // the other fetch threads stop requesting new pages
+    done = true;
+    notifyAll();
+  }
+
+  private synchronized void fetchThreadFinished() {
+    runningFetchThreads--;
+    notifyAll();
+  }
+
+  @Nullable
+  private Long getSkip(long offset) {
+    return isClientSide() ? start + offset - 1 : null;
+  }
+
+  private boolean isClientSide() {
+    return start != null && end != null && packageSize != null;
+  }
+
+  private long getLength() {
+    return end - start + 1;
+  }
+
+  /**
+   * Downloaded page of a split, or the request of the page to download.
+   */
+  static final class Page {
+    @Nullable
+    private final SuccessFactorsFeedReader feed;
+    // number of records of the split placed before the page, only used with client side pagination
+    private final long offset;
+    @Nullable
+    private final Long top;
+    private final int generation;
+    @Nullable
+    private String link;
+
+    private Page(@Nullable SuccessFactorsFeedReader feed, long offset, @Nullable Long top, int generation) {
+      this.feed = feed;
+      this.offset = offset;
+      this.top = top;
+      this.generation = generation;
+    }
+
+    SuccessFactorsFeedReader getFeed() {
+      return feed;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsPageSizer} adapts the '$top' of the client side pages of a split to the response times of
+ * the SuccessFactors service:
+ * - a page that times out or fails with a server error is requested again with half the records, down to a single
+ * record, instead of failing identically on every retry.
+ * - a page downloaded faster than {@link #FAST_PAGE_MILLIS} doubles the page size, up to the package size.
+ * <p>
+ * The smallest page size reached and the number of times the page size was halved are reported in the metrics of the
+ * stage, see {@link SuccessFactorsReaderMetrics}.
+ */
+class SuccessFactorsPageSizer {
+
+  static final String MIN_PAGE_SIZE_METRIC = "successfactors.page.size.min";
+  static final String PAGE_SIZE_DECREASES_METRIC = "successfactors.page.size.decreases";
+  static final long FAST_PAGE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  private final long maxPageSize;
+  private final boolean adaptive;
+  private final SuccessFactorsReaderMetrics readerMetrics;
+  private long pageSize;
+
+  /**
+   * @param maxPageSize   package size of the split, or null if the page size is decided by the service
+   * @param adaptive      whether the page size adapts to the response times
+   * @param readerMetrics metrics of the stage reading the split
+   */
+  SuccessFactorsPageSizer(@Nullable Long maxPageSize, boolean adaptive, SuccessFactorsReaderMetrics readerMetrics) {
+    this.maxPageSize = maxPageSize == null ? Long.MAX_VALUE : maxPageSize;
+    this.adaptive = adaptive && maxPageSize != null;
+    this.readerMetrics = readerMetrics;
+    this.pageSize = this.maxPageSize;
+  }
+
+  /**
+   * @return number of records to request in the next page.
+   */
+  synchronized long getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Reports a downloaded page, growing the page size if the page was fast to download.
+   *
+   * @param top           number of records requested
+   * @param elapsedMillis download time of the page
+   */
+  synchronized void pageFetched(long top, long elapsedMillis) {
+    // a page shorter than the page size, e.g. the last one of the split, says nothing about the page size
+    if (adaptive && elapsedMillis < FAST_PAGE_MILLIS && top >= pageSize && pageSize < maxPageSize) {
+      pageSize = Math.min(pageSize * 2, maxPageSize);
+    }
+  }
+
+  /**
+   * Reports a page whose download failed, halving the page size if the failure is caused by the page size.
+   *
+   * @param top     number of records requested
+   * @param failure download failure
+   * @return true if the page is to be requested again with the lowered page size
+   */
+  synchronized boolean pageFailed(long top, Exception failure) {
+    if (!adaptive || top <= 1 || !isPageSizeFailure(failure)) {
+      return false;
+    }
+    pageSize = Math.min(pageSize, Math.max(top / 2, 1));
+    readerMetrics.pageSizeDecreased(pageSize);
+    return true;
+  }
+
+  /**
+   * @return true if the given failure is a timeout or a server error, which a smaller page may avoid
+   */
+  static boolean isPageSizeFailure(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InterruptedIOException) {
+        return true;
+      }
+      if (cause instanceof SuccessFactorsServiceException) {
+        Integer errorCode = ((SuccessFactorsServiceException) cause).getErrorCode();
+        if (errorCode != null && errorCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
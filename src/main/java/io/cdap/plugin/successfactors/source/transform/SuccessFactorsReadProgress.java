@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsReadProgress} estimates the progress of a split read with server side pagination, which
+ * has no range to measure the read records against:
+ * - while fewer records than the '$count' planned for the split are read, the progress is the share of the read
+ * records.
+ * - without a planned count, or once the count is exceeded as records were added after the planning, the remaining
+ * records are estimated from the pages read so far: the records of the pages started but not read yet, sized by the
+ * average bytes per record, and at least one more page of the average size, as the end of the paging is only known
+ * once the last page is read.
+ * <p>
+ * The number of pages and bytes started is accumulated in the metrics of the stage, see
+ * {@link SuccessFactorsReaderMetrics}.
+ */
+public class SuccessFactorsReadProgress {
+
+  public static final String PAGES_METRIC = "successfactors.read.pages";
+  public static final String BYTES_METRIC = "successfactors.read.bytes";
+  public static final String EXPECTED_RECORDS_METRIC = "successfactors.expected.records";
+
+  @Nullable
+  private final Long expectedRecords;
+  private final SuccessFactorsReaderMetrics readerMetrics;
+  private long readRecords;
+  private long startedPages;
+  private long startedBytes;
+  private long readPages;
+  private long readPageBytes;
+  private long readPageRecords;
+  private boolean finished;
+
+  /**
+   * @param expectedRecords number of records planned for the split, or null if unknown
+   * @param readerMetrics   metrics of the stage reading the split
+   */
+  SuccessFactorsReadProgress(@Nullable Long expectedRecords, SuccessFactorsReaderMetrics readerMetrics) {
+    this.expectedRecords = expectedRecords;
+    this.readerMetrics = readerMetrics;
+  }
+
+  /**
+   * Reports a downloaded page, whose records are about to be read.
+   *
+   * @param pageBytes size of the page in bytes
+   */
+  synchronized void pageStarted(long pageBytes) {
+    startedPages++;
+    startedBytes += pageBytes;
+    readerMetrics.pageStarted(pageBytes);
+  }
+
+  /**
+   * Reports a page whose records are all read.
+   *
+   * @param pageBytes   size of the page in bytes
+   * @param pageRecords number of records of the page
+   */
+  synchronized void pageRead(long pageBytes, long pageRecords) {
+    readPages++;
+    readPageBytes += pageBytes;
+    readPageRecords += pageRecords;
+  }
+
+  synchronized void recordRead() {
+    readRecords++;
+  }
+
+  synchronized void finished() {
+    finished = true;
+  }
+
+  /**
+   * @return estimated progress of the split, between 0 and 1
+   */
+  synchronized float getProgress() {
+    if (finished) {
+      return 1f;
+    }
+    if (expectedRecords != null && readRecords < expectedRecords) {
+      return readRecords / (float) expectedRecords;
+    }
+    if (readRecords == 0 || readPages == 0) {
+      return 0f;
+    }
+    double estimatedRecords = readPageRecords + (double) readPageRecords / readPages;
+    if (readPageRecords > 0) {
+      double bytesPerRecord = (double) readPageBytes / readPageRecords;
+      estimatedRecords += (startedBytes - readPageBytes) / bytesPerRecord;
+    }
+    return (float) Math.min(readRecords / estimatedRecords, 1d);
+  }
+
+  /**
+   * @return average size in bytes of the records of the read pages, or 0 if no page is read yet
+   */
+  synchronized long getBytesPerRecord() {
+    return readPageRecords == 0 ? 0 : readPageBytes / readPageRecords;
+  }
+
+  synchronized long getStartedPages() {
+    return startedPages;
+  }
+}
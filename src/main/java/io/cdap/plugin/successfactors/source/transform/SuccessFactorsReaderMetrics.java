@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.cdap.api.metrics.Metrics;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsPageCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsReaderMetrics} accumulates the metrics of the record readers of a stage running in the
+ * same JVM, until the stage emits them from its transform, see {@link #emit(Metrics)}:
+ * - the number of pages and bytes started, see {@link SuccessFactorsReadProgress}.
+ * - the highest memory held by a reader, see {@link SuccessFactorsMemoryBudget}.
+ * - the smallest page size reached and the number of decreases, see {@link SuccessFactorsPageSizer}.
+ * - the number of pages read from the page cache, see {@link SuccessFactorsPageCache}.
+ * <p>
+ * The metrics are kept per run and stage, so that two SuccessFactors sources running on the same executor, or two
+ * runs of the same stage in a long-lived JVM, each report the metrics of their own readers. The metrics of a run are
+ * dropped once its last reader and transform running in the JVM release them, see {@link #release()}.
+ */
+public class SuccessFactorsReaderMetrics {
+
+  private static final Map<String, SuccessFactorsReaderMetrics> RUN_METRICS = new ConcurrentHashMap<>();
+
+  // started by the readers and not emitted yet
+  private final LongAdder pendingPages = new LongAdder();
+  private final LongAdder pendingBytes = new LongAdder();
+  private final LongAdder pendingPageCacheHits = new LongAdder();
+  private final LongAdder pendingPageSizeDecreases = new LongAdder();
+  private final LongAccumulator pendingMinPageSize = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  // highest memory held by a reader, and the value last emitted
+  private final LongAccumulator peakPageBytes = new LongAccumulator(Math::max, 0);
+  private final LongAccumulator peakEntryBytes = new LongAccumulator(Math::max, 0);
+  private final AtomicLong emittedPeakPageBytes = new AtomicLong();
+  private final AtomicLong emittedPeakEntryBytes = new AtomicLong();
+  // key of the shared metrics and number of their readers and transforms, guarded by RUN_METRICS
+  @Nullable
+  private final String runKey;
+  private int users;
+
+  public SuccessFactorsReaderMetrics() {
+    this(null);
+  }
+
+  private SuccessFactorsReaderMetrics(@Nullable String runKey) {
+    this.runKey = runKey;
+  }
+
+  /**
+   * Returns the metrics of the given run of the stage, shared by its record readers and its transforms running in the
+   * JVM, until each of them releases it.
+   *
+   * @param runId     identifier of the run, see {@code SuccessFactorsReadPlan#getRunId()}, null if unknown
+   * @param stageName name of the stage
+   * @return {@code SuccessFactorsReaderMetrics}
+   */
+  public static SuccessFactorsReaderMetrics acquire(@Nullable String runId, String stageName) {
+    return RUN_METRICS.compute(runId + "/" + stageName, (key, metrics) -> {
+      SuccessFactorsReaderMetrics runMetrics = metrics == null ? new SuccessFactorsReaderMetrics(key) : metrics;
+      runMetrics.users++;
+      return runMetrics;
+    });
+  }
+
+  /**
+   * Releases the metrics acquired by a record reader or a transform, the metrics being dropped once released by all
+   * of them.
+   */
+  public void release() {
+    if (runKey != null) {
+      RUN_METRICS.computeIfPresent(runKey, (key, metrics) -> --metrics.users > 0 ? metrics : null);
+    }
+  }
+
+  /**
+   * Emits the metrics accumulated since the last call, and the highest memory held by a reader if it increased.
+   *
+   * @param metrics stage metrics
+   */
+  public void emit(Metrics metrics) {
+    emitCount(metrics, SuccessFactorsReadProgress.PAGES_METRIC, pendingPages);
+    emitCount(metrics, SuccessFactorsReadProgress.BYTES_METRIC, pendingBytes);
+    emitCount(metrics, SuccessFactorsPageCache.HITS_METRIC, pendingPageCacheHits);
+    emitCount(metrics, SuccessFactorsPageSizer.PAGE_SIZE_DECREASES_METRIC, pendingPageSizeDecreases);
+    long minPageSize = pendingMinPageSize.getThenReset();
+    if (minPageSize != Long.MAX_VALUE) {
+      metrics.gauge(SuccessFactorsPageSizer.MIN_PAGE_SIZE_METRIC, minPageSize);
+    }
+    emitPeak(metrics, SuccessFactorsMemoryBudget.PEAK_PAGE_BYTES_METRIC, peakPageBytes, emittedPeakPageBytes);
+    emitPeak(metrics, SuccessFactorsMemoryBudget.PEAK_ENTRY_BYTES_METRIC, peakEntryBytes, emittedPeakEntryBytes);
+  }
+
+  /**
+   * Reports a page read from the page cache instead of being downloaded.
+   */
+  public void pageCacheHit() {
+    pendingPageCacheHits.increment();
+  }
+
+  void pageStarted(long pageBytes) {
+    pendingPages.increment();
+    pendingBytes.add(pageBytes);
+  }
+
+  void pageSizeDecreased(long pageSize) {
+    pendingMinPageSize.accumulate(pageSize);
+    pendingPageSizeDecreases.increment();
+  }
+
+  void pageBytesHeld(long bytes) {
+    peakPageBytes.accumulate(bytes);
+  }
+
+  void entryBytesHeld(long bytes) {
+    peakEntryBytes.accumulate(bytes);
+  }
+
+  private static void emitCount(Metrics metrics, String name, LongAdder pending) {
+    long value = pending.sumThenReset();
+    if (value > 0) {
+      metrics.countLong(name, value);
+    }
+  }
+
+  private static void emitPeak(Metrics metrics, String name, LongAccumulator peak, AtomicLong emittedPeak) {
+    long value = peak.get();
+    long emittedValue = emittedPeak.get();
+    if (value > emittedValue && emittedPeak.compareAndSet(emittedValue, value)) {
+      metrics.gauge(name, value);
+    }
+  }
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.olingo.odata2.api.edm.EdmEntityType;
+import org.apache.olingo.odata2.api.edm.EdmException;
+import org.apache.olingo.odata2.api.edm.EdmFacets;
+import org.apache.olingo.odata2.api.edm.EdmLiteralKind;
+import org.apache.olingo.odata2.api.edm.EdmNavigationProperty;
+import org.apache.olingo.odata2.api.edm.EdmProperty;
+import org.apache.olingo.odata2.api.edm.EdmSimpleType;
+import org.apache.olingo.odata2.api.edm.EdmSimpleTypeKind;
+import org.apache.olingo.odata2.api.edm.EdmTypeKind;
+import org.apache.olingo.odata2.api.edm.EdmTyped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsRecordDecoder} converts a SuccessFactors OData v2 JSON entry straight to a
+ * {@code StructuredRecord}, without building the intermediate Olingo {@code ODataEntry}.
+ * <p>
+ * The decoding plan is compiled once from the output schema and the EDM entity type. The produced records are the
+ * same as the ones built by {@code SuccessFactorsTransformer} from the Olingo entries: the most common EDM types
+ * (String, Int64, Decimal, DateTime, DateTimeOffset and Time) are decoded directly from the JSON text and any other
+ * type, or any value not matching the expected format, is decoded by the Olingo EDM simple type.
+ */
+public class SuccessFactorsRecordDecoder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsRecordDecoder.class);
+  private static final String ODATA_RESULT_ELEMENT = "results";
+  private static final String ODATA_DEFERRED_ELEMENT = "__deferred";
+  private static final String JSON_DATE_PREFIX = "/Date(";
+  private static final String JSON_DATE_SUFFIX = ")/";
+  private static final String JSON_TIME_PREFIX = "PT";
+  private static final long MILLIS_PER_MINUTE = 60_000L;
+  private static final int MAX_DECIMAL_DIGITS = 29;
+  private static final int MAX_TIME_FRACTION_DIGITS = 3;
+
+  private final EntityPlan rootPlan;
+  private final Map<String, Object> keyValues;
+
+  private SuccessFactorsRecordDecoder(EntityPlan rootPlan) {
+    this.rootPlan = rootPlan;
+    this.keyValues = new HashMap<>();
+  }
+
+  /**
+   * Compiles the decoding plan for the given output schema and entity type.
+   *
+   * @param recordSchema output schema
+   * @param entityType   EDM entity type of the extracted entity
+   * @param captureKeys  whether the key property values of the root entity are to be captured
+   * @return {@code SuccessFactorsRecordDecoder} or null if the schema contains a field which can not be decoded
+   * directly e.g. a complex type property.
+   * @throws EdmException any metadata based exception
+   */
+  @Nullable
+  public static SuccessFactorsRecordDecoder compile(Schema recordSchema, EdmEntityType entityType,
+                                                    boolean captureKeys) throws EdmException {
+    EntityPlan rootPlan = compileEntity(recordSchema, entityType);
+    if (rootPlan == null) {
+      return null;
+    }
+    if (captureKeys) {
+      for (EdmProperty keyProperty : entityType.getKeyProperties()) {
+        rootPlan.keys.put(keyProperty.getName(), new KeyPlan((EdmSimpleType) keyProperty.getType(),
+                                                             keyProperty.getFacets()));
+      }
+    }
+    return new SuccessFactorsRecordDecoder(rootPlan);
+  }
+
+  /**
+   * @return a new decoder sharing the compiled decoding plan of this decoder, e.g. for another record reader.
+   */
+  public SuccessFactorsRecordDecoder copy() {
+    return new SuccessFactorsRecordDecoder(rootPlan);
+  }
+
+  /**
+   * Decodes the entry object the given parser is positioned at. The parser is left at the end of the entry object.
+   *
+   * @param parser JSON parser positioned at the start of the entry object
+   * @return {@code StructuredRecord}
+   * @throws IOException  any JSON parsing exception
+   * @throws EdmException any value not matching its EDM type
+   */
+  public StructuredRecord decode(JsonParser parser) throws IOException, EdmException {
+    keyValues.clear();
+    parser.nextToken();
+    return decodeEntity(parser, rootPlan, true);
+  }
+
+  /**
+   * @return the key property values of the last decoded entry, typed as per the Olingo EDM simple types.
+   */
+  public Map<String, Object> getKeyValues() {
+    return keyValues;
+  }
+
+  /**
+   * Decodes the fields of the current entity object, starting from the current field.
+   */
+  private StructuredRecord decodeEntity(JsonParser parser, EntityPlan plan, boolean root)
+    throws IOException, EdmException {
+
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(plan.schema);
+    for (String arrayField : plan.arrayFields) {
+      recordBuilder.set(arrayField, Collections.emptyList());
+    }
+    for (JsonToken token = parser.getCurrentToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+      String fieldName = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      FieldPlan fieldPlan = plan.fields.get(fieldName);
+      KeyPlan keyPlan = root ? plan.keys.get(fieldName) : null;
+
+      if (valueToken.isScalarValue() && keyPlan != null && valueToken != JsonToken.VALUE_NULL) {
+        keyValues.put(fieldName, keyPlan.type.valueOfString(parser.getText(), EdmLiteralKind.JSON, keyPlan.facets,
+                                                            keyPlan.type.getDefaultType()));
+      }
+      if (fieldPlan == null || valueToken == JsonToken.VALUE_NULL) {
+        parser.skipChildren();
+      } else if (fieldPlan.entityPlan != null) {
+        decodeNavigation(parser, fieldPlan, recordBuilder);
+      } else if (valueToken.isScalarValue()) {
+        decodeSimpleValue(parser.getText(), fieldPlan, recordBuilder);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return recordBuilder.build();
+  }
+
+  /**
+   * Decodes the expanded navigation entity data, which is either a single entity of 0 to 1 multiplicity or a
+   * 'results' array of entities of 1 to * multiplicity. Not expanded navigation properties only hold a '__deferred'
+   * link and are skipped.
+   */
+  private void decodeNavigation(JsonParser parser, FieldPlan fieldPlan, StructuredRecord.Builder recordBuilder)
+    throws IOException, EdmException {
+
+    List<StructuredRecord> records = new ArrayList<>();
+    boolean feed = false;
+    if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+      feed = true;
+      decodeEntities(parser, fieldPlan.entityPlan, records);
+    } else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+      JsonToken token = parser.nextToken();
+      String firstField = token == JsonToken.FIELD_NAME ? parser.getCurrentName() : null;
+      if (ODATA_DEFERRED_ELEMENT.equals(firstField)) {
+        skipRemainingFields(parser);
+        return;
+      }
+      if (ODATA_RESULT_ELEMENT.equals(firstField)) {
+        feed = true;
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+          decodeEntities(parser, fieldPlan.entityPlan, records);
+        } else {
+          parser.skipChildren();
+        }
+        skipRemainingFields(parser);
+      } else {
+        records.add(decodeEntity(parser, fieldPlan.entityPlan, false));
+      }
+    } else {
+      return;
+    }
+
+    if (fieldPlan.array) {
+      recordBuilder.set(fieldPlan.name, records);
+    } else if (!feed && !records.isEmpty()) {
+      recordBuilder.set(fieldPlan.name, records.get(0));
+    }
+  }
+
+  private void decodeEntities(JsonParser parser, EntityPlan entityPlan, List<StructuredRecord> records)
+    throws IOException, EdmException {
+    for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+      if (token == JsonToken.START_OBJECT) {
+        parser.nextToken();
+        records.add(decodeEntity(parser, entityPlan, false));
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static void skipRemainingFields(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      parser.nextToken();
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * Decodes the simple property value and sets it into the {@code StructuredRecord.Builder}.
+   */
+  private void decodeSimpleValue(String text, FieldPlan fieldPlan, StructuredRecord.Builder recordBuilder)
+    throws EdmException {
+
+    Schema.LogicalType logicalType = fieldPlan.schema.getLogicalType();
+    if (logicalType == Schema.LogicalType.DECIMAL) {
+      recordBuilder.setDecimal(fieldPlan.name, decodeDecimal(text, fieldPlan)
+        .setScale(fieldPlan.schema.getScale(), BigDecimal.ROUND_HALF_UP));
+
+    } else if (logicalType == Schema.LogicalType.DATETIME) {
+      LocalDateTime localDateTime = fieldPlan.kind == EdmSimpleTypeKind.DateTime ? decodeDateTime(text) : null;
+      if (localDateTime == null) {
+        localDateTime = decodeCalendar(text, fieldPlan).toZonedDateTime().toLocalDateTime();
+      }
+      recordBuilder.setDateTime(fieldPlan.name, localDateTime);
+
+    } else if (logicalType == Schema.LogicalType.TIME_MICROS) {
+      LocalTime localTime = fieldPlan.kind == EdmSimpleTypeKind.Time ? decodeTime(text, fieldPlan.facets) : null;
+      if (localTime == null) {
+        localTime = decodeCalendar(text, fieldPlan).toZonedDateTime().toLocalTime();
+      }
+      recordBuilder.setTime(fieldPlan.name, localTime);
+
+    } else if (logicalType == Schema.LogicalType.TIMESTAMP_MICROS) {
+      ZonedDateTime zonedDateTime = fieldPlan.kind == EdmSimpleTypeKind.DateTimeOffset ?
+        decodeDateTimeOffset(text) : null;
+      if (zonedDateTime == null) {
+        zonedDateTime = decodeCalendar(text, fieldPlan).toZonedDateTime();
+      }
+      recordBuilder.setTimestamp(fieldPlan.name, zonedDateTime);
+
+    } else if (logicalType == null) {
+      recordBuilder.set(fieldPlan.name, decodeValue(text, fieldPlan));
+    }
+  }
+
+  private Object decodeValue(String text, FieldPlan fieldPlan) throws EdmException {
+    if (fieldPlan.kind == EdmSimpleTypeKind.String && isValidString(text, fieldPlan.facets)) {
+      return text;
+    }
+    if (fieldPlan.kind == EdmSimpleTypeKind.Int64) {
+      try {
+        return Long.parseLong(text);
+      } catch (NumberFormatException e) {
+        // decoded by the EDM type to report the same error
+      }
+    }
+    return fieldPlan.type.valueOfString(text, EdmLiteralKind.JSON, fieldPlan.facets, fieldPlan.type.getDefaultType());
+  }
+
+  private BigDecimal decodeDecimal(String text, FieldPlan fieldPlan) throws EdmException {
+    if (fieldPlan.kind == EdmSimpleTypeKind.Decimal && isUnconstrainedDecimal(text, fieldPlan.facets)) {
+      try {
+        return new BigDecimal(text);
+      } catch (NumberFormatException e) {
+        // decoded by the EDM type to report the same error
+      }
+    }
+    return new BigDecimal(String.valueOf(decodeValue(text, fieldPlan)));
+  }
+
+  /**
+   * Checks the string value against the facets validated by the EDM type, i.e. the maximum length and the unicode
+   * restriction.
+   */
+  private static boolean isValidString(String text, @Nullable EdmFacets facets) {
+    return facets == null || (!Boolean.FALSE.equals(facets.isUnicode())
+      && (facets.getMaxLength() == null || text.length() <= facets.getMaxLength()));
+  }
+
+  /**
+   * Checks if the decimal value can be decoded without the literal and facet validations of the EDM type, i.e. there
+   * is no precision or scale restriction and the value is a plain number within the supported length.
+   */
+  private static boolean isUnconstrainedDecimal(String text, @Nullable EdmFacets facets) {
+    boolean constrained = facets != null && (facets.getPrecision() != null || facets.getScale() != null);
+    return !constrained && text.length() <= MAX_DECIMAL_DIGITS && text.indexOf('e') < 0 && text.indexOf('E') < 0;
+  }
+
+  private GregorianCalendar decodeCalendar(String text, FieldPlan fieldPlan) throws EdmException {
+    return (GregorianCalendar) fieldPlan.type.valueOfString(text, EdmLiteralKind.JSON, fieldPlan.facets,
+                                                            Calendar.class);
+  }
+
+  /**
+   * Decodes the '/Date(1583107200000)/' JSON format of Edm.DateTime, given in milliseconds since epoch in UTC.
+   *
+   * @return {@code LocalDateTime} or null if the text is not in the expected format
+   */
+  @Nullable
+  private static LocalDateTime decodeDateTime(String text) {
+    if (!text.startsWith(JSON_DATE_PREFIX) || !text.endsWith(JSON_DATE_SUFFIX)) {
+      return null;
+    }
+    try {
+      long millis = Long.parseLong(text.substring(JSON_DATE_PREFIX.length(),
+                                                  text.length() - JSON_DATE_SUFFIX.length()));
+      return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the '/Date(1618796144000+0060)/' JSON format of Edm.DateTimeOffset. The milliseconds are the local time
+   * in the optional offset, given in minutes.
+   *
+   * @return {@code ZonedDateTime} or null if the text is not in the expected format
+   */
+  @Nullable
+  private static ZonedDateTime decodeDateTimeOffset(String text) {
+    if (!text.startsWith(JSON_DATE_PREFIX) || !text.endsWith(JSON_DATE_SUFFIX)) {
+      return null;
+    }
+    String value = text.substring(JSON_DATE_PREFIX.length(), text.length() - JSON_DATE_SUFFIX.length());
+    int offsetIndex = Math.max(value.lastIndexOf('+'), value.lastIndexOf('-'));
+    try {
+      if (offsetIndex <= 0) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(value)), ZoneOffset.UTC);
+      }
+      String offset = value.substring(offsetIndex + 1);
+      if (offset.length() != 4) {
+        return null;
+      }
+      int offsetMinutes = Integer.parseInt(offset) * (value.charAt(offsetIndex) == '-' ? -1 : 1);
+      long millis = Long.parseLong(value.substring(0, offsetIndex)) - offsetMinutes * MILLIS_PER_MINUTE;
+      return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.ofTotalSeconds(offsetMinutes * 60));
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the 'PT10H30M15S' JSON format of Edm.Time.
+   *
+   * @return {@code LocalTime} or null if the text is not a time of the day with up to millisecond precision, within
+   * the precision facet
+   */
+  @Nullable
+  private static LocalTime decodeTime(String text, @Nullable EdmFacets facets) {
+    int maxFractionDigits = facets == null || facets.getPrecision() == null ? MAX_TIME_FRACTION_DIGITS :
+      Math.min(MAX_TIME_FRACTION_DIGITS, facets.getPrecision());
+    if (!text.startsWith(JSON_TIME_PREFIX) || text.length() == JSON_TIME_PREFIX.length()) {
+      return null;
+    }
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int nanos = 0;
+    int position = JSON_TIME_PREFIX.length();
+    int start = position;
+    String lastUnit = "";
+    while (position < text.length()) {
+      char c = text.charAt(position);
+      if (Character.isDigit(c) || c == '.') {
+        position++;
+        continue;
+      }
+      String number = text.substring(start, position);
+      if (number.isEmpty()) {
+        return null;
+      }
+      try {
+        if (c == 'H' && lastUnit.isEmpty() && number.length() <= 2) {
+          hour = Integer.parseInt(number);
+        } else if (c == 'M' && !lastUnit.equals("M") && !lastUnit.equals("S") && number.length() <= 2) {
+          minute = Integer.parseInt(number);
+        } else if (c == 'S' && !lastUnit.equals("S")) {
+          int dot = number.indexOf('.');
+          String seconds = dot < 0 ? number : number.substring(0, dot);
+          String fraction = dot < 0 ? "" : number.substring(dot + 1);
+          if (seconds.isEmpty() || seconds.length() > 2 || fraction.length() > maxFractionDigits
+            || fraction.indexOf('.') >= 0
+            || (dot >= 0 && fraction.isEmpty())) {
+            return null;
+          }
+          second = Integer.parseInt(seconds);
+          nanos = fraction.isEmpty() ? 0 : Integer.parseInt((fraction + "00").substring(0, 3)) * 1_000_000;
+        } else {
+          return null;
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      lastUnit = String.valueOf(c);
+      position++;
+      start = position;
+    }
+    if (start != text.length() || hour > 23 || minute > 59 || second > 59) {
+      return null;
+    }
+    return LocalTime.of(hour, minute, second, nanos);
+  }
+
+  /**
+   * Compiles the decoding plan of an entity, returns null if any of the schema fields can not be decoded directly.
+   */
+  @Nullable
+  private static EntityPlan compileEntity(Schema recordSchema, EdmEntityType entityType) throws EdmException {
+    EntityPlan entityPlan = new EntityPlan(recordSchema);
+    for (Schema.Field field : recordSchema.getFields()) {
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+      boolean array = fieldSchema.getType() == Schema.Type.ARRAY;
+      if (array) {
+        entityPlan.arrayFields.add(field.getName());
+      }
+
+      EdmTyped member = entityType.getProperty(field.getName());
+      if (member == null) {
+        continue;
+      }
+      if (member instanceof EdmNavigationProperty) {
+        Schema nestedSchema = array ? fieldSchema.getComponentSchema() : fieldSchema;
+        nestedSchema = nestedSchema.isNullable() ? nestedSchema.getNonNullable() : nestedSchema;
+        if (nestedSchema.getType() != Schema.Type.RECORD) {
+          LOG.debug("Field '{}' of type '{}' can not be decoded directly.", field.getName(), fieldSchema.getType());
+          return null;
+        }
+        EntityPlan nestedPlan = compileEntity(nestedSchema, (EdmEntityType) member.getType());
+        if (nestedPlan == null) {
+          return null;
+        }
+        entityPlan.fields.put(field.getName(), new FieldPlan(field.getName(), fieldSchema, array, nestedPlan));
+      } else if (member.getType().getKind() == EdmTypeKind.SIMPLE && !array
+        && fieldSchema.getType() != Schema.Type.RECORD) {
+        entityPlan.fields.put(field.getName(), new FieldPlan(field.getName(), fieldSchema,
+                                                             (EdmSimpleType) member.getType(),
+                                                             ((EdmProperty) member).getFacets()));
+      } else {
+        LOG.debug("Field '{}' of EDM type '{}' can not be decoded directly.", field.getName(),
+                  member.getType().getName());
+        return null;
+      }
+    }
+    return entityPlan;
+  }
+
+  /**
+   * Decoding plan of an entity.
+   */
+  private static final class EntityPlan {
+    private final Schema schema;
+    private final Map<String, FieldPlan> fields = new HashMap<>();
+    private final List<String> arrayFields = new ArrayList<>();
+    private final Map<String, KeyPlan> keys = new HashMap<>();
+
+    private EntityPlan(Schema schema) {
+      this.schema = schema;
+    }
+  }
+
+  /**
+   * Decoding plan of a schema field, holding either a simple property or an expanded navigation property.
+   */
+  private static final class FieldPlan {
+    private final String name;
+    private final Schema schema;
+    private final boolean array;
+    private final EdmSimpleType type;
+    private final EdmSimpleTypeKind kind;
+    private final EdmFacets facets;
+    private final EntityPlan entityPlan;
+
+    private FieldPlan(String name, Schema schema, EdmSimpleType type, @Nullable EdmFacets facets) {
+      this.name = name;
+      this.schema = schema;
+      this.array = false;
+      this.type = type;
+      this.kind = getKind(type);
+      this.facets = facets;
+      this.entityPlan = null;
+    }
+
+    private FieldPlan(String name, Schema schema, boolean array, EntityPlan entityPlan) {
+      this.name = name;
+      this.schema = schema;
+      this.array = array;
+      this.type = null;
+      this.kind = null;
+      this.facets = null;
+      this.entityPlan = entityPlan;
+    }
+
+    @Nullable
+    private static EdmSimpleTypeKind getKind(EdmSimpleType type) {
+      for (EdmSimpleTypeKind kind : EdmSimpleTypeKind.values()) {
+        if (kind.getEdmSimpleTypeInstance().equals(type)) {
+          return kind;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Decoding plan of a key property.
+   */
+  private static final class KeyPlan {
+    private final EdmSimpleType type;
+    private final EdmFacets facets;
+
+    private KeyPlan(EdmSimpleType type, @Nullable EdmFacets facets) {
+      this.type = type;
+      this.facets = facets;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsFeedReader;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+
+/**
+ * This {@code SuccessFactorsRecordPipeline} reads the records of a split through three stages running concurrently,
+ * connected by bounded queues, so that a stage blocks once it is ahead of the next one:
+ * - fetch: downloads the next pages, see {@code SuccessFactorsPagePrefetcher}
+ * - parse: reads the entries of the downloaded pages, decoded straight to the output records if possible
+ * - transform: builds the output records from the OData entries, skipped if the entries are decoded directly
+ * <p>
+ * The records are emitted in the order they are fetched. A failure of any stage is raised after the records read
+ * before it.
+ * <p>
+ * The parsed batches hold the bytes they were parsed from in the memory budget of the reader until all their records
+ * are emitted, the parse stage waits once the budget is reached.
+ */
+class SuccessFactorsRecordPipeline implements Closeable {
+
+  // number of record batches waiting to be transformed or emitted
+  private static final int RECORD_QUEUE_CAPACITY = 4;
+  private static final int BATCH_SIZE = 100;
+
+  private final SuccessFactorsPagePrefetcher prefetcher;
+  private final SuccessFactorsTransformer valueConverter;
+  @Nullable
+  private final SuccessFactorsRecordDecoder recordDecoder;
+  @Nullable
+  private final Long maxRecords;
+  private final SuccessFactorsReadProgress progress;
+  private final SuccessFactorsMemoryBudget budget;
+
+  private final BlockingQueue<Batch> parseQueue = new ArrayBlockingQueue<>(RECORD_QUEUE_CAPACITY);
+  private final BlockingQueue<Batch> recordQueue = new ArrayBlockingQueue<>(RECORD_QUEUE_CAPACITY);
+  private ExecutorService executor;
+
+  private Iterator<Object> currentRecords = Collections.emptyIterator();
+  private long currentBatchBytes;
+  private boolean finished;
+
+  SuccessFactorsRecordPipeline(SuccessFactorsPagePrefetcher prefetcher, SuccessFactorsTransformer valueConverter,
+                               @Nullable SuccessFactorsRecordDecoder recordDecoder, @Nullable Long maxRecords,
+                               SuccessFactorsReadProgress progress, SuccessFactorsMemoryBudget budget) {
+    this.prefetcher = prefetcher;
+    this.valueConverter = valueConverter;
+    this.recordDecoder = recordDecoder;
+    this.maxRecords = maxRecords;
+    this.progress = progress;
+    this.budget = budget;
+  }
+
+  /**
+   * Returns the next record of the split, starting the stages on the first call.
+   *
+   * @return {@code StructuredRecord} or null if all the records are read
+   * @throws IOException          any failure of the stages is wrapped under it.
+   * @throws InterruptedException if interrupted while waiting for the next record
+   */
+  @Nullable
+  StructuredRecord nextRecord() throws IOException, InterruptedException {
+    if (executor == null) {
+      startStages();
+    }
+    while (!currentRecords.hasNext()) {
+      // the emitted batch is released before waiting for the next one, which the parse stage may be holding back
+      budget.releaseEntries(currentBatchBytes);
+      currentBatchBytes = 0;
+      if (finished) {
+        return null;
+      }
+      Batch batch = recordQueue.take();
+      if (batch.failure != null) {
+        finished = true;
+        if (batch.failure instanceof IOException) {
+          throw (IOException) batch.failure;
+        } else if (batch.failure instanceof RuntimeException) {
+          throw (RuntimeException) batch.failure;
+        }
+        throw new IOException(batch.failure.getMessage(), batch.failure);
+      }
+      finished = batch.last;
+      currentBatchBytes = batch.bytes;
+      currentRecords = batch.items.iterator();
+    }
+    return (StructuredRecord) currentRecords.next();
+  }
+
+  @Override
+  public void close() throws IOException {
+    finished = true;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    prefetcher.close();
+  }
+
+  private void startStages() {
+    boolean transformRequired = recordDecoder == null;
+    executor = Executors.newFixedThreadPool(transformRequired ? 2 : 1, new ThreadFactoryBuilder()
+      .setNameFormat("successfactors-reader-%d").setDaemon(true).build());
+    executor.submit(() -> parse(transformRequired ? parseQueue : recordQueue));
+    if (transformRequired) {
+      executor.submit(this::transform);
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Parse stage, reads the entries of the downloaded pages in order.
+   *
+   * @param outputQueue queue of the next stage
+   */
+  private void parse(BlockingQueue<Batch> outputQueue) {
+    long parsedRows = 0;
+    try {
+      for (SuccessFactorsPagePrefetcher.Page page = prefetcher.nextPage(); page != null;
+           page = prefetcher.nextPage()) {
+        progress.pageStarted(page.getFeed().getSize());
+        long pageRows = parsePage(page.getFeed(), parsedRows, outputQueue);
+        progress.pageRead(page.getFeed().getSize(), pageRows);
+        parsedRows += pageRows;
+        if (!prefetcher.pageRead(page, pageRows)) {
+          break;
+        }
+      }
+      outputQueue.put(new Batch(Collections.emptyList(), 0, true, null));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (SuccessFactorsServiceException | IOException | RuntimeException e) {
+      forward(outputQueue, new Batch(Collections.emptyList(), 0, true, e));
+    }
+  }
+
+  private long parsePage(SuccessFactorsFeedReader feed, long parsedRows, BlockingQueue<Batch> outputQueue)
+    throws SuccessFactorsServiceException, IOException, InterruptedException {
+    long pageRows = 0;
+    try (SuccessFactorsFeedReader pageFeed = feed) {
+      List<Object> items = new ArrayList<>(BATCH_SIZE);
+      long batchOffset = pageFeed.getReadBytes();
+      for (Object item = readItem(pageFeed); item != null; item = readItem(pageFeed)) {
+        items.add(item);
+        pageRows++;
+        if (maxRecords != null && parsedRows + pageRows >= maxRecords) {
+          break;
+        }
+        if (items.size() == BATCH_SIZE) {
+          batchOffset = putBatch(items, batchOffset, pageFeed, outputQueue);
+          items = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (!items.isEmpty()) {
+        putBatch(items, batchOffset, pageFeed, outputQueue);
+      }
+    }
+    return pageRows;
+  }
+
+  /**
+   * Hands the parsed entries over to the next stage, once their bytes fit in the memory budget.
+   *
+   * @return offset of the next batch in the page
+   */
+  private long putBatch(List<Object> items, long batchOffset, SuccessFactorsFeedReader feed,
+                        BlockingQueue<Batch> outputQueue) throws InterruptedException {
+    long readBytes = feed.getReadBytes();
+    long batchBytes = readBytes - batchOffset;
+    budget.reserveEntries(batchBytes);
+    outputQueue.put(new Batch(items, batchBytes, false, null));
+    return readBytes;
+  }
+
+  /**
+   * Transform stage, builds the output records from the parsed OData entries.
+   */
+  private void transform() {
+    try {
+      while (true) {
+        Batch batch = parseQueue.take();
+        List<Object> records = new ArrayList<>(batch.items.size());
+        for (Object entry : batch.items) {
+          records.add(valueConverter.buildCurrentRecord((ODataEntry) entry));
+        }
+        recordQueue.put(new Batch(records, batch.bytes, batch.last, batch.failure));
+        if (batch.last) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      forward(recordQueue, new Batch(Collections.emptyList(), 0, true, e));
+    }
+  }
+
+  @Nullable
+  private Object readItem(SuccessFactorsFeedReader feed) throws SuccessFactorsServiceException {
+    return recordDecoder != null ? feed.nextRecord(recordDecoder) : feed.nextEntry();
+  }
+
+  private static <T> void forward(BlockingQueue<T> queue, T item) {
+    try {
+      queue.put(item);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Batch of parsed entries or records, the last batch of the split carries the failure of a stage if any.
+   */
+  private static final class Batch {
+    private final List<Object> items;
+    // bytes of the page the items were parsed from
+    private final long bytes;
+    private final boolean last;
+    @Nullable
+    private final Exception failure;
+
+    private Batch(List<Object> items, long bytes, boolean last, @Nullable Exception failure) {
+      this.items = items;
+      this.bytes = bytes;
+      this.last = last;
+      this.failure = failure;
+    }
+  }
+}
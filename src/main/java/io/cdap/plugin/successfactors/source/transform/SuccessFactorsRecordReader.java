@@ -16,10 +16,14 @@
 
 package io.cdap.plugin.successfactors.source.transform;
 
+import com.google.common.base.Throwables;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
 import io.cdap.plugin.successfactors.common.exception.TransportException;
+import io.cdap.plugin.successfactors.source.input.SuccessFactorsReadPlan;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsFeedReader;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsPageCache;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -27,13 +31,10 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.olingo.odata2.api.edm.Edm;
 import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
-import org.apache.olingo.odata2.api.ep.feed.ODataFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -41,9 +42,15 @@ import javax.annotation.Nullable;
  */
 public class SuccessFactorsRecordReader extends RecordReader<LongWritable, StructuredRecord> {
 
+  private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsRecordReader.class);
+
   private final SuccessFactorsService successFactorsService;
   private final Edm edmData;
+  private final Schema pluginSchema;
   private final SuccessFactorsTransformer valueConverter;
+  // hydrated plan holding the compiled record decoder, not set when the reader is built from its parts
+  @Nullable
+  private final SuccessFactorsReadPlan readPlan;
 
   @Nullable
   private final Long start;
@@ -53,23 +60,93 @@ public class SuccessFactorsRecordReader extends RecordReader<LongWritable, Struc
 
   @Nullable
   private final Long packageSize;
+
+  // only used with server side pagination, client side splits are already capped while planning
+  @Nullable
+  private final Long maxRecords;
+  private final SuccessFactorsReaderMetrics readerMetrics;
+  private final SuccessFactorsReadProgress progress;
+  private final SuccessFactorsMemoryBudget budget;
+  private final SuccessFactorsPageSizer pageSizer;
+  // only client side windows read in order can be bisected
+  private final boolean errorTolerant;
   private Long skipCount;
   private Long fetchCount;
   private long numRowsProcessed;
   private LongWritable key;
-  private List<ODataEntry> oDataEntryList;
-  private ODataFeed oDataFeed;
-  private Iterator<ODataEntry> dataEntryIterator;
+  private SuccessFactorsFeedReader feedReader;
+  // number of records read from the current feed
+  private long pageRows;
+  // set once a record of the current feed fails to be parsed, the rest of the feed is not read
+  private boolean feedFailed;
+  // only set while the window which failed to be parsed is bisected, up to its end
+  private Long bisectTop;
+  private long bisectEnd;
+  // only set when the entries are decoded straight to the output records
+  private SuccessFactorsRecordDecoder recordDecoder;
+  // only set when the pages are read by the concurrent stages
+  private SuccessFactorsRecordPipeline pipeline;
+  // only set when the next pages are downloaded while the current one is read
+  private SuccessFactorsPagePrefetcher prefetcher;
+  private SuccessFactorsPagePrefetcher.Page currentPage;
   private StructuredRecord dataRecord;
 
   public SuccessFactorsRecordReader(SuccessFactorsService successFactorsService, Edm edmData, Schema pluginSchema,
                                     @Nullable Long start, @Nullable Long end, @Nullable Long packageSize) {
+    this(successFactorsService, edmData, pluginSchema, start, end, packageSize, null);
+  }
+
+  public SuccessFactorsRecordReader(SuccessFactorsService successFactorsService, Edm edmData, Schema pluginSchema,
+                                    @Nullable Long start, @Nullable Long end, @Nullable Long packageSize,
+                                    @Nullable Long maxRecords) {
+    this(successFactorsService, edmData, pluginSchema, start, end, packageSize, maxRecords, null, null);
+  }
+
+  /**
+   * @param expectedRecords number of records planned for a split read with server side pagination, used to report
+   *                        the progress, or null if unknown
+   */
+  public SuccessFactorsRecordReader(SuccessFactorsReadPlan readPlan, @Nullable Long start, @Nullable Long end,
+                                    @Nullable Long packageSize, @Nullable Long maxRecords,
+                                    @Nullable Long expectedRecords) {
+    this(readPlan, start, end, packageSize, maxRecords, expectedRecords, null);
+  }
+
+  /**
+   * @param expectedRecords number of records planned for a split read with server side pagination, used to report
+   *                        the progress, or null if unknown
+   * @param splitFilter     condition of the partition of the split, e.g. a key range, or null if the split is planned
+   *                        from offsets
+   */
+  public SuccessFactorsRecordReader(SuccessFactorsReadPlan readPlan, @Nullable Long start, @Nullable Long end,
+                                    @Nullable Long packageSize, @Nullable Long maxRecords,
+                                    @Nullable Long expectedRecords, @Nullable String splitFilter) {
+    this(readPlan.newService(), readPlan.getEdm(), readPlan.getOutputSchema(), start, end, packageSize, maxRecords,
+         expectedRecords, readPlan);
+    successFactorsService.setSplitFilter(splitFilter);
+  }
+
+  private SuccessFactorsRecordReader(SuccessFactorsService successFactorsService, Edm edmData, Schema pluginSchema,
+                                     @Nullable Long start, @Nullable Long end, @Nullable Long packageSize,
+                                     @Nullable Long maxRecords, @Nullable Long expectedRecords,
+                                     @Nullable SuccessFactorsReadPlan readPlan) {
 
     this.successFactorsService = successFactorsService;
     this.edmData = edmData;
+    this.pluginSchema = pluginSchema;
     this.start = start;
     this.end = end;
     this.packageSize = packageSize;
+    this.maxRecords = maxRecords;
+    this.readPlan = readPlan;
+    this.readerMetrics = readPlan == null ? new SuccessFactorsReaderMetrics() :
+      SuccessFactorsReaderMetrics.acquire(readPlan.getRunId(), readPlan.getStageName());
+    this.progress = new SuccessFactorsReadProgress(expectedRecords, readerMetrics);
+    this.budget = new SuccessFactorsMemoryBudget(successFactorsService.getReaderMemoryBudgetBytes(), readerMetrics);
+    this.pageSizer = new SuccessFactorsPageSizer(packageSize, successFactorsService.isAdaptivePageSize(),
+                                                 readerMetrics);
+    this.errorTolerant = successFactorsService.isErrorTolerantRead() && successFactorsService.hasIndependentPages() &&
+      !successFactorsService.isUnorderedRead() && start != null && end != null && packageSize != null;
 
     valueConverter = new SuccessFactorsTransformer(pluginSchema);
   }
@@ -77,37 +154,110 @@ public class SuccessFactorsRecordReader extends RecordReader<LongWritable, Struc
   @Override
   public void initialize(InputSplit split, TaskAttemptContext taContext) throws IOException {
     key = new LongWritable();
-    oDataEntryList = new ArrayList<>();
-    dataEntryIterator = oDataEntryList.listIterator();
+    if (readPlan != null) {
+      recordDecoder = readPlan.newRecordDecoder();
+    } else {
+      try {
+        recordDecoder = successFactorsService.getRecordDecoder(edmData, pluginSchema);
+      } catch (SuccessFactorsServiceException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+    Long pageCacheBytes = successFactorsService.getPageCacheBytes();
+    if (readPlan != null && pageCacheBytes != null) {
+      // the attempts of a split request the same pages, whatever their executor
+      String splitKey = start == null ? "all" : start + "-" + end;
+      if (successFactorsService.getSplitFilter() != null) {
+        // the splits of the partitions share their indices
+        splitKey += ":" + successFactorsService.getSplitFilter();
+      }
+      successFactorsService.setPageCache(SuccessFactorsPageCache.forRun(readPlan.getRunId(), pageCacheBytes,
+                                                                         readerMetrics), splitKey);
+    }
+    int prefetchDepth = successFactorsService.getPrefetchDepth();
+    if (successFactorsService.isPipelinedRead()) {
+      // the fetch stage of the pipeline always downloads at least the next page
+      pipeline = new SuccessFactorsRecordPipeline(newPrefetcher(Math.max(prefetchDepth, 1)), valueConverter,
+                                                  recordDecoder, maxRecords, progress, budget);
+    } else if (prefetchDepth > 0 || successFactorsService.getPageConcurrency() > 1) {
+      prefetcher = newPrefetcher(prefetchDepth);
+    }
   }
 
   @Override
   public boolean nextKeyValue() throws IOException, InterruptedException {
-    if (!dataEntryIterator.hasNext()) {
-      if (!isCallRequired()) {
-        return false;
+    boolean recordRead = readNextKeyValue();
+    if (recordRead) {
+      progress.recordRead();
+    } else {
+      progress.finished();
+    }
+    return recordRead;
+  }
+
+  private boolean readNextKeyValue() throws IOException, InterruptedException {
+    if (isRecordLimitReached()) {
+      return false;
+    }
+    if (pipeline != null) {
+      try {
+        dataRecord = pipeline.nextRecord();
+      } catch (IOException e) {
+        if (!errorTolerant) {
+          throw e;
+        }
+        readSequentially(e);
+        return readNextKeyValue();
       }
-      // This condition will be true in case of client side pagination
-      if (start != null && end != null && packageSize != null) {
-        calculateSkipAndFetchCount();
+      if (dataRecord == null) {
+        return false;
       }
-
+      numRowsProcessed++;
+      key.set(numRowsProcessed);
+      return true;
+    }
+    if (prefetcher != null) {
       try {
-        // Pulls the data from the SuccessFactors entity for the given range via 'rows to skip' and 'rows to fetch'.
-        oDataFeed = successFactorsService.readServiceEntityData(edmData, skipCount, fetchCount);
-        oDataEntryList = oDataFeed != null ? oDataFeed.getEntries() : Collections.emptyList();
-
-        if (oDataEntryList.isEmpty()) {
+        dataRecord = readPrefetchedRecord();
+      } catch (SuccessFactorsServiceException e) {
+        if (!errorTolerant) {
+          throw new IOException(e.getMessage(), e);
+        }
+        readSequentially(e);
+        return readNextKeyValue();
+      }
+      if (dataRecord == null) {
+        return false;
+      }
+      numRowsProcessed++;
+      key.set(numRowsProcessed);
+      return true;
+    }
+    try {
+      dataRecord = feedReader != null ? readSequentialRecord() : null;
+      if (dataRecord == null) {
+        if (feedReader != null) {
+          progress.pageRead(feedReader.getSize(), pageRows);
+        }
+        if (!isCallRequired()) {
           return false;
         }
-        dataEntryIterator = oDataEntryList.listIterator();
-
-      } catch (SuccessFactorsServiceException | TransportException e) {
-        throw new IOException(e.getMessage(), e);
+        feedReader = readPage();
+        progress.pageStarted(feedReader.getSize());
+        pageRows = 0;
+        feedFailed = false;
+        dataRecord = readSequentialRecord();
+        if (dataRecord == null) {
+          // a window failing on its first record is bisected by the next page
+          return feedFailed && readNextKeyValue();
+        }
       }
+      pageRows++;
+
+    } catch (SuccessFactorsServiceException | TransportException e) {
+      throw new IOException(e.getMessage(), e);
     }
 
-    dataRecord = valueConverter.buildCurrentRecord(dataEntryIterator.next());
     numRowsProcessed++;
     key.set(numRowsProcessed);
     return true;
@@ -125,26 +275,192 @@ public class SuccessFactorsRecordReader extends RecordReader<LongWritable, Struc
 
   @Override
   public float getProgress() throws IOException, InterruptedException {
+    if (start == null || end == null) {
+      // server side pagination has no range to measure the read records against
+      return progress.getProgress();
+    }
     return numRowsProcessed / (float) getLength();
   }
 
   @Override
   public void close() throws IOException {
-    // No-op
+    LOG.debug("Read {} records from {} pages, {} bytes per record. Memory peaked at {} bytes of pages and {} bytes " +
+                "of parsed records.", numRowsProcessed, progress.getStartedPages(), progress.getBytesPerRecord(),
+              budget.getPeakPageBytes(), budget.getPeakEntryBytes());
+    if (pipeline != null) {
+      pipeline.close();
+    }
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
+    if (feedReader != null) {
+      feedReader.close();
+    }
+    readerMetrics.release();
+  }
+
+  /**
+   * Reads the next record of the current page, moving on to the next downloaded page once the current one is read.
+   *
+   * @return {@code StructuredRecord} or null if all the records are read
+   */
+  @Nullable
+  private StructuredRecord readPrefetchedRecord() throws SuccessFactorsServiceException, IOException,
+    InterruptedException {
+    StructuredRecord record = currentPage != null ? readRecord() : null;
+    while (record == null) {
+      if (currentPage != null) {
+        feedReader.close();
+        progress.pageRead(feedReader.getSize(), pageRows);
+        if (!prefetcher.pageRead(currentPage, pageRows)) {
+          return null;
+        }
+      }
+      currentPage = prefetcher.nextPage();
+      if (currentPage == null) {
+        return null;
+      }
+      feedReader = currentPage.getFeed();
+      progress.pageStarted(feedReader.getSize());
+      pageRows = 0;
+      record = readRecord();
+    }
+    pageRows++;
+    return record;
+  }
+
+  /**
+   * Reads the next record of the current feed. With error tolerant read, a record which fails to be parsed ends the
+   * feed: the rest of its window is bisected by the following pages until the record fails alone, which is then
+   * returned as an invalid record holding the raw JSON of the page.
+   *
+   * @return {@code StructuredRecord} or null if all the entries of the feed are read
+   */
+  @Nullable
+  private StructuredRecord readSequentialRecord() throws SuccessFactorsServiceException {
+    if (feedFailed) {
+      return null;
+    }
+    try {
+      return readRecord();
+    } catch (SuccessFactorsServiceException e) {
+      if (!errorTolerant) {
+        throw e;
+      }
+      feedFailed = true;
+      long unreadRows = fetchCount - pageRows;
+      if (fetchCount > 1) {
+        bisectTop = Math.max(unreadRows / 2, 1);
+        bisectEnd = numRowsProcessed + unreadRows;
+        LOG.debug("Failed to parse the window at offset {} after {} records, bisecting its {} remaining records.",
+                  skipCount, pageRows, unreadRows, e);
+        return null;
+      }
+      LOG.warn("Failed to parse the record at offset {}, the record is sent to the error output.", skipCount, e);
+      bisectTop = null;
+      return SuccessFactorsInvalidRecord.of(numRowsProcessed + 1, String.valueOf(feedReader.getJson()),
+                                            getRootCauseMessage(e));
+    }
+  }
+
+  /**
+   * Returns the message of the root cause of the given parsing failure, the failure itself only carries the generic
+   * record processing message.
+   */
+  private static String getRootCauseMessage(Exception e) {
+    Throwable rootCause = Throwables.getRootCause(e);
+    return rootCause.getMessage() == null ? rootCause.toString() : rootCause.getMessage();
+  }
+
+  /**
+   * Closes the prefetched or pipelined pages once a page failed with error tolerant read, the split is then read by
+   * the sequential reader from the last emitted record, which bisects the failing page.
+   */
+  private void readSequentially(Exception failure) throws IOException {
+    LOG.warn("Failed to read the split after {} records, reading it sequentially from there to isolate the records " +
+               "failing to be parsed.", numRowsProcessed, failure);
+    if (pipeline != null) {
+      pipeline.close();
+      pipeline = null;
+    }
+    if (prefetcher != null) {
+      prefetcher.close();
+      prefetcher = null;
+      currentPage = null;
+    }
+    if (feedReader != null) {
+      feedReader.close();
+      feedReader = null;
+    }
+  }
+
+  private SuccessFactorsPagePrefetcher newPrefetcher(int prefetchDepth) {
+    return new SuccessFactorsPagePrefetcher(successFactorsService, edmData, start, end, packageSize, maxRecords,
+                                            prefetchDepth, budget, pageSizer);
+  }
+
+  /**
+   * Reads the next record of the current feed, either decoded directly or built from the OData entry.
+   *
+   * @return {@code StructuredRecord} or null if all the entries of the feed are read
+   */
+  @Nullable
+  private StructuredRecord readRecord() throws SuccessFactorsServiceException {
+    if (recordDecoder != null) {
+      return feedReader.nextRecord(recordDecoder);
+    }
+    ODataEntry dataEntry = feedReader.nextEntry();
+    return dataEntry == null ? null : valueConverter.buildCurrentRecord(dataEntry);
   }
 
   private boolean isCallRequired() {
     if (start == null && end == null && packageSize == null) {
-      return oDataFeed == null || oDataFeed.getFeedMetadata().getNextLink() != null;
+      return feedReader == null || feedReader.getNextLink() != null;
     } else {
       return getLength() - numRowsProcessed > 0;
     }
   }
 
+  private boolean isRecordLimitReached() {
+    return maxRecords != null && numRowsProcessed >= maxRecords;
+  }
+
+  /**
+   * Pulls the next page, requesting it again with the lowered page size while it times out or fails with a server
+   * error.
+   */
+  private SuccessFactorsFeedReader readPage() throws SuccessFactorsServiceException, TransportException {
+    while (true) {
+      // This condition will be true in case of client side pagination
+      if (start != null && end != null && packageSize != null) {
+        calculateSkipAndFetchCount();
+      }
+      long startTime = System.currentTimeMillis();
+      try {
+        // Pulls the data from the SuccessFactors entity for the given range via 'rows to skip' and 'rows to fetch'.
+        SuccessFactorsFeedReader page = successFactorsService.readServiceEntityData(edmData, skipCount, fetchCount);
+        if (fetchCount != null) {
+          pageSizer.pageFetched(fetchCount, System.currentTimeMillis() - startTime);
+        }
+        return page;
+      } catch (SuccessFactorsServiceException | TransportException e) {
+        if (fetchCount == null || !pageSizer.pageFailed(fetchCount, e)) {
+          throw e;
+        }
+        LOG.debug("Page at offset {} failed with {} records, requesting {} records.", skipCount, fetchCount,
+                  pageSizer.getPageSize());
+      }
+    }
+  }
+
   private void calculateSkipAndFetchCount() {
     skipCount = start + numRowsProcessed - 1;
     long remain = getLength() - numRowsProcessed;
-    fetchCount = Math.min(remain, packageSize);
+    if (bisectTop != null && numRowsProcessed >= bisectEnd) {
+      // the failing window is read
+      bisectTop = null;
+    }
+    fetchCount = Math.min(remain, bisectTop != null ? bisectTop : pageSizer.getPageSize());
   }
 
   private long getLength() {
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This {@code SuccessFactorsRateLimiter} limits the rate of the requests sent to a SuccessFactors service by all the
+ * transporters of the JVM, so that the concurrent windows of the splits running on the same executor add up to the
+ * configured rate instead of multiplying it.
+ * <p>
+ * One limiter is kept per service base URL and configured rate. The readers configured with the same rate share its
+ * limit, while a reader configured with another rate, e.g. by another stage or pipeline running on the same executor,
+ * has a limit of its own and never changes the rate of the others.
+ */
+final class SuccessFactorsRateLimiter {
+
+  private static final Map<String, RateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+
+  private SuccessFactorsRateLimiter() {
+  }
+
+  /**
+   * Waits until a request to the given service is allowed by the given rate.
+   *
+   * @param baseURL           service base URL
+   * @param requestsPerSecond maximum number of requests per second to the service
+   */
+  static void acquire(String baseURL, int requestsPerSecond) {
+    RATE_LIMITERS.computeIfAbsent(requestsPerSecond + "@" + baseURL, key -> RateLimiter.create(requestsPerSecond))
+      .acquire();
+  }
+}
@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
  * - HTTP STATUS CODE,
  * - HTTP STATUS MESSAGE &
  * - SAP SuccessFactors service version number
+ * - ETag and Last-Modified cache validators
  */
 
 public class SuccessFactorsResponseContainer {
@@ -38,13 +39,25 @@ public class SuccessFactorsResponseContainer {
   private final String dataServiceVersion;
   private final byte[] responseStream;
 
+  @Nullable
+  private final String eTag;
+  @Nullable
+  private final String lastModified;
+
   public SuccessFactorsResponseContainer(int httpStatusCode, String httpStatusMsg, @Nullable String dataServiceVersion,
                                          byte[] responseStream) {
+    this(httpStatusCode, httpStatusMsg, dataServiceVersion, responseStream, null, null);
+  }
+
+  public SuccessFactorsResponseContainer(int httpStatusCode, String httpStatusMsg, @Nullable String dataServiceVersion,
+                                         byte[] responseStream, @Nullable String eTag, @Nullable String lastModified) {
 
     this.httpStatusCode = httpStatusCode;
     this.httpStatusMsg = httpStatusMsg;
     this.dataServiceVersion = dataServiceVersion;
     this.responseStream = responseStream;
+    this.eTag = eTag;
+    this.lastModified = lastModified;
   }
 
   public static Builder builder() {
@@ -69,6 +82,21 @@ public class SuccessFactorsResponseContainer {
     return new ByteArrayInputStream(responseStream);
   }
 
+  @Nullable
+  public byte[] getResponseBytes() {
+    return this.responseStream;
+  }
+
+  @Nullable
+  public String getETag() {
+    return this.eTag;
+  }
+
+  @Nullable
+  public String getLastModified() {
+    return this.lastModified;
+  }
+
   /**
    * Helper class to simplify {@link SuccessFactorsResponseContainer} class creation.
    */
@@ -78,6 +106,10 @@ public class SuccessFactorsResponseContainer {
     @Nullable
     private String dataServiceVersion;
     private byte[] responseStream;
+    @Nullable
+    private String eTag;
+    @Nullable
+    private String lastModified;
 
     public Builder httpStatusCode(int httpStatusCode) {
       this.httpStatusCode = httpStatusCode;
@@ -99,9 +131,19 @@ public class SuccessFactorsResponseContainer {
       return this;
     }
 
+    public Builder eTag(@Nullable String eTag) {
+      this.eTag = eTag;
+      return this;
+    }
+
+    public Builder lastModified(@Nullable String lastModified) {
+      this.lastModified = lastModified;
+      return this;
+    }
+
     public SuccessFactorsResponseContainer build() {
       return new SuccessFactorsResponseContainer(this.httpStatusCode, this.httpStatusMsg, this.dataServiceVersion,
-                                                 this.responseStream);
+                                                 this.responseStream, this.eTag, this.lastModified);
     }
   }
 }
@@ -44,10 +44,13 @@ import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
 
 /**
@@ -56,16 +59,30 @@ import javax.ws.rs.core.MediaType;
  */
 public class SuccessFactorsTransporter {
   static final String SERVICE_VERSION = "dataserviceversion";
+  static final String ETAG = "ETag";
+  static final String LAST_MODIFIED = "Last-Modified";
   private static final Logger LOG = LoggerFactory.getLogger(SuccessFactorsTransporter.class);
   private static final long CONNECTION_TIMEOUT = 300;
   private static final long WAIT_TIME = 5;
   private static final long MAX_NUMBER_OF_RETRY_ATTEMPTS = 5;
 
   private SuccessFactorsConnectorConfig config;
-  private Response response;
+  @Nullable
+  private final Integer maxRequestsPerSecond;
 
   public SuccessFactorsTransporter(SuccessFactorsConnectorConfig pluginConfig) {
     this.config = pluginConfig;
+    this.maxRequestsPerSecond = null;
+  }
+
+  /**
+   * @param pluginConfig         connection config
+   * @param maxRequestsPerSecond maximum number of requests per second sent to the service by all the transporters of
+   *                             the JVM limited to the same rate, or null if not limited
+   */
+  public SuccessFactorsTransporter(SuccessFactorsConnectorConfig pluginConfig, @Nullable Integer maxRequestsPerSecond) {
+    this.config = pluginConfig;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
   }
 
   /**
@@ -83,9 +100,26 @@ public class SuccessFactorsTransporter {
    */
   public SuccessFactorsResponseContainer callSuccessFactorsEntity(URL endpoint, String mediaType, String fetchType)
     throws TransportException {
+    return callSuccessFactorsEntity(endpoint, mediaType, fetchType, Collections.emptyMap());
+  }
+
+  /**
+   * Calls the Successfactors entity for the given URL with the additional request headers, e.g. the conditional
+   * 'If-None-Match' and 'If-Modified-Since' headers to revalidate a cached response.
+   *
+   * @param endpoint       type of URL
+   * @param mediaType      mediaType for Accept header property
+   * @param fetchType      type of call i.e. TEST / METADATA / COUNT, used for logging purpose.
+   * @param requestHeaders additional request headers
+   * @return {@code SuccessFactorsResponseContainer}
+   * @throws TransportException any http client exceptions are wrapped under it
+   */
+  public SuccessFactorsResponseContainer callSuccessFactorsEntity(URL endpoint, String mediaType, String fetchType,
+                                                                  Map<String, String> requestHeaders)
+    throws TransportException {
 
     try {
-      Response res = transport(endpoint, mediaType);
+      Response res = transport(endpoint, mediaType, requestHeaders);
       return prepareResponseContainer(res);
     } catch (IOException ioe) {
       throw new TransportException(ResourceConstants.ERR_CALL_SERVICE_FAILURE.getMsgForKey(), ioe);
@@ -125,28 +159,28 @@ public class SuccessFactorsTransporter {
    * @throws IOException if all retries fail
    */
   public Response retrySapTransportCall(URL endpoint, String mediaType) throws IOException {
-    Callable<Boolean> fetchRecords = () -> {
-      response = transport(endpoint, mediaType);
+    // the windows of a split may be fetched by concurrent threads sharing the transporter
+    Callable<Response> fetchRecords = () -> {
+      Response response = transport(endpoint, mediaType);
       if (response != null && response.code() >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+        response.close();
         throw new RetryableException();
       }
-      return true;
+      return response;
     };
 
-    Retryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+    Retryer<Response> retryer = RetryerBuilder.<Response>newBuilder()
       .retryIfExceptionOfType(RetryableException.class)
       .withWaitStrategy(WaitStrategies.exponentialWait(WAIT_TIME, TimeUnit.SECONDS))
       .withStopStrategy(StopStrategies.stopAfterAttempt((int) MAX_NUMBER_OF_RETRY_ATTEMPTS))
       .build();
 
     try {
-      retryer.call(fetchRecords);
+      return retryer.call(fetchRecords);
     } catch (RetryException | ExecutionException e) {
       LOG.error("Data Recovery failed for URL {}.", endpoint);
       throw new IOException();
     }
-
-    return response;
   }
 
   /**
@@ -159,9 +193,17 @@ public class SuccessFactorsTransporter {
    * @throws TransportException any error while preparing the {@code OkHttpClient}
    */
   private Response transport(URL endpoint, String mediaType) throws IOException, TransportException {
+    return transport(endpoint, mediaType, Collections.emptyMap());
+  }
+
+  private Response transport(URL endpoint, String mediaType, Map<String, String> requestHeaders)
+    throws IOException, TransportException {
     OkHttpClient enhancedOkHttpClient =
       buildConfiguredClient(config.getProxyUrl(), config.getProxyUsername(), config.getProxyPassword());
-    Request req = buildRequest(endpoint, mediaType);
+    Request req = buildRequest(endpoint, mediaType, requestHeaders);
+    if (maxRequestsPerSecond != null) {
+      SuccessFactorsRateLimiter.acquire(config.getBaseURL(), maxRequestsPerSecond);
+    }
 
     return enhancedOkHttpClient.newCall(req).execute();
   }
@@ -178,6 +220,8 @@ public class SuccessFactorsTransporter {
       .httpStatusCode(res.code())
       .httpStatusMsg(res.message())
       .dataServiceVersion(res.header(SERVICE_VERSION))
+      .eTag(res.header(ETAG))
+      .lastModified(res.header(LAST_MODIFIED))
       .responseStream(res.body() != null ? res.body().bytes() : null)
       .build();
   }
@@ -185,13 +229,18 @@ public class SuccessFactorsTransporter {
   /**
    * Prepares request for metadata and data calls.
    *
-   * @param mediaType supported types 'application/json' & 'application/xml'
+   * @param mediaType      supported types 'application/json' & 'application/xml'
+   * @param requestHeaders additional request headers
    * @return Request
    */
-  private Request buildRequest(URL endpoint, String mediaType) {
-    return new Request.Builder()
+  private Request buildRequest(URL endpoint, String mediaType, Map<String, String> requestHeaders) {
+    Request.Builder builder = new Request.Builder()
       .addHeader("Authorization", getAuthenticationKey())
-      .addHeader("Accept", mediaType)
+      .addHeader("Accept", mediaType);
+    for (Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
+      builder.addHeader(requestHeader.getKey(), requestHeader.getValue());
+    }
+    return builder
       .get()
       .url(endpoint)
       .build();
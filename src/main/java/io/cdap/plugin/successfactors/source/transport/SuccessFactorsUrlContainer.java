@@ -28,6 +28,8 @@ import org.slf4j.LoggerFactory;
 
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.Nullable;
 
 /**
@@ -47,6 +49,7 @@ public class SuccessFactorsUrlContainer {
   private static final String FILTER_OPTION = "$filter";
   private static final String SELECT_OPTION = "$select";
   private static final String EXPAND_OPTION = "$expand";
+  private static final String ORDER_BY_OPTION = "$orderby";
   private static final String COUNT = "$count";
   private static final String PAGING = "paging";
   private static final String SNAPSHOT = "snapshot";
@@ -54,11 +57,27 @@ public class SuccessFactorsUrlContainer {
   private static final String TESTURL_TOP_VALUE = "1";
 
   private final SuccessFactorsPluginConfig pluginConfig;
+  // properties selected by default in the data URL, resolved once
+  private List<String> nonNavigationalProperties;
 
   public SuccessFactorsUrlContainer(SuccessFactorsPluginConfig pluginConfig) {
     this.pluginConfig = pluginConfig;
   }
 
+  /**
+   * Sets the non-navigational properties of the entity, which are selected by default in the data URL. If not set,
+   * they are resolved from the service metadata on first use.
+   *
+   * @param nonNavigationalProperties non-navigational properties of the entity
+   */
+  public void setNonNavigationalProperties(List<String> nonNavigationalProperties) {
+    this.nonNavigationalProperties = nonNavigationalProperties;
+  }
+
+  public boolean hasNonNavigationalProperties() {
+    return nonNavigationalProperties != null;
+  }
+
   /**
    * Construct tester URL.
    *
@@ -69,7 +88,7 @@ public class SuccessFactorsUrlContainer {
       .newBuilder()
       .addPathSegment(pluginConfig.getEntityName());
 
-    URL testerURL = buildQueryOptions(builder, Boolean.FALSE)
+    URL testerURL = buildQueryOptions(builder, Boolean.FALSE, Collections.emptyList(), null)
       .addQueryParameter(TOP_OPTION, TESTURL_TOP_VALUE)
       .build()
       .url();
@@ -110,33 +129,35 @@ public class SuccessFactorsUrlContainer {
    * 1. $filter
    * 2. $select
    * 3. $expand
+   * 4. $orderby
    *
    * @param urlBuilder builds the final url
    * @param isDataFetch flag to determine whether to fetch non-navigational properties or not
+   * @param keyProperties key properties to order the records by, these are always part of the selected fields
+   * @param keysetFilter condition to continue after the last read key, combined with the provided filter option
    * @return initialize the passed {@code HttpUrl.Builder} with the provided query options
    * in {@code SuccessFactorsPluginConfig} and return it.
    */
-  private HttpUrl.Builder buildQueryOptions(HttpUrl.Builder urlBuilder, Boolean isDataFetch) {
+  private HttpUrl.Builder buildQueryOptions(HttpUrl.Builder urlBuilder, Boolean isDataFetch,
+                                            List<String> keyProperties, @Nullable String keysetFilter) {
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getAdditionalQueryParameters())) {
       urlBuilder.query(pluginConfig.getAdditionalQueryParameters());
     }
-    if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getFilterOption())) {
-      urlBuilder.addQueryParameter(FILTER_OPTION, pluginConfig.getFilterOption());
-    }
-    
+    addFilterOption(urlBuilder, keysetFilter);
+
     if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getSelectOption())) {
+      String selectOption = appendMissingProperties(pluginConfig.getSelectOption(), keyProperties);
       if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getExpandOption())) {
-        String selectFieldValue = pluginConfig.getSelectOption().concat(PROPERTY_SEPARATOR)
+        String selectFieldValue = selectOption.concat(PROPERTY_SEPARATOR)
           .concat(pluginConfig.getExpandOption());
         urlBuilder.addQueryParameter(SELECT_OPTION, selectFieldValue);
       } else {
-        urlBuilder.addQueryParameter(SELECT_OPTION, pluginConfig.getSelectOption());
+        urlBuilder.addQueryParameter(SELECT_OPTION, selectOption);
       }
     } else if (getExpandLevel() <= 1  && isDataFetch) {
-      SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
       try {
-        StringBuilder selectNonNav = new StringBuilder(String.join(PROPERTY_SEPARATOR, successFactorsService.
-          getNonNavigationalProperties()));
+        StringBuilder selectNonNav = new StringBuilder(String.join(PROPERTY_SEPARATOR,
+                                                                   getNonNavigationalProperties()));
         if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getExpandOption())) {
           selectNonNav.append(PROPERTY_SEPARATOR).append(pluginConfig.getExpandOption());
         }
@@ -151,23 +172,81 @@ public class SuccessFactorsUrlContainer {
       urlBuilder.addQueryParameter(EXPAND_OPTION, pluginConfig.getExpandOption());
     }
 
+    if (!keyProperties.isEmpty()) {
+      urlBuilder.addQueryParameter(ORDER_BY_OPTION, String.join(PROPERTY_SEPARATOR, keyProperties));
+    }
+
     return urlBuilder;
   }
 
+  /**
+   * Adds the provided filter option, combined with the given condition if any.
+   *
+   * @param urlBuilder   builds the final url
+   * @param keysetFilter condition combined with the provided filter option
+   */
+  private void addFilterOption(HttpUrl.Builder urlBuilder, @Nullable String keysetFilter) {
+    if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getFilterOption())) {
+      if (SuccessFactorsUtil.isNotNullOrEmpty(keysetFilter)) {
+        urlBuilder.addQueryParameter(FILTER_OPTION, String.format("(%s) and (%s)", pluginConfig.getFilterOption(),
+                                                                  keysetFilter));
+      } else {
+        urlBuilder.addQueryParameter(FILTER_OPTION, pluginConfig.getFilterOption());
+      }
+    } else if (SuccessFactorsUtil.isNotNullOrEmpty(keysetFilter)) {
+      urlBuilder.addQueryParameter(FILTER_OPTION, keysetFilter);
+    }
+  }
+
+  private List<String> getNonNavigationalProperties() throws TransportException, SuccessFactorsServiceException,
+    EdmException {
+    if (nonNavigationalProperties == null) {
+      SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
+      nonNavigationalProperties = successFactorsService.getNonNavigationalProperties();
+    }
+    return nonNavigationalProperties;
+  }
+
+  /**
+   * Appends the given properties to the comma separated select option, if not already selected.
+   *
+   * @param selectOption comma separated list of selected properties
+   * @param properties   properties which must be selected
+   * @return select option including all the given properties
+   */
+  private String appendMissingProperties(String selectOption, List<String> properties) {
+    List<String> selectedProperties = Arrays.asList(selectOption.split(PROPERTY_SEPARATOR));
+    StringBuilder select = new StringBuilder(selectOption);
+    for (String property : properties) {
+      if (!selectedProperties.contains(property)) {
+        select.append(PROPERTY_SEPARATOR).append(property);
+      }
+    }
+    return select.toString();
+  }
+
   /**
    * Constructs total available record count URL.
    *
    * @return total available record count URL.
    */
   public URL getTotalRecordCountURL() {
+    return getRecordCountURL(null);
+  }
+
+  /**
+   * Constructs the record count URL of the records matching the given condition, e.g. of a time window.
+   *
+   * @param condition condition combined with the provided filter option, null to count all the records.
+   * @return record count URL.
+   */
+  public URL getRecordCountURL(@Nullable String condition) {
     HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getConnection().getBaseURL())
       .newBuilder()
       .addPathSegment(pluginConfig.getEntityName())
       .addPathSegment(COUNT);
 
-    if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getFilterOption())) {
-      builder.addQueryParameter(FILTER_OPTION, pluginConfig.getFilterOption());
-    }
+    addFilterOption(builder, condition);
     URL recordCountURL = builder.build().url();
 
     return recordCountURL;
@@ -181,11 +260,27 @@ public class SuccessFactorsUrlContainer {
    * @return data URL with provided '$skip' and '$top' parameters.
    */
   public URL getDataFetchURL(@Nullable Long skip, @Nullable Long top) {
+    return getDataFetchURL(skip, top, Collections.emptyList(), null);
+  }
+
+  /**
+   * Constructs data URL with provided '$skip' and '$top' parameters, ordered by the given key properties.
+   * With keyset pagination the subsequent pages are requested with a filter on the last read key in place of '$skip'.
+   *
+   * @param skip          records to skip.
+   * @param top           records to fetch.
+   * @param keyProperties key properties to order the records by, empty to keep the service default order.
+   * @param keysetFilter  condition to continue after the last read key e.g. userId gt 'admin', combined with the key
+   *                      range of the split if any.
+   * @return data URL with provided '$skip', '$top', '$orderby' and '$filter' parameters.
+   */
+  public URL getDataFetchURL(@Nullable Long skip, @Nullable Long top, List<String> keyProperties,
+                             @Nullable String keysetFilter) {
     HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getConnection().getBaseURL())
       .newBuilder()
       .addPathSegment(pluginConfig.getEntityName());
 
-    buildQueryOptions(builder, Boolean.TRUE);
+    buildQueryOptions(builder, Boolean.TRUE, keyProperties, keysetFilter);
     if (skip != null && skip != 0) {
       builder.addQueryParameter(SKIP_OPTION, String.valueOf(skip));
     }
@@ -200,6 +295,50 @@ public class SuccessFactorsUrlContainer {
     return dataURL;
   }
 
+  /**
+   * Constructs the URL of the key at the given offset, which selects only the key properties, in the key order, e.g.
+   * the key closing a key range.
+   *
+   * @param keyProperties key properties of the entity.
+   * @param skip          offset of the key.
+   * @return key probe URL with provided '$select', '$orderby', '$skip' and '$top' parameters.
+   */
+  public URL getKeyProbeURL(List<String> keyProperties, long skip) {
+    String keys = String.join(PROPERTY_SEPARATOR, keyProperties);
+    return getScanURL(keys, keys, null, skip);
+  }
+
+  /**
+   * Constructs the URL of the first or last non-null value of the given property, e.g. the bounds of the time windows
+   * planned on a date time property.
+   *
+   * @param property   property to order the records by.
+   * @param descending true to request the last value, false to request the first one.
+   * @return URL with provided '$filter', '$select', '$orderby' and '$top' parameters.
+   */
+  public URL getPropertyBoundURL(String property, boolean descending) {
+    return getScanURL(property, descending ? property + " desc" : property, property + " ne null", 0);
+  }
+
+  private URL getScanURL(String select, String orderBy, @Nullable String condition, long skip) {
+    HttpUrl.Builder builder = HttpUrl.parse(pluginConfig.getConnection().getBaseURL())
+      .newBuilder()
+      .addPathSegment(pluginConfig.getEntityName());
+
+    if (SuccessFactorsUtil.isNotNullOrEmpty(pluginConfig.getAdditionalQueryParameters())) {
+      builder.query(pluginConfig.getAdditionalQueryParameters());
+    }
+    addFilterOption(builder, condition);
+    builder.addQueryParameter(SELECT_OPTION, select)
+      .addQueryParameter(ORDER_BY_OPTION, orderBy);
+    if (skip != 0) {
+      builder.addQueryParameter(SKIP_OPTION, String.valueOf(skip));
+    }
+    builder.addQueryParameter(TOP_OPTION, "1");
+
+    return builder.build().url();
+  }
+
   /*
    * Get the level up to which the entity has been expanded.
    */
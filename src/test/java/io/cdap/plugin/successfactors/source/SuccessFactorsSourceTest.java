@@ -28,6 +28,7 @@ import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsInputSplit;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsPartitionBuilder;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsMetadataIndex;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
 import io.cdap.plugin.successfactors.source.transport.SuccessFactorsResponseContainer;
@@ -67,6 +68,8 @@ public class SuccessFactorsSourceTest {
   private BatchSourceContext context;
   @Mocked
   private EntityProvider entityProvider;
+  @Mocked
+  private SuccessFactorsMetadataIndex metadataIndex;
   private SuccessFactorsUrlContainer successFactorsUrlContainer;
   private SuccessFactorsSchemaGenerator successFactorsSchemaGenerator;
 
@@ -23,6 +23,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class SuccessFactorsPluginConfigTest {
@@ -155,6 +156,145 @@ public class SuccessFactorsPluginConfigTest {
     }
   }
 
+  @Test
+  public void testValidateNonPositiveMaxRecords() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.maxRecords(0L).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Maximum records is not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Maximum Records"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNegativePrefetchDepth() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.prefetchDepth(-1).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Prefetch depth is negative");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Prefetch Depth"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNonPositivePageConcurrency() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.pageConcurrency(0).maxRequestsPerSecond(0).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Page concurrency and maximum requests per second are not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(2, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Page Concurrency"),
+                          failures.get(0).getMessage());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Maximum Requests Per Second"),
+                          failures.get(1).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNonPositiveReaderMemoryBudget() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.readerMemoryBudget(0).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Reader memory budget is not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Reader Memory Budget"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNonPositivePageCacheSize() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.pageCacheSize(0).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Page cache size is not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Page Cache Size"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNonPositiveTargetParallelism() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.targetParallelism(0).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Target parallelism is not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Target Parallelism"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateNonPositiveTargetSplitSize() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.targetSplitSize(-1).build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Target split size is not positive");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_NEGATIVE_PARAM_PREFIX.getMsgForKey("Target Split Size"),
+                          failures.get(0).getMessage());
+    }
+  }
+
+  @Test
+  public void testValidateConflictingPartitioning() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
+      .partitionFilters("country eq 'DE'\ncountry ne 'DE'")
+      .timeWindowProperty("lastModifiedDateTime")
+      .build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Partition filters and time windows are both used");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(1, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_CONFLICTING_PARAMS.getMsgForKey("Partition Filters",
+                                                                                 "Time Window Property"),
+                          failures.get(0).getMessage());
+      Assert.assertEquals(2, failures.get(0).getCauses().size());
+    }
+  }
+
+  @Test
+  public void testValidateKeyRangeWithConflictingReadOptions() {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
+      .keyRangePartitioning(true)
+      .paginationType(SuccessFactorsPluginConfig.KEYSET_PAGINATION)
+      .orderByKey(true)
+      .unorderedRead(true)
+      .build();
+    try {
+      pluginConfig.validatePluginParameters(failureCollector);
+      Assert.fail("Key range partitioning is used with conflicting read options");
+    } catch (ValidationException ve) {
+      List<ValidationFailure> failures = ve.getFailures();
+      Assert.assertEquals(3, failures.size());
+      Assert.assertEquals(ResourceConstants.ERR_CONFLICTING_PARAMS.getMsgForKey("Key Range Partitioning",
+                                                                                 "Order By Key"),
+                          failures.get(1).getMessage());
+    }
+  }
+
   @Test
   public void testRefactoredPluginPropertyValues() {
     SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
@@ -174,4 +314,14 @@ public class SuccessFactorsPluginConfigTest {
     Assert.assertEquals("Entity name not trimmed", "entity-name", pluginConfig.getEntityName());
     Assert.assertEquals("Select option not trimmed", "col1,col2,parent/col1,col3", pluginConfig.getSelectOption());
   }
+
+  @Test
+  public void testPartitionFiltersAreReadOnePerLine() {
+    Assert.assertTrue(pluginConfigBuilder.build().getPartitionFilters().isEmpty());
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder
+      .partitionFilters("  country eq 'DE'\r\n\n country ne 'DE' and userId ne null  \n   ")
+      .build();
+    Assert.assertEquals(Arrays.asList("country eq 'DE'", "country ne 'DE' and userId ne null"),
+                        pluginConfig.getPartitionFilters());
+  }
 }
@@ -19,8 +19,12 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
@@ -62,6 +66,22 @@ public class SuccessFactorsInputSplitTest {
     Assert.assertEquals(20L, successFactorsInputSplit.getBatchSize());
   }
 
+  @Test
+  public void testKeyRangeFilterIsWrittenAndRead() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new SuccessFactorsInputSplit(1L, 2L, 20L, "userId gt 'admin'").write(new DataOutputStream(output));
+    new SuccessFactorsInputSplit(1L, 2L, 20L).write(new DataOutputStream(output));
+
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+    SuccessFactorsInputSplit keyRangeSplit = new SuccessFactorsInputSplit();
+    keyRangeSplit.readFields(input);
+    SuccessFactorsInputSplit offsetSplit = new SuccessFactorsInputSplit();
+    offsetSplit.readFields(input);
+    Assert.assertEquals("userId gt 'admin'", keyRangeSplit.getFilter());
+    Assert.assertEquals(20L, keyRangeSplit.getBatchSize());
+    Assert.assertNull(offsetSplit.getFilter());
+  }
+
   @Test(expected = NullPointerException.class)
   public void testWriteWithNullData() throws IOException {
     DataOutput dataOutput = null;
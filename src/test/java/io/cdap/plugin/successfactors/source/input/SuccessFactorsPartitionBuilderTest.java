@@ -19,7 +19,11 @@ package io.cdap.plugin.successfactors.source.input;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -180,4 +184,102 @@ public class SuccessFactorsPartitionBuilderTest {
     Assert.assertEquals("Batch size is not same", SuccessFactorsPartitionBuilder.MAX_ALLOWED_BATCH_SIZE,
       partitionList.get(0).getBatchSize());
   }
+
+  /**
+   * 50M records spread over 100 splits hold 500000 records each, fewer than the 2MB split size allows.
+   */
+  @Test
+  public void testSplitsArePlannedFromTargetParallelism() {
+    long availableRowCount = 50000000;
+
+    long recordsPerSplit = SuccessFactorsPartitionBuilder.getRecordsPerSplit(availableRowCount, 100, null, 0);
+    List<SuccessFactorsInputSplit> partitionList = partitionBuilder.buildSplits(availableRowCount, recordsPerSplit);
+
+    Assert.assertEquals("Split count is not same", 100, partitionList.size());
+    Assert.assertEquals("End is not same", 500000, partitionList.get(0).getEnd());
+    Assert.assertEquals("Batch size is not same", SuccessFactorsPartitionBuilder.MAX_ALLOWED_BATCH_SIZE,
+                        partitionList.get(0).getBatchSize());
+    Assert.assertEquals("End is not same", availableRowCount, partitionList.get(99).getEnd());
+  }
+
+  @Test
+  public void testSplitsArePlannedFromTargetSplitSize() {
+    // 1MB per split of 2KB records
+    Assert.assertEquals(512, SuccessFactorsPartitionBuilder.getRecordsPerSplit(50000000, null, 1048576L, 2048));
+    // the larger split count of the two targets
+    Assert.assertEquals(512, SuccessFactorsPartitionBuilder.getRecordsPerSplit(50000000, 100, 1048576L, 2048));
+    Assert.assertEquals(200, SuccessFactorsPartitionBuilder.getRecordsPerSplit(2000, 10, 1048576L, 2048));
+    // no probed record, the split size is not targeted
+    Assert.assertEquals(SuccessFactorsPartitionBuilder.MAX_RECORDS_IN_SPLIT,
+                        SuccessFactorsPartitionBuilder.getRecordsPerSplit(50000000, null, 1048576L, 0));
+  }
+
+  @Test
+  public void testKeyRangeSplitsHoldTheRecordsOfTheirRange() {
+    List<String> keyRanges = Arrays.asList("not (id gt 10000)", "(id gt 10000) and not (id gt 20000)", "id gt 20000");
+
+    List<SuccessFactorsInputSplit> partitionList = partitionBuilder.buildKeyRangeSplits(keyRanges, 25000, 10000);
+
+    Assert.assertEquals("Split count is not same", 3, partitionList.size());
+    for (int i = 0; i < keyRanges.size(); i++) {
+      Assert.assertEquals("Filter is not same", keyRanges.get(i), partitionList.get(i).getFilter());
+      Assert.assertEquals("Start is not same", 1, partitionList.get(i).getStart());
+    }
+    Assert.assertEquals("End is not same", 10000, partitionList.get(0).getEnd());
+    Assert.assertEquals("End is not same", 5000, partitionList.get(2).getEnd());
+    Assert.assertEquals("Batch size is not same", SuccessFactorsPartitionBuilder.MAX_ALLOWED_BATCH_SIZE,
+                        partitionList.get(2).getBatchSize());
+    // without a key range, the splits are planned from offsets
+    Assert.assertNull(partitionBuilder.buildKeyRangeSplits(Collections.emptyList(), 25000, 10000).get(0).getFilter());
+  }
+
+  @Test
+  public void testFilterSplitsStopAtTheRecordLimit() {
+    Map<String, Long> windows = new LinkedHashMap<>();
+    windows.put("startDate lt datetime'2022-01-01T00:00:00'", 4000L);
+    windows.put("startDate ge datetime'2022-01-01T00:00:00'", 0L);
+    windows.put("startDate eq null", 3000L);
+
+    List<SuccessFactorsInputSplit> partitionList = partitionBuilder.buildFilterSplits(windows, null, 10000, false);
+    Assert.assertEquals("Split count is not same", 3, partitionList.size());
+    Assert.assertEquals("End is not same", 4000, partitionList.get(0).getEnd());
+    // the window found empty is still paged by the service
+    Assert.assertEquals("End is not same", 0, partitionList.get(1).getEnd());
+    Assert.assertEquals("Filter is not same", "startDate eq null", partitionList.get(2).getFilter());
+
+    // with client side pagination, a split reads the records counted while planning
+    partitionList = partitionBuilder.buildFilterSplits(windows, null, 10000, true);
+    Assert.assertEquals("Split count is not same", 2, partitionList.size());
+    Assert.assertEquals("Filter is not same", "startDate eq null", partitionList.get(1).getFilter());
+
+    partitionList = partitionBuilder.buildFilterSplits(windows, 2500L, 10000, true);
+    Assert.assertEquals("Split count is not same", 1, partitionList.size());
+    Assert.assertEquals("End is not same", 2500, partitionList.get(0).getEnd());
+  }
+
+  @Test
+  public void testClientSideFilterSplitsHoldTheRecordsInSplit() {
+    Map<String, Long> windows = new LinkedHashMap<>();
+    windows.put("startDate lt datetime'2022-01-01T00:00:00'", 2500L);
+    windows.put("startDate eq null", 25000L);
+
+    List<SuccessFactorsInputSplit> partitionList = partitionBuilder.buildFilterSplits(windows, 20000L, 10000, true);
+    Assert.assertEquals("Split count is not same", 3, partitionList.size());
+    Assert.assertEquals("End is not same", 2500, partitionList.get(0).getEnd());
+    // the window of the records without value is read by offsets sharing its filter, up to the record limit
+    for (int i = 1; i < partitionList.size(); i++) {
+      Assert.assertEquals("Filter is not same", "startDate eq null", partitionList.get(i).getFilter());
+    }
+    Assert.assertEquals("Start is not same", 1, partitionList.get(1).getStart());
+    Assert.assertEquals("End is not same", 10000, partitionList.get(1).getEnd());
+    Assert.assertEquals("Start is not same", 10001, partitionList.get(2).getStart());
+    Assert.assertEquals("End is not same", 17500, partitionList.get(2).getEnd());
+    Assert.assertEquals("Batch size is not same", SuccessFactorsPartitionBuilder.MAX_ALLOWED_BATCH_SIZE,
+                        partitionList.get(2).getBatchSize());
+
+    // with server side pagination, a single split pages the whole window
+    partitionList = partitionBuilder.buildFilterSplits(windows, null, 10000, false);
+    Assert.assertEquals("Split count is not same", 2, partitionList.size());
+    Assert.assertEquals("End is not same", 25000, partitionList.get(1).getEnd());
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.successfactors.source.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordDecoder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class SuccessFactorsReadPlanTest {
+
+  private SuccessFactorsReadPlan readPlan;
+
+  @Before
+  public void setUp() throws Exception {
+    SuccessFactorsReadPlan.invalidateAll();
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .referenceName("unit-test-ref-name")
+      .baseURL("http://localhost:5000")
+      .entityName("Background_SpecialAssign")
+      .username("test")
+      .password("secret")
+      .paginationType("serverSide")
+      .directDecoding(true)
+      .build();
+    Schema outputSchema = Schema.recordOf("SuccessFactorsColumnMetadata",
+                                          Schema.Field.of("backgroundElementId", Schema.of(Schema.Type.LONG)),
+                                          Schema.Field.of("userId", Schema.of(Schema.Type.STRING)));
+    String metadataString = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-metadata2.xml"));
+    readPlan = new SuccessFactorsReadPlan(pluginConfig, outputSchema,
+                                          Base64.getEncoder().encodeToString(
+                                            metadataString.getBytes(StandardCharsets.UTF_8)), 10L, "SuccessFactors");
+  }
+
+  @Test
+  public void testHydratedPlan() throws Exception {
+    SuccessFactorsReadPlan hydratedPlan = SuccessFactorsReadPlan.hydrate(readPlan.serialize());
+
+    Assert.assertEquals("Background_SpecialAssign", hydratedPlan.getPluginConfig().getEntityName());
+    Assert.assertEquals("serverSide", hydratedPlan.getPluginConfig().getPaginationType());
+    Assert.assertEquals(Long.valueOf(10L), hydratedPlan.getMaxRecords());
+    Assert.assertNotNull(hydratedPlan.getOutputSchema().getField("userId"));
+    Assert.assertNotNull(hydratedPlan.getEdm().getDefaultEntityContainer().getEntitySet("Background_SpecialAssign"));
+    Assert.assertTrue(hydratedPlan.getSelectProperties().contains("backgroundElementId"));
+  }
+
+  @Test
+  public void testPlanIsHydratedOncePerJvm() throws Exception {
+    String serializedPlan = readPlan.serialize();
+    SuccessFactorsReadPlan hydratedPlan = SuccessFactorsReadPlan.hydrate(serializedPlan);
+    Assert.assertSame(hydratedPlan, SuccessFactorsReadPlan.hydrate(serializedPlan));
+
+    // every record reader gets its own decoder, sharing the compiled plan
+    SuccessFactorsRecordDecoder recordDecoder = hydratedPlan.newRecordDecoder();
+    Assert.assertNotNull(recordDecoder);
+    Assert.assertNotSame(recordDecoder, hydratedPlan.newRecordDecoder());
+  }
+}
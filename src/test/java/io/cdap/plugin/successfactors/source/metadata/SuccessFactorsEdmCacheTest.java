@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SuccessFactorsEdmCacheTest {
+
+  private AtomicInteger loadCount;
+
+  @Before
+  public void setup() {
+    SuccessFactorsEdmCache.invalidateAll();
+    loadCount = new AtomicInteger();
+  }
+
+  @Test
+  public void testSameMetadataIsParsedOnce() throws Exception {
+    Edm firstEdm = SuccessFactorsEdmCache.getEdm("metadata", () -> load("successfactors-metadata2.xml"));
+    Edm secondEdm = SuccessFactorsEdmCache.getEdm("metadata", () -> load("successfactors-metadata2.xml"));
+
+    Assert.assertSame(firstEdm, secondEdm);
+    Assert.assertEquals(1, loadCount.get());
+    Assert.assertNotNull(new SuccessFactorsEntityProvider(secondEdm).getEntityType("Background_SpecialAssign"));
+  }
+
+  @Test
+  public void testDifferentMetadataIsParsedSeparately() throws Exception {
+    Edm firstEdm = SuccessFactorsEdmCache.getEdm("metadata2", () -> load("successfactors-metadata2.xml"));
+    Edm secondEdm = SuccessFactorsEdmCache.getEdm("metadata3", () -> load("successfactors-metadata3.xml"));
+
+    Assert.assertNotSame(firstEdm, secondEdm);
+    Assert.assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  public void testLoaderExceptionIsNotCached() throws Exception {
+    try {
+      SuccessFactorsEdmCache.getEdm("metadata", () -> {
+        throw new SuccessFactorsServiceException("Invalid metadata");
+      });
+      Assert.fail("Loader exception is not thrown.");
+    } catch (SuccessFactorsServiceException e) {
+      Assert.assertEquals("Invalid metadata", e.getMessage());
+    }
+
+    Assert.assertNotNull(SuccessFactorsEdmCache.getEdm("metadata", () -> load("successfactors-metadata2.xml")));
+    Assert.assertEquals(1, loadCount.get());
+  }
+
+  private Edm load(String resourceName) throws SuccessFactorsServiceException {
+    loadCount.incrementAndGet();
+    try {
+      return EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource(resourceName), false);
+    } catch (Exception e) {
+      throw new SuccessFactorsServiceException(e.getMessage(), e);
+    }
+  }
+}
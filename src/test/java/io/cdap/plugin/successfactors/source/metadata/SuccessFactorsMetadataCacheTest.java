@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.ByteStreams;
+import io.cdap.plugin.successfactors.connector.SuccessFactorsConnectorConfig;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+public class SuccessFactorsMetadataCacheTest {
+
+  private static final String METADATA_PATH = "/odata/v2/Picklist/$metadata";
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SuccessFactorsConnectorConfig config;
+  private SuccessFactorsTransporter transporter;
+  private Path directory;
+  private URL metadataURL;
+
+  @Before
+  public void setUp() throws Exception {
+    SuccessFactorsMetadataCache.invalidateIndexes();
+    String baseURL = "http://localhost:" + wireMockRule.port() + "/odata/v2";
+    directory = temporaryFolder.getRoot().toPath();
+    config = new SuccessFactorsConnectorConfig("test", "secret", baseURL, null, null, null, 60L,
+                                               directory.toString());
+    transporter = new SuccessFactorsTransporter(config);
+    metadataURL = new URL(baseURL + "/Picklist/$metadata");
+  }
+
+  @Test
+  public void testCachedMetadataIsReused() throws Exception {
+    stubMetadata("successfactors-metadata3.xml", "\"v1\"");
+
+    SuccessFactorsMetadataIndex metadataIndex =
+      new SuccessFactorsMetadataCache(config, transporter).getMetadataIndex(metadataURL);
+    Assert.assertSame("Cache hit must skip the parsing.", metadataIndex,
+                      new SuccessFactorsMetadataCache(config, transporter).getMetadataIndex(metadataURL));
+    Assert.assertArrayEquals(readResource("successfactors-metadata3.xml"),
+                             new SuccessFactorsMetadataCache(config, transporter).getMetadata(metadataURL));
+    verify(1, getRequestedFor(urlPathEqualTo(METADATA_PATH)));
+
+    // the cached entry survives the in-memory index
+    SuccessFactorsMetadataCache.invalidateIndexes();
+    Assert.assertNotNull(new SuccessFactorsMetadataCache(config, transporter).getMetadataIndex(metadataURL)
+                           .buildEntityMetadata("Picklist", Collections.emptyList()));
+    verify(1, getRequestedFor(urlPathEqualTo(METADATA_PATH)));
+  }
+
+  @Test
+  public void testMetadataIsDownloadedWhenCacheIsDisabled() throws Exception {
+    stubMetadata("successfactors-metadata3.xml", "\"v1\"");
+    SuccessFactorsMetadataCache metadataCache = new SuccessFactorsMetadataCache(transporter, "test", 0, directory);
+
+    metadataCache.getMetadataIndex(metadataURL);
+    metadataCache.getMetadataIndex(metadataURL);
+    verify(2, getRequestedFor(urlPathEqualTo(METADATA_PATH)));
+    Assert.assertEquals(0, directory.toFile().list().length);
+  }
+
+  @Test
+  public void testExpiredMetadataIsRevalidated() throws Exception {
+    stubMetadata("successfactors-metadata3.xml", "\"v1\"");
+    SuccessFactorsMetadataCache metadataCache = new SuccessFactorsMetadataCache(transporter, "test", 1, directory);
+    SuccessFactorsMetadataIndex metadataIndex = metadataCache.getMetadataIndex(metadataURL);
+
+    // the server may append a suffix to the ETag of compressed responses
+    stubFor(get(urlPathEqualTo(METADATA_PATH)).withHeader("If-None-Match", containing("v1"))
+              .willReturn(aResponse().withStatus(304)));
+    TimeUnit.MILLISECONDS.sleep(5);
+    Assert.assertSame(metadataIndex, metadataCache.getMetadataIndex(metadataURL));
+    Assert.assertArrayEquals(readResource("successfactors-metadata3.xml"), metadataCache.getMetadata(metadataURL));
+    verify(1, getRequestedFor(urlPathEqualTo(METADATA_PATH)).withHeader("If-None-Match", absent()));
+  }
+
+  @Test
+  public void testChangedMetadataIsDownloaded() throws Exception {
+    stubMetadata("successfactors-metadata3.xml", "\"v1\"");
+    SuccessFactorsMetadataCache metadataCache = new SuccessFactorsMetadataCache(transporter, "test", 1, directory);
+    SuccessFactorsMetadataIndex metadataIndex = metadataCache.getMetadataIndex(metadataURL);
+
+    stubMetadata("successfactors-metadata.xml", "\"v2\"");
+    TimeUnit.MILLISECONDS.sleep(5);
+    Assert.assertNotSame(metadataIndex, metadataCache.getMetadataIndex(metadataURL));
+    Assert.assertArrayEquals(readResource("successfactors-metadata.xml"), metadataCache.getMetadata(metadataURL));
+    verify(getRequestedFor(urlPathEqualTo(METADATA_PATH)).withHeader("If-None-Match", containing("v1")));
+  }
+
+  @Test
+  public void testErrorResponseIsNotCached() throws Exception {
+    stubFor(get(urlPathEqualTo(METADATA_PATH)).willReturn(aResponse().withStatus(500).withBody("error")));
+    SuccessFactorsMetadataCache metadataCache = new SuccessFactorsMetadataCache(config, transporter);
+    Assert.assertEquals("error", new String(metadataCache.getMetadata(metadataURL)));
+
+    stubMetadata("successfactors-metadata3.xml", "\"v1\"");
+    Assert.assertArrayEquals(readResource("successfactors-metadata3.xml"), metadataCache.getMetadata(metadataURL));
+    verify(2, getRequestedFor(urlPathEqualTo(METADATA_PATH)));
+  }
+
+  private static void stubMetadata(String resourceName, String eTag) throws Exception {
+    stubFor(get(urlPathEqualTo(METADATA_PATH))
+              .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/xml")
+                            .withHeader("ETag", eTag).withBody(readResource(resourceName))));
+  }
+
+  private static byte[] readResource(String resourceName) throws Exception {
+    try (InputStream inputStream = TestSuccessFactorsUtil.readResource(resourceName)) {
+      return ByteStreams.toByteArray(inputStream);
+    }
+  }
+}
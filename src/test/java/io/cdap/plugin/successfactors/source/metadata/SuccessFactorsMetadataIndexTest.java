@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class SuccessFactorsMetadataIndexTest {
+
+  private static final Pattern RECORD_NAME_SUFFIX = Pattern.compile("(_[0-9a-f]{4,12}){5}");
+
+  @Test
+  public void testLazySchemaMatchesCompleteMetadata() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder().entityName("Benefit").build();
+    SuccessFactorsSchemaGenerator complete = completeGenerator("successfactors-metadata.xml");
+    SuccessFactorsSchemaGenerator lazy = lazyGenerator("successfactors-metadata.xml");
+    assertSchemaEquals(complete.buildDefaultOutputSchema("Benefit"), lazy.buildDefaultOutputSchema("Benefit"));
+    assertSchemaEquals(complete.buildExpandOutputSchema("Benefit", "eligibleBenefits", null, pluginConfig),
+                       lazyGenerator("successfactors-metadata.xml")
+                         .buildExpandOutputSchema("Benefit", "eligibleBenefits", null, pluginConfig));
+    String selectOption = "eligibleBenefits/benefitId,eligibleBenefits/benefitSchedule,mdfSystemRecordStatus";
+    assertSchemaEquals(complete.buildSelectOutputSchema("Benefit", selectOption),
+                       lazyGenerator("successfactors-metadata.xml").buildSelectOutputSchema("Benefit", selectOption));
+
+    pluginConfig = SuccessFactorsPluginConfig.builder().entityName("Picklist").build();
+    assertSchemaEquals(completeGenerator("successfactors-metadata3.xml")
+                         .buildExpandOutputSchema("Picklist", "picklistOptions/picklistLabels", null, pluginConfig),
+                       lazyGenerator("successfactors-metadata3.xml")
+                         .buildExpandOutputSchema("Picklist", "picklistOptions/picklistLabels", null, pluginConfig));
+
+    assertSchemaEquals(completeGenerator("successfactors-supported-datatype.xml")
+                         .buildDefaultOutputSchema("EmployeePayrollRunResultsItems"),
+                       lazyGenerator("successfactors-supported-datatype.xml")
+                         .buildDefaultOutputSchema("EmployeePayrollRunResultsItems"));
+  }
+
+  @Test
+  public void testOnlyRequestedEntityIsMaterialized() throws Exception {
+    SuccessFactorsMetadataIndex metadataIndex = readIndex("successfactors-metadata3.xml");
+    Edm edm = readMetadata(metadataIndex.buildEntityMetadata("Picklist", Collections.emptyList()));
+    Assert.assertNotNull(edm.getEntityType("SFOData", "Picklist"));
+    Assert.assertNull(edm.getEntityType("SFOData", "PicklistLabel"));
+    Assert.assertEquals("Navigation target is kept with its key only.", 1,
+                        edm.getEntityType("SFOData", "PicklistOption").getPropertyNames().size());
+
+    edm = readMetadata(metadataIndex.buildEntityMetadata("Picklist", Collections.singletonList("picklistOptions")));
+    Assert.assertTrue(edm.getEntityType("SFOData", "PicklistOption").getPropertyNames().size() > 1);
+    Assert.assertNull(metadataIndex.buildEntityMetadata("INVALID-ENTITY-NAME", Collections.emptyList()));
+  }
+
+  @Test
+  public void testCompleteMetadataIsMaterializedOnDemand() throws Exception {
+    Edm edm = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource("successfactors-metadata3.xml"), false);
+    SuccessFactorsEntityProvider entityProvider =
+      new SuccessFactorsEntityProvider(readIndex("successfactors-metadata3.xml"));
+    Assert.assertNull(entityProvider.getEntitySet("INVALID-ENTITY-NAME"));
+    Assert.assertEquals(getEntitySetNames(edm.getDefaultEntityContainer().getEntitySets()),
+                        getEntitySetNames(entityProvider.getDefaultEntitySet()));
+  }
+
+  private static void assertSchemaEquals(Schema expected, Schema actual) {
+    // the names of the expanded records are randomly generated
+    Assert.assertEquals(RECORD_NAME_SUFFIX.matcher(expected.toString()).replaceAll(""),
+                        RECORD_NAME_SUFFIX.matcher(actual.toString()).replaceAll(""));
+  }
+
+  private static SuccessFactorsSchemaGenerator completeGenerator(String resourceName) throws Exception {
+    Edm edm = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource(resourceName), false);
+    return new SuccessFactorsSchemaGenerator(new SuccessFactorsEntityProvider(edm));
+  }
+
+  private static SuccessFactorsSchemaGenerator lazyGenerator(String resourceName) throws Exception {
+    return new SuccessFactorsSchemaGenerator(new SuccessFactorsEntityProvider(readIndex(resourceName)));
+  }
+
+  private static SuccessFactorsMetadataIndex readIndex(String resourceName) throws Exception {
+    return SuccessFactorsMetadataIndex.read(TestSuccessFactorsUtil.readResource(resourceName));
+  }
+
+  private static Edm readMetadata(byte[] metadata) throws Exception {
+    return EntityProvider.readMetadata(new ByteArrayInputStream(metadata), false);
+  }
+
+  private static List<String> getEntitySetNames(List<EdmEntitySet> entitySets) throws Exception {
+    List<String> names = new ArrayList<>();
+    for (EdmEntitySet entitySet : entitySets) {
+      names.add(entitySet.getName());
+    }
+    return names;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.metadata;
+
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsFeedReader;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
+import org.apache.olingo.odata2.api.ep.feed.ODataFeed;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public class SuccessFactorsMetadataPrunerTest {
+
+  private byte[] metadata;
+
+  @Before
+  public void setup() {
+    metadata = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil
+      .readResource("successfactors-metadata3.xml")).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testPruneToEntityClosure() throws Exception {
+    byte[] prunedMetadata = SuccessFactorsMetadataPruner.prune(metadata, "Picklist", null);
+    Assert.assertTrue("Metadata is not pruned.", prunedMetadata.length < metadata.length);
+
+    SuccessFactorsEntityProvider entityProvider = new SuccessFactorsEntityProvider(readMetadata(prunedMetadata));
+    Assert.assertNotNull(entityProvider.getEntitySet("Picklist"));
+    Assert.assertNull(entityProvider.getEntitySet("PicklistOption"));
+    Assert.assertNull(entityProvider.getEntitySet("PicklistLabel"));
+    Assert.assertNull(entityProvider.getEdmMetadata().getEntityType("SFOData", "PicklistLabel"));
+    Assert.assertEquals("Navigation target is kept with its key only.", 1,
+                        entityProvider.getEdmMetadata().getEntityType("SFOData", "PicklistOption")
+                          .getPropertyNames().size());
+    Assert.assertEquals(1, entityProvider.getEntityType("Picklist").getNavigationPropertyNames().size());
+  }
+
+  @Test
+  public void testPruneToExpandClosure() throws Exception {
+    byte[] prunedMetadata = SuccessFactorsMetadataPruner.prune(metadata, "Picklist", "picklistOptions/picklistLabels");
+    SuccessFactorsEntityProvider entityProvider = new SuccessFactorsEntityProvider(readMetadata(prunedMetadata));
+    Assert.assertNotNull(entityProvider.getEntitySet("PicklistOption"));
+    Assert.assertNotNull(entityProvider.getEntitySet("PicklistLabel"));
+
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder().entityName("Picklist")
+      .expandOption("picklistOptions/picklistLabels").build();
+    try (SuccessFactorsFeedReader feedReader =
+           new SuccessFactorsFeedReader(TestSuccessFactorsUtil.readResource("successfactors-data1.json"),
+                                        entityProvider.getEntitySet("Picklist"), pluginConfig)) {
+      ODataEntry entry = feedReader.nextEntry();
+      Assert.assertNotNull(entry);
+      ODataFeed picklistOptions = (ODataFeed) entry.getProperties().get("picklistOptions");
+      Assert.assertFalse(picklistOptions.getEntries().isEmpty());
+    }
+  }
+
+  @Test
+  public void testDeferredNavigationIsReadWithPrunedMetadata() throws Exception {
+    String feed = "{\"d\":{\"results\":[{\"__metadata\":{\"type\":\"SFOData.PicklistOption\"},\"id\":\"42\"," +
+      "\"externalCode\":\"A\",\"sortOrder\":1,\"maxValue\":\"2.5\"," +
+      "\"childPicklistOptions\":{\"__deferred\":{\"uri\":\"PicklistOption(42L)/childPicklistOptions\"}}," +
+      "\"parentPicklistOption\":{\"__deferred\":{\"uri\":\"PicklistOption(42L)/parentPicklistOption\"}}," +
+      "\"picklist\":{\"__deferred\":{\"uri\":\"PicklistOption(42L)/picklist\"}}," +
+      "\"picklistLabels\":{\"__deferred\":{\"uri\":\"PicklistOption(42L)/picklistLabels\"}}}]}}";
+    byte[] prunedMetadata = SuccessFactorsMetadataPruner.prune(metadata, "PicklistOption", null);
+
+    ODataEntry expectedEntry = readEntry(metadata, feed);
+    ODataEntry actualEntry = readEntry(prunedMetadata, feed);
+    Assert.assertEquals(expectedEntry.getProperties(), actualEntry.getProperties());
+  }
+
+  @Test
+  public void testUnknownEntityIsNotPruned() {
+    Assert.assertSame(metadata, SuccessFactorsMetadataPruner.prune(metadata, "Unknown", null));
+  }
+
+  @Test
+  public void testInvalidMetadataIsNotPruned() {
+    byte[] invalidMetadata = "<edmx:Edmx".getBytes(StandardCharsets.UTF_8);
+    Assert.assertSame(invalidMetadata, SuccessFactorsMetadataPruner.prune(invalidMetadata, "Picklist", null));
+  }
+
+  private static Edm readMetadata(byte[] metadata) throws Exception {
+    return EntityProvider.readMetadata(new ByteArrayInputStream(metadata), false);
+  }
+
+  private static ODataEntry readEntry(byte[] metadata, String feed) throws Exception {
+    SuccessFactorsEntityProvider entityProvider = new SuccessFactorsEntityProvider(readMetadata(metadata));
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder().entityName("PicklistOption")
+      .build();
+    InputStream dataStream = new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8));
+    try (SuccessFactorsFeedReader feedReader =
+           new SuccessFactorsFeedReader(dataStream, entityProvider.getEntitySet("PicklistOption"), pluginConfig)) {
+      return feedReader.nextEntry();
+    }
+  }
+}
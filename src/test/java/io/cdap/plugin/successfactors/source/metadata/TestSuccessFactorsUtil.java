@@ -16,6 +16,8 @@
 package io.cdap.plugin.successfactors.source.metadata;
 
 import com.google.gson.Gson;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.successfactors.common.exception.proto.SuccessFactorsError;
 import org.junit.Assert;
 import org.junit.Test;
@@ -24,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -42,6 +45,34 @@ public class TestSuccessFactorsUtil {
     return null;
   }
 
+  /**
+   * Asserts that both the records hold the same field values, comparing the decimal bytes by content and the nested
+   * records field by field.
+   */
+  public static void assertRecordEquals(StructuredRecord expected, StructuredRecord actual) {
+    Assert.assertEquals(expected.getSchema(), actual.getSchema());
+    for (Schema.Field field : expected.getSchema().getFields()) {
+      assertValueEquals(field.getName(), expected.get(field.getName()), actual.get(field.getName()));
+    }
+  }
+
+  private static void assertValueEquals(String fieldName, Object expected, Object actual) {
+    if (expected instanceof byte[] && actual instanceof byte[]) {
+      Assert.assertArrayEquals(fieldName, (byte[]) expected, (byte[]) actual);
+    } else if (expected instanceof StructuredRecord && actual instanceof StructuredRecord) {
+      assertRecordEquals((StructuredRecord) expected, (StructuredRecord) actual);
+    } else if (expected instanceof List && actual instanceof List) {
+      List<?> expectedList = (List<?>) expected;
+      List<?> actualList = (List<?>) actual;
+      Assert.assertEquals(fieldName, expectedList.size(), actualList.size());
+      for (int i = 0; i < expectedList.size(); i++) {
+        assertValueEquals(fieldName, expectedList.get(i), actualList.get(i));
+      }
+    } else {
+      Assert.assertEquals(fieldName, expected, actual);
+    }
+  }
+
   @Test
   public void testSuccessFactorsErrorStructure() {
     String errorJson = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil
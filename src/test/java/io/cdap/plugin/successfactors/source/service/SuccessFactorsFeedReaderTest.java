@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.EntityProviderReadProperties;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
+import org.apache.olingo.odata2.api.ep.feed.ODataFeed;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.core.MediaType;
+
+public class SuccessFactorsFeedReaderTest {
+
+  private static final int PAGE_ENTRIES = 5000;
+
+  private EdmEntitySet entitySet;
+  private SuccessFactorsPluginConfig pluginConfig;
+  private byte[] page;
+
+  @Before
+  public void setUp() throws Exception {
+    entitySet = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource("successfactors-metadata2.xml"), false)
+      .getDefaultEntityContainer().getEntitySet("Background_SpecialAssign");
+    pluginConfig = SuccessFactorsPluginConfig.builder()
+      .baseURL("http://localhost/odata/v2")
+      .entityName("Background_SpecialAssign")
+      .username("test")
+      .password("secret")
+      .build();
+    page = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource(
+      "successfactors-data.json")).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testEntriesAreReadAsTheWholeFeed() throws Exception {
+    List<ODataEntry> feedEntries = readFeed(page);
+    List<ODataEntry> streamedEntries = readEntries(page);
+
+    Assert.assertEquals(3, streamedEntries.size());
+    for (int entry = 0; entry < feedEntries.size(); entry++) {
+      Assert.assertEquals(feedEntries.get(entry).getProperties(), streamedEntries.get(entry).getProperties());
+    }
+  }
+
+  @Test
+  public void testEntriesOfALargePageAreReadAsTheWholeFeed() throws Exception {
+    byte[] largePage = buildPage(PAGE_ENTRIES);
+    List<ODataEntry> feedEntries = readFeed(largePage);
+    List<ODataEntry> streamedEntries = readEntries(largePage);
+
+    Assert.assertEquals(PAGE_ENTRIES, streamedEntries.size());
+    for (int entry = 0; entry < feedEntries.size(); entry++) {
+      Assert.assertEquals(feedEntries.get(entry).getProperties(), streamedEntries.get(entry).getProperties());
+    }
+  }
+
+  @Test
+  public void testNestedResultsAfterOtherFieldsAreKept() throws Exception {
+    entitySet = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource("successfactors-metadata3.xml"), false)
+      .getDefaultEntityContainer().getEntitySet("Picklist");
+    pluginConfig = SuccessFactorsPluginConfig.builder()
+      .baseURL("http://localhost/odata/v2")
+      .entityName("Picklist")
+      .expandOption("picklistOptions/picklistLabels")
+      .username("test")
+      .password("secret")
+      .build();
+    JsonObject feed = new JsonParser().parse(TestSuccessFactorsUtil.convertInputStreamToString(
+      TestSuccessFactorsUtil.readResource("successfactors-data1.json"))).getAsJsonObject();
+    // the labels of each option are given after their '__count' instead of first
+    List<Integer> labelCounts = new ArrayList<>();
+    for (JsonElement option : feed.getAsJsonObject("d").getAsJsonArray("results").get(0).getAsJsonObject()
+      .getAsJsonObject("picklistOptions").getAsJsonArray("results")) {
+      JsonArray labels = option.getAsJsonObject().getAsJsonObject("picklistLabels").getAsJsonArray("results");
+      JsonObject countedLabels = new JsonObject();
+      countedLabels.addProperty("__count", String.valueOf(labels.size()));
+      countedLabels.add("results", labels);
+      option.getAsJsonObject().add("picklistLabels", countedLabels);
+      labelCounts.add(labels.size());
+    }
+
+    List<ODataEntry> entries = readEntries(feed.toString().getBytes(StandardCharsets.UTF_8));
+    List<ODataEntry> options = ((ODataFeed) entries.get(0).getProperties().get("picklistOptions")).getEntries();
+    Assert.assertEquals(labelCounts.size(), options.size());
+    for (int option = 0; option < options.size(); option++) {
+      ODataFeed labels = (ODataFeed) options.get(option).getProperties().get("picklistLabels");
+      Assert.assertNotNull(labels);
+      Assert.assertEquals(labelCounts.get(option).intValue(), labels.getEntries().size());
+    }
+  }
+
+  private List<ODataEntry> readFeed(byte[] data) throws Exception {
+    ODataFeed feed = EntityProvider.readFeed(MediaType.APPLICATION_JSON, entitySet, new ByteArrayInputStream(data),
+                                             EntityProviderReadProperties.init().build());
+    return feed.getEntries();
+  }
+
+  private List<ODataEntry> readEntries(byte[] data) throws Exception {
+    List<ODataEntry> entries = new ArrayList<>();
+    try (SuccessFactorsFeedReader feedReader = new SuccessFactorsFeedReader(data, entitySet, pluginConfig)) {
+      for (ODataEntry entry = feedReader.nextEntry(); entry != null; entry = feedReader.nextEntry()) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private byte[] buildPage(int entries) {
+    JsonObject feed = new JsonParser().parse(new String(page, StandardCharsets.UTF_8)).getAsJsonObject();
+    JsonArray results = feed.getAsJsonObject("d").getAsJsonArray("results");
+    JsonArray largeResults = new JsonArray();
+    for (int entry = 0; entry < entries; entry++) {
+      largeResults.add(results.get(entry % results.size()));
+    }
+    feed.getAsJsonObject("d").add("results", largeResults);
+    return feed.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsReaderMetrics;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+public class SuccessFactorsPageCacheTest {
+
+  private static final String DATA_URL = "http://localhost/odata/v2/Entity?$select=id&$skip=3&$top=3";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testPageKeyIgnoresParameterOrder() throws Exception {
+    String pageKey = SuccessFactorsPageCache.getPageKey("1-6", new URL(DATA_URL));
+
+    Assert.assertEquals(pageKey, SuccessFactorsPageCache.getPageKey(
+      "1-6", new URL("http://localhost/odata/v2/Entity?$top=3&$skip=3&$select=id")));
+    Assert.assertNotEquals(pageKey, SuccessFactorsPageCache.getPageKey("7-9", new URL(DATA_URL)));
+  }
+
+  @Test
+  public void testCachedPageIsRead() throws Exception {
+    SuccessFactorsPageCache pageCache = new SuccessFactorsPageCache(temporaryFolder.getRoot().toPath(), 100,
+                                                                   new SuccessFactorsReaderMetrics());
+    Assert.assertNull(pageCache.get("1-6", new URL(DATA_URL)));
+
+    pageCache.put("1-6", new URL(DATA_URL), page("page"));
+    Assert.assertArrayEquals(page("page"), pageCache.get("1-6", new URL(DATA_URL)));
+    Assert.assertNull(pageCache.get("7-9", new URL(DATA_URL)));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedPagesAreEvicted() throws Exception {
+    SuccessFactorsPageCache pageCache = new SuccessFactorsPageCache(temporaryFolder.getRoot().toPath(), 10,
+                                                                   new SuccessFactorsReaderMetrics());
+    pageCache.put("1-3", new URL(DATA_URL), page("aaaa"));
+    pageCache.put("4-6", new URL(DATA_URL), page("bbbb"));
+    Assert.assertNotNull(pageCache.get("1-3", new URL(DATA_URL)));
+
+    pageCache.put("7-9", new URL(DATA_URL), page("cccc"));
+    Assert.assertNull(pageCache.get("4-6", new URL(DATA_URL)));
+    Assert.assertArrayEquals(page("aaaa"), pageCache.get("1-3", new URL(DATA_URL)));
+    Assert.assertArrayEquals(page("cccc"), pageCache.get("7-9", new URL(DATA_URL)));
+    Assert.assertEquals(8, pageCache.getCachedBytes());
+
+    // a page larger than the cache is never cached
+    pageCache.put("10-20", new URL(DATA_URL), page("ddddddddddd"));
+    Assert.assertNull(pageCache.get("10-20", new URL(DATA_URL)));
+    Assert.assertEquals(8, pageCache.getCachedBytes());
+  }
+
+  @Test
+  public void testPagesOfAnotherJvmAreRead() throws Exception {
+    SuccessFactorsPageCache killedExecutorCache = new SuccessFactorsPageCache(temporaryFolder.getRoot().toPath(), 10,
+                                                                             new SuccessFactorsReaderMetrics());
+    killedExecutorCache.put("1-3", new URL(DATA_URL), page("aaaa"));
+
+    // the index is rebuilt from the pages left in the directory of the run
+    SuccessFactorsPageCache pageCache = new SuccessFactorsPageCache(temporaryFolder.getRoot().toPath(), 10,
+                                                                   new SuccessFactorsReaderMetrics());
+    Assert.assertEquals(4, pageCache.getCachedBytes());
+    Assert.assertArrayEquals(page("aaaa"), pageCache.get("1-3", new URL(DATA_URL)));
+
+    // and a page cached meanwhile is found on the disk
+    killedExecutorCache.put("4-6", new URL(DATA_URL), page("bbbb"));
+    Assert.assertArrayEquals(page("bbbb"), pageCache.get("4-6", new URL(DATA_URL)));
+    Assert.assertEquals(8, pageCache.getCachedBytes());
+  }
+
+  private static byte[] page(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.ByteStreams;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.util.SuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+public class SuccessFactorsRunPlannerTest {
+
+  private static final String ENTITY_PATH = "/odata/v2/Picklist";
+  private static final String METADATA_PATH = ENTITY_PATH + "/$metadata";
+  private static final String COUNT_PATH = ENTITY_PATH + "/$count";
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+  private SuccessFactorsPluginConfig pluginConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    pluginConfig = SuccessFactorsPluginConfig.builder()
+      .referenceName("unit-test-ref-name")
+      .baseURL("http://localhost:" + wireMockRule.port() + "/odata/v2")
+      .entityName("Picklist")
+      .username("test")
+      .password("secret")
+      .build();
+
+    stubFor(get(urlPathEqualTo(METADATA_PATH))
+              .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/xml")
+                            .withBody(readResource("successfactors-metadata3.xml"))));
+    stubFor(get(urlPathEqualTo(COUNT_PATH))
+              .willReturn(aResponse().withStatus(200).withHeader("dataserviceversion", "2.0").withBody("3")));
+  }
+
+  @Test
+  public void testMetadataIsFetchedOnce() throws Exception {
+    stubFor(get(urlPathEqualTo(ENTITY_PATH))
+              .willReturn(aResponse().withStatus(200).withHeader("dataserviceversion", "2.0").withBody("{}")));
+    SuccessFactorsService successFactorsService = SuccessFactorsUtil.getSuccessFactorsService(pluginConfig);
+
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, true)) {
+      planner.checkSuccessFactorsURL();
+      Schema outputSchema = planner.buildOutputSchema();
+      Assert.assertNotNull(outputSchema.getField("picklistId"));
+      Assert.assertEquals(3, planner.getTotalAvailableRowCount());
+
+      Edm edm = successFactorsService.getSuccessFactorsServiceEdm(planner.getEncodedServiceMetadata());
+      Assert.assertNotNull(edm.getDefaultEntityContainer().getEntitySet("Picklist"));
+      Assert.assertTrue(planner.getElapsedMillis() >= 0);
+    }
+
+    verify(1, getRequestedFor(urlPathEqualTo(ENTITY_PATH)));
+    verify(1, getRequestedFor(urlPathEqualTo(METADATA_PATH)));
+    verify(1, getRequestedFor(urlPathEqualTo(COUNT_PATH)));
+  }
+
+  @Test
+  public void testFailedUrlCheckIsReported() throws Exception {
+    stubFor(get(urlPathEqualTo(ENTITY_PATH)).willReturn(aResponse().withStatus(401)));
+
+    try (SuccessFactorsRunPlanner planner =
+           SuccessFactorsRunPlanner.planSchema(SuccessFactorsUtil.getSuccessFactorsService(pluginConfig))) {
+      planner.checkSuccessFactorsURL();
+      Assert.fail("Failed tester call is not reported.");
+    } catch (SuccessFactorsServiceException e) {
+      Assert.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, e.getErrorCode().intValue());
+    }
+    verify(0, getRequestedFor(urlPathEqualTo(COUNT_PATH)));
+  }
+
+  private static byte[] readResource(String resourceName) throws Exception {
+    try (InputStream inputStream = TestSuccessFactorsUtil.readResource(resourceName)) {
+      return ByteStreams.toByteArray(inputStream);
+    }
+  }
+}
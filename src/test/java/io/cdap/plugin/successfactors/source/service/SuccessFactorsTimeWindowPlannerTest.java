@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.service;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SuccessFactorsTimeWindowPlannerTest {
+
+  private static final String ENTITY_NAME = "Background_SpecialAssign";
+  private static final String NULL_WINDOW = "lastModifiedDate eq null";
+  private static final String SECOND_MS = "datetimeoffset'2021-01-01T00:00:00.002Z'";
+  private static final String THIRD_MS = "datetimeoffset'2021-01-01T00:00:00.003Z'";
+
+  private SuccessFactorsService successFactorsService;
+  private Edm edm;
+
+  @Before
+  public void setUp() throws Exception {
+    edm = EntityProvider.readMetadata(TestSuccessFactorsUtil.readResource("successfactors-metadata2.xml"), false);
+    successFactorsService = Mockito.mock(SuccessFactorsService.class);
+    // 8 records dated over 4 milliseconds, and 2 records without a date
+    Map<String, Long> counts = new HashMap<>();
+    counts.put(NULL_WINDOW, 2L);
+    counts.put("lastModifiedDate ge datetimeoffset'2021-01-01T00:00:00Z' and lastModifiedDate lt " + SECOND_MS, 2L);
+    counts.put("lastModifiedDate ge " + SECOND_MS + " and lastModifiedDate lt " + THIRD_MS, 3L);
+    Mockito.when(successFactorsService.getRecordCount(Mockito.anyString()))
+      .thenAnswer(invocation -> counts.get(invocation.<String>getArgument(0)));
+    Mockito.when(successFactorsService.getPropertyBound(edm, "lastModifiedDate", false)).thenReturn(utc(0));
+    Mockito.when(successFactorsService.getPropertyBound(edm, "lastModifiedDate", true)).thenReturn(utc(3));
+  }
+
+  @Test
+  public void testLargestWindowIsBisectedUntilEveryWindowFitsInSplit() throws Exception {
+    Map<String, Long> windows;
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, false)) {
+      windows = new SuccessFactorsTimeWindowPlanner(successFactorsService, edm, ENTITY_NAME, "lastModifiedDate")
+        .plan(10, 3, planner);
+    }
+
+    Map<String, Long> expectedWindows = new LinkedHashMap<>();
+    expectedWindows.put("lastModifiedDate lt " + SECOND_MS, 2L);
+    expectedWindows.put("lastModifiedDate ge " + SECOND_MS + " and lastModifiedDate lt " + THIRD_MS, 3L);
+    expectedWindows.put("lastModifiedDate ge " + THIRD_MS, 3L);
+    expectedWindows.put(NULL_WINDOW, 2L);
+    Assert.assertEquals(expectedWindows.toString(), windows.toString());
+  }
+
+  @Test
+  public void testAdjacentWindowsAreMergedUpToSplitSize() throws Exception {
+    Map<String, Long> windows;
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, false)) {
+      windows = new SuccessFactorsTimeWindowPlanner(successFactorsService, edm, ENTITY_NAME, "lastModifiedDate")
+        .plan(10, 5, planner);
+    }
+
+    Map<String, Long> expectedWindows = new LinkedHashMap<>();
+    expectedWindows.put("lastModifiedDate lt " + THIRD_MS, 5L);
+    expectedWindows.put("lastModifiedDate ge " + THIRD_MS, 3L);
+    expectedWindows.put(NULL_WINDOW, 2L);
+    Assert.assertEquals(expectedWindows.toString(), windows.toString());
+  }
+
+  @Test
+  public void testWindowsAreCountedByThePlanner() throws Exception {
+    Set<String> countThreads = ConcurrentHashMap.newKeySet();
+    Mockito.when(successFactorsService.getRecordCount(Mockito.startsWith("lastModifiedDate ge")))
+      .thenAnswer(invocation -> {
+        countThreads.add(Thread.currentThread().getName());
+        return 2L;
+      });
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, false)) {
+      new SuccessFactorsTimeWindowPlanner(successFactorsService, edm, ENTITY_NAME, "lastModifiedDate")
+        .plan(10, 2, planner);
+    }
+
+    // the '$count' calls of the bisected windows run in the pool of the planner, not one after another in prepareRun
+    Assert.assertFalse(countThreads.isEmpty());
+    for (String countThread : countThreads) {
+      Assert.assertTrue(countThread, countThread.startsWith("successfactors-planner-"));
+    }
+  }
+
+  @Test(expected = SuccessFactorsServiceException.class)
+  public void testWindowsArePlannedOnDateTimePropertiesOnly() throws Exception {
+    new SuccessFactorsTimeWindowPlanner(successFactorsService, edm, ENTITY_NAME, "userId");
+  }
+
+  private static Calendar utc(long millis) {
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    calendar.setTimeInMillis(1609459200000L + millis);
+    return calendar;
+  }
+}
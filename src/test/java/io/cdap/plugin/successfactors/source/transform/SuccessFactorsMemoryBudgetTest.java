@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.cdap.api.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SuccessFactorsMemoryBudgetTest {
+
+  @Test
+  public void testPageLargerThanBudgetIsLetThrough() throws Exception {
+    SuccessFactorsMemoryBudget budget = new SuccessFactorsMemoryBudget(10L, new SuccessFactorsReaderMetrics());
+    budget.reserveEntries(5);
+    budget.reservePage(100);
+
+    Assert.assertEquals(105, budget.getUsedBytes());
+    Assert.assertEquals(100, budget.getPeakPageBytes());
+    Assert.assertEquals(5, budget.getPeakEntryBytes());
+  }
+
+  @Test
+  public void testReservationWaitsForRelease() throws Exception {
+    SuccessFactorsMemoryBudget budget = new SuccessFactorsMemoryBudget(10L, new SuccessFactorsReaderMetrics());
+    budget.reservePage(8);
+    CountDownLatch reserved = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      try {
+        budget.reservePage(8);
+        reserved.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.start();
+
+    Assert.assertFalse(reserved.await(200, TimeUnit.MILLISECONDS));
+    budget.releasePage(8);
+    Assert.assertTrue(reserved.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(8, budget.getUsedBytes());
+    Assert.assertEquals(8, budget.getPeakPageBytes());
+  }
+
+  @Test
+  public void testPeakIsEmittedOnce() throws Exception {
+    long pageBytes = 1L << 40;
+    SuccessFactorsReaderMetrics readerMetrics = new SuccessFactorsReaderMetrics();
+    SuccessFactorsMemoryBudget budget = new SuccessFactorsMemoryBudget(null, readerMetrics);
+    budget.reservePage(pageBytes);
+    budget.releasePage(pageBytes);
+    Metrics metrics = Mockito.mock(Metrics.class);
+
+    readerMetrics.emit(metrics);
+    readerMetrics.emit(metrics);
+    Mockito.verify(metrics).gauge(SuccessFactorsMemoryBudget.PEAK_PAGE_BYTES_METRIC, pageBytes);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transport.SuccessFactorsTransporter;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+
+public class SuccessFactorsPagePrefetcherTest {
+
+  private static final String ENTITY_PATH = "/odata/v2/Background_SpecialAssign";
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+  private SuccessFactorsService successFactorsService;
+  private Edm edmData;
+  private final SuccessFactorsReaderMetrics readerMetrics = new SuccessFactorsReaderMetrics();
+
+  @Before
+  public void setUp() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .baseURL("http://localhost:" + wireMockRule.port() + "/odata/v2")
+      .entityName("Background_SpecialAssign")
+      .username("test")
+      .password("secret")
+      .paginationType("serverSide")
+      .build();
+    successFactorsService = new SuccessFactorsService(pluginConfig,
+                                                      new SuccessFactorsTransporter(pluginConfig.getConnection()));
+    String metadataString = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-metadata2.xml"));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(
+      Base64.getEncoder().encodeToString(metadataString.getBytes(StandardCharsets.UTF_8)));
+
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    String nextLink = "http://localhost:" + wireMockRule.port() + ENTITY_PATH + "?$skiptoken=p2";
+    WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo(ENTITY_PATH))
+                       .willReturn(WireMock.ok()
+                                     .withHeader("dataserviceversion", "2.0")
+                                     .withBody(data)));
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching(ENTITY_PATH + "\\?.*paging=snapshot"))
+                       .willReturn(WireMock.ok()
+                                     .withHeader("dataserviceversion", "2.0")
+                                     .withBody(data.substring(0, data.lastIndexOf(']') + 1) + ",\"__next\":\"" +
+                                                 nextLink + "\"}}")));
+  }
+
+  @Test
+  public void testNextLinkIsPrefetchedBeforePageIsRead() throws Exception {
+    try (SuccessFactorsPagePrefetcher prefetcher =
+           new SuccessFactorsPagePrefetcher(successFactorsService, edmData, null, null, null, null, 1,
+                                            new SuccessFactorsMemoryBudget(null, readerMetrics),
+                                            new SuccessFactorsPageSizer(null, false, readerMetrics))) {
+      SuccessFactorsPagePrefetcher.Page firstPage = prefetcher.nextPage();
+      Assert.assertNotNull(firstPage);
+
+      // none of the entries of the first page are read yet
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (prefetcher.getBufferedBytes() == 0 && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      Assert.assertTrue("Next page is not downloaded ahead.", prefetcher.getBufferedBytes() > 0);
+      verify(1, getRequestedFor(WireMock.urlEqualTo(ENTITY_PATH + "?$skiptoken=p2")));
+
+      int rows = 0;
+      while (firstPage.getFeed().nextEntry() != null) {
+        rows++;
+      }
+      Assert.assertTrue(prefetcher.pageRead(firstPage, rows));
+      SuccessFactorsPagePrefetcher.Page secondPage = prefetcher.nextPage();
+      Assert.assertNotNull(secondPage);
+      Assert.assertEquals(0, prefetcher.getBufferedBytes());
+      Assert.assertTrue(prefetcher.getPeakBufferedBytes() > 0);
+
+      rows = 0;
+      while (secondPage.getFeed().nextEntry() != null) {
+        rows++;
+      }
+      Assert.assertFalse("Last page has no next link.", prefetcher.pageRead(secondPage, rows));
+    }
+  }
+
+  @Test
+  public void testCloseReleasesDownloadedPages() throws Exception {
+    SuccessFactorsPagePrefetcher prefetcher =
+      new SuccessFactorsPagePrefetcher(successFactorsService, edmData, null, null, null, null, 1,
+                                            new SuccessFactorsMemoryBudget(null, readerMetrics),
+                                            new SuccessFactorsPageSizer(null, false, readerMetrics));
+    Assert.assertNotNull(prefetcher.nextPage());
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (prefetcher.getBufferedBytes() == 0 && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    prefetcher.close();
+    Assert.assertEquals(0, prefetcher.getBufferedBytes());
+  }
+
+  @Test
+  public void testPageSizeIsLoweredToMemoryBudget() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .baseURL("http://localhost:" + wireMockRule.port() + "/odata/v2")
+      .entityName("Background_SpecialAssign")
+      .username("test")
+      .password("secret")
+      .paginationType("clientSide")
+      .build();
+    SuccessFactorsService clientSideService =
+      new SuccessFactorsService(pluginConfig, new SuccessFactorsTransporter(pluginConfig.getConnection()));
+    // a budget smaller than a single page: the first page is let through, the next one waits for it to be read
+    try (SuccessFactorsPagePrefetcher prefetcher =
+           new SuccessFactorsPagePrefetcher(clientSideService, edmData, 1L, 9L, 3L, null, 1,
+                                            new SuccessFactorsMemoryBudget(100L, readerMetrics),
+                                            new SuccessFactorsPageSizer(3L, false, readerMetrics))) {
+      SuccessFactorsPagePrefetcher.Page firstPage = prefetcher.nextPage();
+      Assert.assertNotNull(firstPage);
+      verify(1, getRequestedFor(WireMock.urlMatching(ENTITY_PATH + "\\?(?!.*%24skip)(?=.*%24top=3(&|$)).*")));
+
+      int rows = 0;
+      while (firstPage.getFeed().nextEntry() != null) {
+        rows++;
+      }
+      Assert.assertTrue(prefetcher.pageRead(firstPage, rows));
+      Assert.assertNotNull(prefetcher.nextPage());
+      verify(1, getRequestedFor(WireMock.urlMatching(ENTITY_PATH + "\\?(?=.*%24skip=3(&|$))(?=.*%24top=1(&|$)).*")));
+    }
+  }
+
+  @Test
+  public void testFailedWindowIsCutToLoweredPageSize() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = SuccessFactorsPluginConfig.builder()
+      .baseURL("http://localhost:" + wireMockRule.port() + "/odata/v2")
+      .entityName("Background_SpecialAssign")
+      .username("test")
+      .password("secret")
+      .paginationType("clientSide")
+      .adaptivePageSize(true)
+      .build();
+    SuccessFactorsService clientSideService =
+      new SuccessFactorsService(pluginConfig, new SuccessFactorsTransporter(pluginConfig.getConnection()));
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching(ENTITY_PATH + "\\?(?=.*%24top=4(&|$)).*"))
+                       .willReturn(WireMock.serverError()));
+    try (SuccessFactorsPagePrefetcher prefetcher =
+           new SuccessFactorsPagePrefetcher(clientSideService, edmData, 1L, 4L, 4L, null, 1,
+                                            new SuccessFactorsMemoryBudget(null, readerMetrics),
+                                            new SuccessFactorsPageSizer(4L, true, readerMetrics))) {
+      SuccessFactorsPagePrefetcher.Page firstPage = prefetcher.nextPage();
+      Assert.assertNotNull(firstPage);
+      // requested once, not retried as is
+      verify(1, getRequestedFor(WireMock.urlMatching(ENTITY_PATH + "\\?(?!.*%24skip)(?=.*%24top=4(&|$)).*")));
+      verify(1, getRequestedFor(WireMock.urlMatching(ENTITY_PATH + "\\?(?!.*%24skip)(?=.*%24top=2(&|$)).*")));
+
+      Assert.assertTrue(prefetcher.pageRead(firstPage, 2));
+      Assert.assertNotNull(prefetcher.nextPage());
+      verify(1, getRequestedFor(WireMock.urlMatching(ENTITY_PATH + "\\?(?=.*%24skip=2(&|$))(?=.*%24top=2(&|$)).*")));
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.common.exception.TransportException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+
+public class SuccessFactorsPageSizerTest {
+
+  @Test
+  public void testPageSizeIsHalvedOnTimeoutAndServerError() {
+    SuccessFactorsPageSizer pageSizer = new SuccessFactorsPageSizer(100L, true, new SuccessFactorsReaderMetrics());
+    Assert.assertTrue(pageSizer.pageFailed(100, new TransportException("failed", new SocketTimeoutException())));
+    Assert.assertEquals(50, pageSizer.getPageSize());
+    Assert.assertTrue(pageSizer.pageFailed(50, new SuccessFactorsServiceException("failed", 503)));
+    Assert.assertEquals(25, pageSizer.getPageSize());
+
+    // a client error is not caused by the page size
+    Assert.assertFalse(pageSizer.pageFailed(25, new SuccessFactorsServiceException("failed", 400)));
+    Assert.assertEquals(25, pageSizer.getPageSize());
+    // a single record page is retried as is
+    Assert.assertFalse(pageSizer.pageFailed(1, new SuccessFactorsServiceException("failed", 500)));
+  }
+
+  @Test
+  public void testPageSizeGrowsBackOnFastPages() {
+    SuccessFactorsPageSizer pageSizer = new SuccessFactorsPageSizer(100L, true, new SuccessFactorsReaderMetrics());
+    pageSizer.pageFailed(100, new SuccessFactorsServiceException("failed", 500));
+    pageSizer.pageFailed(50, new SuccessFactorsServiceException("failed", 500));
+
+    pageSizer.pageFetched(25, SuccessFactorsPageSizer.FAST_PAGE_MILLIS);
+    Assert.assertEquals("Slow page does not grow the page size.", 25, pageSizer.getPageSize());
+    pageSizer.pageFetched(10, 0);
+    Assert.assertEquals("Short page does not grow the page size.", 25, pageSizer.getPageSize());
+    pageSizer.pageFetched(25, 0);
+    Assert.assertEquals(50, pageSizer.getPageSize());
+    pageSizer.pageFetched(50, 0);
+    pageSizer.pageFetched(100, 0);
+    Assert.assertEquals(100, pageSizer.getPageSize());
+  }
+
+  @Test
+  public void testPageSizeIsFixedUnlessAdaptive() {
+    SuccessFactorsPageSizer pageSizer = new SuccessFactorsPageSizer(100L, false, new SuccessFactorsReaderMetrics());
+    Assert.assertFalse(pageSizer.pageFailed(100, new SuccessFactorsServiceException("failed", 500)));
+    Assert.assertEquals(100, pageSizer.getPageSize());
+  }
+}
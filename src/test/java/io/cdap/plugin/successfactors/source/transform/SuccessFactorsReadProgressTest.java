@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.cdap.api.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SuccessFactorsReadProgressTest {
+
+  private static final float DELTA = 0.001f;
+
+  @Test
+  public void testProgressOfPlannedCount() {
+    SuccessFactorsReadProgress progress = new SuccessFactorsReadProgress(4L, new SuccessFactorsReaderMetrics());
+    Assert.assertEquals(0f, progress.getProgress(), DELTA);
+
+    progress.pageStarted(400);
+    progress.recordRead();
+    Assert.assertEquals(0.25f, progress.getProgress(), DELTA);
+    progress.recordRead();
+    progress.recordRead();
+    Assert.assertEquals(0.75f, progress.getProgress(), DELTA);
+
+    progress.finished();
+    Assert.assertEquals(1f, progress.getProgress(), DELTA);
+  }
+
+  @Test
+  public void testProgressBeyondPlannedCount() {
+    // more records than counted while planning, the remaining ones are estimated from the read pages
+    SuccessFactorsReadProgress progress = new SuccessFactorsReadProgress(2L, new SuccessFactorsReaderMetrics());
+    progress.pageStarted(200);
+    progress.recordRead();
+    progress.recordRead();
+    progress.pageRead(200, 2);
+    progress.pageStarted(100);
+    progress.recordRead();
+
+    // 2 records of the first page, 1 record estimated in the second page from its size and 2 more in a next page
+    Assert.assertEquals(3 / 5f, progress.getProgress(), DELTA);
+    Assert.assertEquals(100, progress.getBytesPerRecord());
+    Assert.assertEquals(2, progress.getStartedPages());
+  }
+
+  @Test
+  public void testMetricsAreEmittedOnce() {
+    SuccessFactorsReaderMetrics readerMetrics = SuccessFactorsReaderMetrics.acquire("run", "progress");
+    new SuccessFactorsReadProgress(null, readerMetrics).pageStarted(300);
+    // the readers of another stage of the JVM
+    new SuccessFactorsReadProgress(null, SuccessFactorsReaderMetrics.acquire("run", "other")).pageStarted(500);
+    // another run of the stage in the JVM
+    new SuccessFactorsReadProgress(null, SuccessFactorsReaderMetrics.acquire("next", "progress")).pageStarted(700);
+    Metrics metrics = Mockito.mock(Metrics.class);
+
+    readerMetrics.emit(metrics);
+    readerMetrics.emit(metrics);
+    Mockito.verify(metrics).countLong(SuccessFactorsReadProgress.PAGES_METRIC, 1);
+    Mockito.verify(metrics).countLong(SuccessFactorsReadProgress.BYTES_METRIC, 300);
+    Mockito.verifyNoMoreInteractions(metrics);
+  }
+
+  @Test
+  public void testReleasedMetricsAreDropped() {
+    SuccessFactorsReaderMetrics readerMetrics = SuccessFactorsReaderMetrics.acquire("first", "peak");
+    readerMetrics.pageBytesHeld(500);
+    readerMetrics.release();
+    // the dropped metrics are not reused, so a lower peak of a later reader is still emitted
+    SuccessFactorsReaderMetrics nextMetrics = SuccessFactorsReaderMetrics.acquire("first", "peak");
+    Assert.assertNotSame(readerMetrics, nextMetrics);
+    nextMetrics.pageBytesHeld(200);
+    Metrics metrics = Mockito.mock(Metrics.class);
+
+    nextMetrics.emit(metrics);
+    Mockito.verify(metrics).gauge(SuccessFactorsMemoryBudget.PEAK_PAGE_BYTES_METRIC, 200);
+    nextMetrics.release();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transform;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
+import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
+import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsSchemaGenerator;
+import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsFeedReader;
+import org.apache.olingo.odata2.api.edm.Edm;
+import org.apache.olingo.odata2.api.edm.EdmEntitySet;
+import org.apache.olingo.odata2.api.ep.EntityProvider;
+import org.apache.olingo.odata2.api.ep.entry.ODataEntry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SuccessFactorsRecordDecoderTest {
+
+  private static final String ENTITY_NAME = "EmployeePayrollRunResultsItems";
+
+  private SuccessFactorsPluginConfig pluginConfig;
+  private EdmEntitySet entitySet;
+  private Schema outputSchema;
+
+  @Before
+  public void setup() throws Exception {
+    Edm edm = EntityProvider.readMetadata(TestSuccessFactorsUtil
+                                            .readResource("successfactors-supported-datatype.xml"), false);
+    SuccessFactorsEntityProvider serviceHelper = new SuccessFactorsEntityProvider(edm);
+    entitySet = serviceHelper.getEntitySet(ENTITY_NAME);
+    outputSchema = new SuccessFactorsSchemaGenerator(serviceHelper).buildDefaultOutputSchema(ENTITY_NAME);
+    pluginConfig = SuccessFactorsPluginConfig.builder().entityName(ENTITY_NAME).build();
+  }
+
+  @Test
+  public void testDecodedRecordsMatchODataEntries() throws Exception {
+    String feed = "{\"d\":{\"results\":[" +
+      entry("\"amount\":\"200.20\",\"quantity\":\"-0.005\",\"createdDate\":\"/Date(1583107200000)/\"," +
+              "\"createdDateTime\":\"/Date(1618796144000+0000)/\",\"mdfSystemVersionId\":\"+12\"") + "," +
+      entry("\"amount\":\"12.3456789\",\"createdDateTime\":\"/Date(1618796144000+0060)/\"," +
+              "\"lastModifiedDateTime\":\"/Date(1618796144000-0130)/\",\"lastModifiedDateWithTZ\":\"/Date(0)/\"," +
+              "\"mdfSystemTransactionSequence\":\"-9223372036854775808\",\"createdBy\":\"\"") + "," +
+      entry("\"amount\":null,\"createdDate\":\"/Date(-62135596800000)/\"," +
+              "\"externalName\":\"\\u00dcn\\u00efc\\u00f8d\\u00e9\"") +
+      "]}}";
+
+    List<StructuredRecord> expectedRecords = new ArrayList<>();
+    SuccessFactorsTransformer transformer = new SuccessFactorsTransformer(outputSchema);
+    try (SuccessFactorsFeedReader feedReader = createFeedReader(feed)) {
+      for (ODataEntry entry = feedReader.nextEntry(); entry != null; entry = feedReader.nextEntry()) {
+        expectedRecords.add(transformer.buildCurrentRecord(entry));
+      }
+    }
+
+    SuccessFactorsRecordDecoder recordDecoder =
+      SuccessFactorsRecordDecoder.compile(outputSchema, entitySet.getEntityType(), false);
+    Assert.assertNotNull("Default output schema is decoded directly.", recordDecoder);
+    List<StructuredRecord> actualRecords = new ArrayList<>();
+    try (SuccessFactorsFeedReader feedReader = createFeedReader(feed)) {
+      for (StructuredRecord record = feedReader.nextRecord(recordDecoder); record != null;
+           record = feedReader.nextRecord(recordDecoder)) {
+        actualRecords.add(record);
+      }
+    }
+
+    Assert.assertEquals(3, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+    }
+  }
+
+  @Test
+  public void testKeyValuesMatchODataEntries() throws Exception {
+    String feed = "{\"d\":{\"results\":[" + entry("\"amount\":\"1\"") + "]}}";
+    SuccessFactorsRecordDecoder recordDecoder =
+      SuccessFactorsRecordDecoder.compile(outputSchema, entitySet.getEntityType(), true);
+    Assert.assertNotNull(recordDecoder);
+
+    try (SuccessFactorsFeedReader expectedReader = createFeedReader(feed);
+         SuccessFactorsFeedReader actualReader = createFeedReader(feed)) {
+      ODataEntry entry = expectedReader.nextEntry();
+      Assert.assertNotNull(actualReader.nextRecord(recordDecoder));
+      for (String keyName : entitySet.getEntityType().getKeyPropertyNames()) {
+        Assert.assertEquals(keyName, entry.getProperties().get(keyName), actualReader.getLastKeyValues().get(keyName));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidValueIsReported() throws Exception {
+    String feed = "{\"d\":{\"results\":[" + entry("\"mdfSystemVersionId\":\"twelve\"") + "]}}";
+    SuccessFactorsRecordDecoder recordDecoder =
+      SuccessFactorsRecordDecoder.compile(outputSchema, entitySet.getEntityType(), false);
+    Assert.assertNotNull(recordDecoder);
+
+    try (SuccessFactorsFeedReader feedReader = createFeedReader(feed)) {
+      feedReader.nextRecord(recordDecoder);
+      Assert.fail("Invalid Edm.Int64 value is decoded.");
+    } catch (SuccessFactorsServiceException e) {
+      Assert.assertNotNull(e.getCause());
+    }
+  }
+
+  @Test
+  public void testUnsupportedSchemaIsNotCompiled() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("amount", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+    Assert.assertNull(SuccessFactorsRecordDecoder.compile(schema, entitySet.getEntityType(), false));
+  }
+
+  private SuccessFactorsFeedReader createFeedReader(String feed) throws Exception {
+    return new SuccessFactorsFeedReader(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), entitySet,
+                                        pluginConfig);
+  }
+
+  private static String entry(String fields) {
+    return "{\"__metadata\":{\"type\":\"SFOData.EmployeePayrollRunResultsItems\"}," +
+      "\"EmployeePayrollRunResults_externalCode\":\"PRR-1\"," +
+      "\"EmployeePayrollRunResults_mdfSystemEffectiveStartDate\":\"/Date(1580688000000)/\"," +
+      "\"externalCode\":\"ITEM-1\"," + fields + "}";
+  }
+}
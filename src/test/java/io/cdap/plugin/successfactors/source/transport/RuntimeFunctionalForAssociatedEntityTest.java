@@ -117,6 +117,35 @@ public class RuntimeFunctionalForAssociatedEntityTest {
     }
   }
 
+  @Test
+  public void verifyDirectDecodingMatchesODataEntries() throws Exception {
+    List<StructuredRecord> expectedRecords = readAllRecords(pluginConfigBuilder.build());
+    List<StructuredRecord> actualRecords = readAllRecords(pluginConfigBuilder.directDecoding(true).build());
+
+    Assert.assertEquals(1, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+    }
+  }
+
+  private List<StructuredRecord> readAllRecords(SuccessFactorsPluginConfig pluginConfig) throws Exception {
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata();
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    return recordList;
+  }
+
   private void prepareStubForRun(SuccessFactorsPluginConfig pluginConfig) {
     String expectedBody = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
       ("successfactors-data1.json"));
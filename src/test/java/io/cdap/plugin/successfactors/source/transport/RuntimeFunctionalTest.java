@@ -19,6 +19,10 @@ package io.cdap.plugin.successfactors.source.transport;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.successfactors.common.exception.SuccessFactorsServiceException;
@@ -26,10 +30,15 @@ import io.cdap.plugin.successfactors.common.util.ResourceConstants;
 import io.cdap.plugin.successfactors.source.config.SuccessFactorsPluginConfig;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsInputSplit;
 import io.cdap.plugin.successfactors.source.input.SuccessFactorsPartitionBuilder;
+import io.cdap.plugin.successfactors.source.input.SuccessFactorsReadPlan;
 import io.cdap.plugin.successfactors.source.metadata.SuccessFactorsEntityProvider;
 import io.cdap.plugin.successfactors.source.metadata.TestSuccessFactorsUtil;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsPageCache;
+import io.cdap.plugin.successfactors.source.service.SuccessFactorsRunPlanner;
 import io.cdap.plugin.successfactors.source.service.SuccessFactorsService;
+import io.cdap.plugin.successfactors.source.transform.SuccessFactorsInvalidRecord;
 import io.cdap.plugin.successfactors.source.transform.SuccessFactorsRecordReader;
+import okhttp3.HttpUrl;
 import org.apache.olingo.odata2.api.edm.Edm;
 import org.apache.olingo.odata2.api.edm.EdmEntitySet;
 import org.apache.olingo.odata2.api.edm.EdmException;
@@ -71,6 +80,9 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
  */
 public class RuntimeFunctionalTest {
 
+  private static final String KEY_PROBE_QUERY =
+    "%24select=backgroundElementId%2CuserId&%24orderby=backgroundElementId%2CuserId";
+
   @Rule
   public final ExpectedException exceptionRule = ExpectedException.none();
   @Rule
@@ -134,6 +146,524 @@ public class RuntimeFunctionalTest {
     }
   }
 
+  @Test
+  public void verifyServerSidePagingStopsAtMaxRecords() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.maxRecords(2L).build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null,
+                                     pluginConfig.getMaxRecords());
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    Assert.assertEquals("Record count is not capped to the maximum records", 2, recordList.size());
+  }
+
+  @Test
+  public void verifyKeysetPaginationContinuesAfterLastKey() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("keyset").build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?%24filter=.*"))
+                       .willReturn(WireMock.ok()
+                                     .withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")
+                                     .withBody("{\"d\":{\"results\":[]}}")));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 6L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+
+    Assert.assertEquals(3, recordList.size());
+    String nextPageQuery = "%24filter=%28backgroundElementId%20gt%20130169L%29%20or%20%28backgroundElementId%20eq" +
+      "%20130169L%20and%20userId%20gt%20%27kblackburn%27%29&%24select=backgroundElementId%2CbgOrderPos%2C" +
+      "description%2CendDate%2ClastModifiedDate%2Cproject%2CstartDate%2CuserId%2Cprice&%24orderby=" +
+      "backgroundElementId%2CuserId&%24top=3";
+    verify(getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?" + nextPageQuery)));
+    verify(0, getRequestedFor(WireMock.urlMatching(".*%24skip=.*")));
+  }
+
+  @Test
+  public void verifyDirectDecodingMatchesODataEntries() throws Exception {
+    List<StructuredRecord> expectedRecords = readAllRecords(pluginConfigBuilder.build());
+    List<StructuredRecord> actualRecords = readAllRecords(pluginConfigBuilder.directDecoding(true).build());
+
+    Assert.assertEquals(3, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+    }
+  }
+
+  @Test
+  public void verifyKeysetPaginationWithDirectDecoding() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("keyset").directDecoding(true)
+      .build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?%24filter=.*"))
+                       .willReturn(WireMock.ok()
+                                     .withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")
+                                     .withBody("{\"d\":{\"results\":[]}}")));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 6L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    int recordCount = 0;
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordCount++;
+    }
+
+    Assert.assertEquals(3, recordCount);
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?%24filter=%28" +
+                                                  "backgroundElementId%20gt%20130169L%29%20or%20%28" +
+                                                  "backgroundElementId%20eq%20130169L%20and%20userId%20gt%20" +
+                                                  "%27kblackburn%27%29&.*")));
+  }
+
+  @Test
+  public void verifyClientSidePagesAreOrderedByKey() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").orderByKey(true)
+      .build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 4L, 6L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    while (successFactorsRecordReader.nextKeyValue()) {
+      Assert.assertNotNull(successFactorsRecordReader.getCurrentValue());
+    }
+
+    verify(getRequestedFor(WireMock.urlMatching(
+      "/odata/v2/Background_SpecialAssign\\?.*%24orderby=backgroundElementId%2CuserId&%24skip=3&%24top=3")));
+  }
+
+  @Test
+  public void verifyClientSideTimeWindowPagesAreOrderedByKey() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide")
+      .timeWindowProperty("lastModifiedDate").build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    // the '$skip' windows of a time window are taken from the same order by its successive pages
+    successFactorsService.setSplitFilter("lastModifiedDate ge datetimeoffset'2021-01-01T00:00:00Z'");
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 4L, 6L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    while (successFactorsRecordReader.nextKeyValue()) {
+      Assert.assertNotNull(successFactorsRecordReader.getCurrentValue());
+    }
+
+    verify(getRequestedFor(WireMock.urlMatching(
+      "/odata/v2/Background_SpecialAssign\\?%24filter=.*%24orderby=backgroundElementId%2CuserId&%24skip=3&%24top=3")));
+  }
+
+  @Test
+  public void verifyServerSidePagingFollowsNextLink() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    String nextLink = "http://localhost:" + wireMockRule.port() + "/odata/v2/Background_SpecialAssign?$skiptoken=p2";
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    String firstPage = data.substring(0, data.lastIndexOf(']') + 1) + ",\"__next\":\"" + nextLink + "\"}}";
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*paging=snapshot"))
+                       .willReturn(WireMock.ok()
+                                     .withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")
+                                     .withBody(firstPage)));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    float lastProgress = successFactorsRecordReader.getProgress();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+      // the progress is estimated from the read pages, as the paging ends with the page without '__next' link
+      float progress = successFactorsRecordReader.getProgress();
+      Assert.assertTrue(progress >= lastProgress && progress < 1f);
+      lastProgress = progress;
+    }
+    Assert.assertEquals(1f, successFactorsRecordReader.getProgress(), 0f);
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals("Records of both the pages are not read", 6, recordList.size());
+    verify(getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?$skiptoken=p2")));
+  }
+
+  @Test
+  public void verifyPipelinedReadMatchesSequentialRead() throws Exception {
+    List<StructuredRecord> expectedRecords = readSplit(pluginConfigBuilder.paginationType("clientSide").build());
+    List<StructuredRecord> actualRecords = readSplit(pluginConfigBuilder.pipelinedRead(true).build());
+    List<StructuredRecord> decodedRecords = readSplit(pluginConfigBuilder.directDecoding(true).build());
+
+    Assert.assertEquals(6, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    Assert.assertEquals(expectedRecords.size(), decodedRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), decodedRecords.get(i));
+    }
+  }
+
+  @Test
+  public void verifyPrefetchDepthKeepsRecords() throws Exception {
+    List<StructuredRecord> expectedRecords = readSplit(pluginConfigBuilder.paginationType("clientSide")
+                                                         .prefetchDepth(0).build());
+    List<StructuredRecord> actualRecords = readSplit(pluginConfigBuilder.prefetchDepth(2).build());
+
+    Assert.assertEquals(6, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+    }
+  }
+
+  @Test
+  public void verifyPageConcurrencyKeepsRecords() throws Exception {
+    List<StructuredRecord> expectedRecords = readSplit(pluginConfigBuilder.paginationType("clientSide").build());
+    List<StructuredRecord> actualRecords = readSplit(pluginConfigBuilder.pageConcurrency(2).build());
+    List<StructuredRecord> unorderedRecords = readSplit(pluginConfigBuilder.unorderedRead(true).build());
+
+    Assert.assertEquals(6, expectedRecords.size());
+    Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+    Assert.assertEquals(expectedRecords.size(), unorderedRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      TestSuccessFactorsUtil.assertRecordEquals(expectedRecords.get(i), actualRecords.get(i));
+    }
+  }
+
+  @Test
+  public void verifyConcurrentWindowsRefetchAfterShortWindow() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").pageConcurrency(3)
+      .build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    // every window returns 3 records, fewer than the requested 4
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 9L, 4L);
+    successFactorsRecordReader.initialize(null, null);
+    int recordCount = 0;
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordCount++;
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(9, recordCount);
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=3&%24top=4")));
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=6&%24top=3")));
+  }
+
+  @Test
+  public void verifyPipelinedReadRefetchesAfterShortWindow() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").pipelinedRead(true)
+      .build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    // every window returns 3 records, fewer than the requested 5
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 9L, 5L);
+    successFactorsRecordReader.initialize(null, null);
+    int recordCount = 0;
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordCount++;
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(9, recordCount);
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=3&%24top=5")));
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=6&%24top=3")));
+  }
+
+  @Test
+  public void verifyPipelinedServerSidePagingFollowsNextLink() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.pipelinedRead(true).directDecoding(true).build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    String nextLink = "http://localhost:" + wireMockRule.port() + "/odata/v2/Background_SpecialAssign?$skiptoken=p2";
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    String firstPage = data.substring(0, data.lastIndexOf(']') + 1) + ",\"__next\":\"" + nextLink + "\"}}";
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*paging=snapshot"))
+                       .willReturn(WireMock.ok()
+                                     .withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")
+                                     .withBody(firstPage)));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    int recordCount = 0;
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordCount++;
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals("Records of both the pages are not read", 6, recordCount);
+    verify(1, getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?$skiptoken=p2")));
+  }
+
+  @Test
+  public void verifyRetriedAttemptReadsCachedPages() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").pageCacheSize(1).build();
+    prepareStubForRun(pluginConfig);
+    SuccessFactorsReadPlan readPlan = SuccessFactorsReadPlan.hydrate(
+      new SuccessFactorsReadPlan(pluginConfig, pluginSchema, encodedMetadataString, null, "SuccessFactors")
+        .serialize());
+
+    try {
+      for (int attempt = 0; attempt < 2; attempt++) {
+        SuccessFactorsRecordReader successFactorsRecordReader =
+          new SuccessFactorsRecordReader(readPlan, 1L, 3L, 3L, null, null);
+        successFactorsRecordReader.initialize(null, null);
+        int recordCount = 0;
+        while (successFactorsRecordReader.nextKeyValue()) {
+          recordCount++;
+        }
+        successFactorsRecordReader.close();
+        Assert.assertEquals(3, recordCount);
+      }
+      verify(1, getRequestedFor(urlPathEqualTo("/odata/v2/Background_SpecialAssign")));
+    } finally {
+      SuccessFactorsPageCache.deleteRun(readPlan.getRunId());
+    }
+  }
+
+  @Test
+  public void verifyErrorTolerantReadIsolatesInvalidRecord() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").errorTolerantRead(true)
+      .build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    List<String> entries = new ArrayList<>();
+    for (JsonElement entry : new JsonParser().parse(data).getAsJsonObject().getAsJsonObject("d")
+      .getAsJsonArray("results")) {
+      entries.add(entry.toString());
+    }
+    String invalidEntry = entries.get(1).replace("\"130167\"", "130167L");
+    stubPage("\\?(?!.*%24skip)(?=.*%24top=3(&|$)).*", entries.get(0), invalidEntry, entries.get(2));
+    // the prefetched page fails first, the rest of the split is then read sequentially
+    stubPage("\\?(?=.*%24skip=1(&|$))(?=.*%24top=2(&|$)).*", invalidEntry, entries.get(2));
+    stubPage("\\?(?=.*%24skip=1(&|$))(?=.*%24top=1(&|$)).*", invalidEntry);
+    stubPage("\\?(?=.*%24skip=2(&|$))(?=.*%24top=1(&|$)).*", entries.get(2));
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 3L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(3, recordList.size());
+    Assert.assertFalse(SuccessFactorsInvalidRecord.isInvalid(recordList.get(0)));
+    Assert.assertFalse(SuccessFactorsInvalidRecord.isInvalid(recordList.get(2)));
+    StructuredRecord invalidRecord = recordList.get(1);
+    Assert.assertTrue(SuccessFactorsInvalidRecord.isInvalid(invalidRecord));
+    Assert.assertEquals(2L, (long) invalidRecord.get(SuccessFactorsInvalidRecord.POSITION_FIELD));
+    Assert.assertTrue(invalidRecord.<String>get(SuccessFactorsInvalidRecord.JSON_FIELD).contains("130167L"));
+    Assert.assertTrue(invalidRecord.<String>get(SuccessFactorsInvalidRecord.ERROR_FIELD)
+                        .startsWith("Unexpected character ('L'"));
+    Assert.assertEquals(1537, SuccessFactorsInvalidRecord.toInvalidEntry(invalidRecord).getErrorCode());
+    verify(1, getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=1&%24top=1")));
+  }
+
+  @Test
+  public void verifyProbePageEstimatesBytesPerRecord() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide").build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+
+    // the probe page holds 3 records
+    Assert.assertEquals(data.getBytes(StandardCharsets.UTF_8).length / 3,
+                        successFactorsService.probeBytesPerRecord(edmData, 100));
+    verify(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24top=100")));
+  }
+
+  @Test
+  public void verifyKeyRangeSplitsAreReadWithTheirFilter() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.paginationType("clientSide")
+      .keyRangePartitioning(true).build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    // a key range per record, closed by the first and second keys
+    stubKeyProbes();
+    List<String> keyRanges;
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, false)) {
+      keyRanges = successFactorsService.probeKeyRanges(edmData, 1, 3, planner);
+    }
+    String afterFirstKey = "(backgroundElementId gt 130166L) or (backgroundElementId eq 130166L and userId gt " +
+      "'gsteward')";
+    String afterSecondKey = "(backgroundElementId gt 130167L) or (backgroundElementId eq 130167L and userId gt " +
+      "'gsteward')";
+    Assert.assertEquals(3, keyRanges.size());
+    Assert.assertEquals("not (" + afterFirstKey + ")", keyRanges.get(0));
+    Assert.assertEquals("(" + afterFirstKey + ") and not (" + afterSecondKey + ")", keyRanges.get(1));
+    Assert.assertEquals(afterSecondKey, keyRanges.get(2));
+    verify(getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?" + KEY_PROBE_QUERY +
+                                                 "&%24top=1")));
+    verify(getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?" + KEY_PROBE_QUERY +
+                                                 "&%24skip=1&%24top=1")));
+    // the key of the last record is not probed
+    verify(0, getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*%24skip=2.*")));
+
+    List<SuccessFactorsInputSplit> partitionList =
+      new SuccessFactorsPartitionBuilder().buildKeyRangeSplits(keyRanges, 3, 1);
+    SuccessFactorsInputSplit inputSplit = partitionList.get(1);
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    JsonElement secondEntry = new JsonParser().parse(data).getAsJsonObject().getAsJsonObject("d")
+      .getAsJsonArray("results").get(1);
+    stubPage("\\?%24filter=.*%24top=1", secondEntry.toString());
+    successFactorsService.setSplitFilter(inputSplit.getFilter());
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, inputSplit.getStart(),
+                                     inputSplit.getEnd(), inputSplit.getBatchSize());
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(1, recordList.size());
+    List<LoggedRequest> pageRequests =
+      WireMock.findAll(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?%24filter=.*")));
+    Assert.assertEquals(1, pageRequests.size());
+    HttpUrl pageURL = HttpUrl.parse(pageRequests.get(0).getAbsoluteUrl());
+    Assert.assertEquals(keyRanges.get(1), pageURL.queryParameter("$filter"));
+    Assert.assertEquals("backgroundElementId,userId", pageURL.queryParameter("$orderby"));
+    Assert.assertNull(pageURL.queryParameter("$skip"));
+  }
+
+  @Test
+  public void verifyTimeWindowIsPagedByTheService() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.timeWindowProperty("lastModifiedDate").build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    Object lastValue = successFactorsService.getPropertyBound(edmData, "lastModifiedDate", true);
+    Assert.assertEquals(1618796144000L, ((GregorianCalendar) lastValue).getTimeInMillis());
+    verify(getRequestedFor(WireMock.urlEqualTo("/odata/v2/Background_SpecialAssign?%24filter=lastModifiedDate%20ne" +
+                                                 "%20null&%24select=lastModifiedDate&%24orderby=lastModifiedDate" +
+                                                 "%20desc&%24top=1")));
+
+    String window = "lastModifiedDate ge datetimeoffset'2021-01-01T00:00:00Z'";
+    successFactorsService.setSplitFilter(window);
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(3, recordList.size());
+    List<LoggedRequest> pageRequests =
+      WireMock.findAll(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*paging=snapshot")));
+    Assert.assertEquals(1, pageRequests.size());
+    Assert.assertEquals(window, HttpUrl.parse(pageRequests.get(0).getAbsoluteUrl()).queryParameter("$filter"));
+  }
+
+  @Test
+  public void verifyKeyRangeIsPagedByTheService() throws Exception {
+    SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.keyRangePartitioning(true).build();
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    stubKeyProbes();
+    List<String> keyRanges;
+    try (SuccessFactorsRunPlanner planner = SuccessFactorsRunPlanner.planRun(successFactorsService, false)) {
+      keyRanges = successFactorsService.probeKeyRanges(edmData, 1, 3, planner);
+    }
+    List<SuccessFactorsInputSplit> partitionList =
+      new SuccessFactorsPartitionBuilder().buildKeyRangeSplits(keyRanges, 3, 1);
+    Assert.assertEquals(3, partitionList.size());
+    SuccessFactorsInputSplit inputSplit = partitionList.get(1);
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    JsonElement secondEntry = new JsonParser().parse(data).getAsJsonObject().getAsJsonObject("d")
+      .getAsJsonArray("results").get(1);
+    stubPage("\\?.*%24filter=.*", secondEntry.toString());
+
+    // the split runs a snapshot paging of its own, restricted to its key range
+    successFactorsService.setSplitFilter(inputSplit.getFilter());
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    successFactorsRecordReader.close();
+
+    Assert.assertEquals(1, recordList.size());
+    Assert.assertEquals(130167L, recordList.get(0).<Long>get("backgroundElementId").longValue());
+    List<LoggedRequest> pageRequests =
+      WireMock.findAll(getRequestedFor(WireMock.urlMatching("/odata/v2/Background_SpecialAssign\\?.*paging=snapshot")));
+    Assert.assertEquals(1, pageRequests.size());
+    HttpUrl pageURL = HttpUrl.parse(pageRequests.get(0).getAbsoluteUrl());
+    Assert.assertEquals(keyRanges.get(1), pageURL.queryParameter("$filter"));
+    Assert.assertNull(pageURL.queryParameter("$skip"));
+  }
+
   @Test
   public void verifyFailToDecodeMetadataString() throws SuccessFactorsServiceException {
     SuccessFactorsPluginConfig pluginConfig = pluginConfigBuilder.build();
@@ -234,6 +764,41 @@ public class RuntimeFunctionalTest {
     }
   }
 
+  private List<StructuredRecord> readAllRecords(SuccessFactorsPluginConfig pluginConfig) throws Exception {
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, null, null, null);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    return recordList;
+  }
+
+  private List<StructuredRecord> readSplit(SuccessFactorsPluginConfig pluginConfig) throws Exception {
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection());
+    successFactorsService = new SuccessFactorsService(pluginConfig, transporter);
+    prepareStubForMetadata(pluginConfig);
+    prepareStubForRun(pluginConfig);
+    edmData = successFactorsService.getSuccessFactorsServiceEdm(encodedMetadataString);
+
+    SuccessFactorsRecordReader successFactorsRecordReader =
+      new SuccessFactorsRecordReader(successFactorsService, edmData, pluginSchema, 1L, 6L, 3L);
+    successFactorsRecordReader.initialize(null, null);
+    List<StructuredRecord> recordList = new ArrayList<>();
+    while (successFactorsRecordReader.nextKeyValue()) {
+      recordList.add(successFactorsRecordReader.getCurrentValue());
+    }
+    successFactorsRecordReader.close();
+    return recordList;
+  }
+
   private void prepareStubForRun(SuccessFactorsPluginConfig pluginConfig) {
     String expectedBody = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
       ("successfactors-data.json"));
@@ -245,6 +810,29 @@ public class RuntimeFunctionalTest {
                                      .withBody(expectedBody)));
   }
 
+  /**
+   * Stubs the key probe at the offset of every record of the test data, along with the record count of the planner
+   * running the probes.
+   */
+  private void stubKeyProbes() {
+    WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/odata/v2/Background_SpecialAssign/$count"))
+                       .willReturn(WireMock.ok().withBody("3")));
+    String data = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
+      ("successfactors-data.json"));
+    JsonArray results = new JsonParser().parse(data).getAsJsonObject().getAsJsonObject("d").getAsJsonArray("results");
+    for (int offset = 0; offset < results.size(); offset++) {
+      stubPage("\\?" + KEY_PROBE_QUERY + (offset == 0 ? "" : "&%24skip=" + offset) + "&%24top=1",
+               results.get(offset).toString());
+    }
+  }
+
+  private void stubPage(String queryPattern, String... entries) {
+    WireMock.stubFor(WireMock.get(WireMock.urlMatching("/odata/v2/Background_SpecialAssign" + queryPattern))
+                       .willReturn(WireMock.ok()
+                                     .withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")
+                                     .withBody("{\"d\":{\"results\":[" + String.join(",", entries) + "]}}")));
+  }
+
   private void prepareStubForMetadata(SuccessFactorsPluginConfig pluginConfig) {
     String expectedBody = TestSuccessFactorsUtil.convertInputStreamToString(TestSuccessFactorsUtil.readResource
       ("successfactors-metadata2.xml"));
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.successfactors.source.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SuccessFactorsRateLimiterTest {
+
+  @Test
+  public void testLowerRateDoesNotThrottleOtherRates() {
+    String baseURL = "http://localhost/odata/v2/other-rates";
+    SuccessFactorsRateLimiter.acquire(baseURL, 1);
+
+    // a reader configured with another rate, e.g. a later pipeline of the executor, keeps its own limit
+    long startTime = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      SuccessFactorsRateLimiter.acquire(baseURL, 1000);
+    }
+    Assert.assertTrue("Request rate is lowered by another reader.",
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < 500);
+  }
+}
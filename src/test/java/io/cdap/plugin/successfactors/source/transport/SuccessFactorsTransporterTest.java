@@ -43,6 +43,7 @@ import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
@@ -220,4 +221,20 @@ public class SuccessFactorsTransporterTest {
     transporter.callSuccessFactors(successFactorsURL.getTesterURL(), MediaType.APPLICATION_JSON,
                                    SuccessFactorsService.TEST);
   }
+
+  @Test
+  public void testRequestRateIsLimited() throws TransportException {
+    WireMock.stubFor(WireMock.get("/Entity?%24expand=Products%2FSupplier&%24top=1")
+                       .willReturn(WireMock.ok().withHeader(SuccessFactorsTransporter.SERVICE_VERSION, "2.0")));
+    transporter = new SuccessFactorsTransporter(pluginConfig.getConnection(), 4);
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      transporter.callSuccessFactors(successFactorsURL.getTesterURL(), MediaType.APPLICATION_JSON,
+                                     SuccessFactorsService.TEST);
+    }
+    // the first request is sent right away, each of the next ones waits for a quarter of a second
+    Assert.assertTrue("Request rate is not limited.",
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) >= 900);
+  }
 }
@@ -22,6 +22,8 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
 
 public class SuccessFactorsUrlContainerTest {
   public SuccessFactorsPluginConfig pluginConfig;
@@ -65,6 +67,17 @@ public class SuccessFactorsUrlContainerTest {
     Assert.assertEquals(actualUrl.toString(), expectedUrl);
   }
 
+  @Test
+  public void testGetKeysetDataFetchURL() {
+    SuccessFactorsUrlContainer urlContainer = new SuccessFactorsUrlContainer(pluginConfig);
+    String expectedUrl = "https://baseurl/entityName?%24filter=%28filterOption%29%20and%20%28userId%20gt%20" +
+      "%27admin%27%29&%24select=selectOption%2CuserId%2CexpandOption&%24expand=expandOption&%24orderby=userId" +
+      "&%24top=100";
+    URL actualUrl = urlContainer.getDataFetchURL(null, 100L, Collections.singletonList("userId"),
+                                                 "userId gt 'admin'");
+    Assert.assertEquals(expectedUrl, actualUrl.toString());
+  }
+
   @Test
   public void testGetURLWithAdditionalQueryParameters() {
     pluginConfig = Mockito.spy(new SuccessFactorsPluginConfig("referenceName",
@@ -84,4 +97,15 @@ public class SuccessFactorsUrlContainerTest {
     URL actualUrl = urlContainer.getTesterURL();
     Assert.assertEquals(expectedUrl, actualUrl.toString());
   }
+
+  @Test
+  public void testGetDataFetchURLWithResolvedNonNavigationalProperties() {
+    pluginConfig = SuccessFactorsPluginConfig.builder().baseURL("https://successfactors.com").entityName("EmpJob")
+      .build();
+    SuccessFactorsUrlContainer urlContainer = new SuccessFactorsUrlContainer(pluginConfig);
+    Assert.assertFalse(urlContainer.hasNonNavigationalProperties());
+    urlContainer.setNonNavigationalProperties(Arrays.asList("userId", "startDate"));
+    String expectedUrl = "https://successfactors.com/EmpJob?%24select=userId%2CstartDate&%24top=100";
+    Assert.assertEquals(expectedUrl, urlContainer.getDataFetchURL(0L, 100L).toString());
+  }
 }